@@ -0,0 +1,166 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.server.AccountStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the durable account store: the time for a settlement to reach
+ * the disk with many dealers settling at once, and the time to recover a
+ * million accounts plus a journal of settlements after them.
+ * @author Ron.Coleman
+ */
+@Fork(1)
+public class AccountStoreBench {
+    /**
+     * Store that dealers settle into.
+     */
+    @State(Scope.Benchmark)
+    public static class Commit {
+        @Param({"10000"})
+        int accounts;
+        
+        Path dir;
+        AccountStore store;
+        
+        @Setup
+        public void setup() throws IOException {
+            Bench.quiet();
+            
+            dir = Files.createTempDirectory("store");
+            store = new AccountStore(dir, 64 * 1024 * 1024, 4096);
+        }
+        
+        @TearDown
+        public void tearDown() throws IOException {
+            System.out.println("\n"+store);
+            
+            store.close();
+            delete(dir);
+        }
+    }
+    
+    /**
+     * Store with a snapshot of a million accounts and a journal after it.
+     */
+    @State(Scope.Benchmark)
+    public static class Recovery {
+        @Param({"1000000"})
+        int accounts;
+        
+        @Param({"100000"})
+        int settlements;
+        
+        Path dir;
+        AccountStore store;
+        
+        @Setup(Level.Iteration)
+        public void setup() throws Exception {
+            Bench.quiet();
+            
+            dir = Files.createTempDirectory("store");
+            
+            AccountStore store = new AccountStore(dir, 64 * 1024 * 1024, 4096);
+            
+            for(long account=1; account <= accounts; account++)
+                store.post(account, 100000);
+            
+            store.close();
+            
+            store = new AccountStore(dir, 64 * 1024 * 1024, 4096);
+            
+            ThreadLocalRandom ran = ThreadLocalRandom.current();
+            
+            for(int k=0; k < settlements; k++)
+                store.post(1 + ran.nextInt(accounts), ran.nextInt(200000));
+            
+            // Crash: the settlements are only in the journal
+            store.sync();
+        }
+        
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            System.out.println("\nrecovered "+store.getRecovered()+" in "+store.getRecoveryNanos() / 1000000+" ms");
+            
+            store.close();
+            delete(dir);
+        }
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 2, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Threads(8)
+    public long commit(Commit state) throws InterruptedException {
+        long account = ThreadLocalRandom.current().nextInt(state.accounts);
+        
+        state.store.post(account, 100000);
+        state.store.sync();
+        
+        return account;
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public int recover(Recovery state) throws IOException {
+        state.store = new AccountStore(state.dir, 64 * 1024 * 1024, 4096);
+        
+        return state.store.size();
+    }
+    
+    /**
+     * Deletes a store directory.
+     * @param dir Directory
+     */
+    static void delete(Path dir) throws IOException {
+        try(Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
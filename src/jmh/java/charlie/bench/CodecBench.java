@@ -0,0 +1,90 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.message.Message;
+import charlie.message.codec.BinaryCodec;
+import charlie.message.codec.Codec;
+import charlie.message.codec.SerialCodec;
+import charlie.message.view.to.Deal;
+import charlie.message.view.to.GameStart;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks encoding and decoding the two busiest view messages with
+ * each codec.
+ * @author Ron.Coleman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBench {
+    @Param({"serial", "binary"})
+    String format;
+    
+    Codec codec;
+    Deal deal;
+    GameStart start;
+    
+    @Setup
+    public void setup() {
+        Bench.quiet();
+        
+        codec = format.equals("binary") ? new BinaryCodec() : new SerialCodec();
+        
+        Hid you = new Hid(Seat.YOU, 5, 0);
+        
+        deal = new Deal(you, new int[] {10, 10}, new Card(Card.KING, Card.Suit.CLUBS));
+        
+        start = new GameStart(Arrays.asList(new Hid(Seat.RIGHT), you, new Hid(Seat.LEFT), new Hid(Seat.DEALER)), 312);
+    }
+    
+    @Benchmark
+    public Message deal() throws IOException {
+        return codec.decode(codec.encode(deal));
+    }
+    
+    @Benchmark
+    public Message gameStart() throws IOException {
+        return codec.decode(codec.encode(start));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.HandState;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks hand evaluation: hitting, revaluing and testing for blackjack,
+ * with the packed evaluator in Hand and HandState against the old counting.
+ * @author Ron.Coleman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandBench {
+    Hid hid;
+    Card ace, five, ten;
+    Hand soft;
+    Hand blackjack;
+    LegacyHand legacySoft;
+    LegacyHand legacyBlackjack;
+    int state;
+    
+    @Setup
+    public void setup() {
+        Bench.quiet();
+        
+        hid = new Hid(Seat.YOU, 5, 0);
+        
+        ace = new Card(Card.ACE, Card.Suit.SPADES);
+        five = new Card(5, Card.Suit.HEARTS);
+        ten = new Card(Card.KING, Card.Suit.CLUBS);
+        
+        soft = new Hand(hid);
+        soft.hit(ace);
+        soft.hit(five);
+        soft.hit(ten);
+        
+        blackjack = new Hand(hid);
+        blackjack.hit(ace);
+        blackjack.hit(ten);
+        
+        legacySoft = new LegacyHand();
+        legacySoft.hit(ace);
+        legacySoft.hit(five);
+        legacySoft.hit(ten);
+        
+        legacyBlackjack = new LegacyHand();
+        legacyBlackjack.hit(ace);
+        legacyBlackjack.hit(ten);
+        
+        state = soft.getState();
+    }
+    
+    /**
+     * Builds a three-card soft hand which turns hard.
+     */
+    @Benchmark
+    public Hand hit() {
+        Hand hand = new Hand(hid);
+        
+        hand.hit(ace);
+        hand.hit(five);
+        hand.hit(ten);
+        
+        return hand;
+    }
+    
+    @Benchmark
+    public int[] revalue() {
+        soft.revalue();
+        
+        return soft.getValues();
+    }
+    
+    @Benchmark
+    public boolean isBlackjack() {
+        return blackjack.isBlackjack();
+    }
+    
+    @Benchmark
+    public boolean isBroke() {
+        return soft.isBroke();
+    }
+    
+    @Benchmark
+    public int value() {
+        return soft.getValue();
+    }
+    
+    /**
+     * Same three cards straight into a packed state.
+     */
+    @Benchmark
+    public int stateHit() {
+        int s = HandState.hit(HandState.EMPTY, ace);
+        s = HandState.hit(s, five);
+        
+        return HandState.hit(s, ten);
+    }
+    
+    @Benchmark
+    public boolean stateQuery() {
+        return HandState.isBroke(state) || HandState.isBlackjack(state) || HandState.isCharlie(state);
+    }
+    
+    @Benchmark
+    public LegacyHand legacyHit() {
+        LegacyHand hand = new LegacyHand();
+        
+        hand.hit(ace);
+        hand.hit(five);
+        hand.hit(ten);
+        
+        return hand;
+    }
+    
+    @Benchmark
+    public int[] legacyRevalue() {
+        legacySoft.revalue();
+        
+        return legacySoft.values;
+    }
+    
+    @Benchmark
+    public boolean legacyIsBlackjack() {
+        return legacyBlackjack.isBlackjack();
+    }
+    
+    @Benchmark
+    public boolean legacyIsBroke() {
+        return legacySoft.isBroke();
+    }
+    
+    @Benchmark
+    public int legacyValue() {
+        return legacySoft.getValue();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.history.HandRecord;
+import charlie.history.HistoryReader;
+import charlie.history.HistoryWriter;
+import charlie.history.Outcome;
+import charlie.util.Play;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks recording a game in the binary hand history against writing
+ * it as a line of text, and scanning a million games back.
+ * @author Ron.Coleman
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBench {
+    /**
+     * Fills in a typical game: a player hits, stays and wins.
+     * @param record Record
+     * @param stamp Time stamp
+     */
+    static void fill(HandRecord record, long stamp) {
+        Hid hid = new Hid(Seat.YOU, 5, 0);
+        hid.request(Play.HIT);
+        hid.request(Play.STAY);
+        
+        record.reset(stamp);
+        
+        for(int k=0; k < 6; k++)
+            record.card(Card.valueOf((int) (stamp + 7 * k) % 52));
+        
+        record.hand(hid, Outcome.WIN, 5, 5);
+        record.dealer(new Hid(Seat.DEALER), Outcome.NONE);
+    }
+    
+    @State(Scope.Benchmark)
+    public static class Writing {
+        @Param({"binary", "text"})
+        String kind;
+        
+        Path dir;
+        HistoryWriter writer;
+        BufferedWriter text;
+        final HandRecord record = new HandRecord();
+        
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            Bench.quiet();
+            
+            dir = Files.createTempDirectory("history");
+            
+            writer = new HistoryWriter(dir, 64 * 1024 * 1024);
+            text = Files.newBufferedWriter(dir.resolve("hands.log"));
+            
+            fill(record, 1);
+        }
+        
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            writer.close();
+            text.close();
+            
+            Files.walk(dir).map(Path::toFile).sorted((a, b) -> b.compareTo(a)).forEach(File::delete);
+        }
+    }
+    
+    @State(Scope.Benchmark)
+    public static class Scanning {
+        @Param({"1000000"})
+        int games;
+        
+        HistoryReader reader;
+        
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            Bench.quiet();
+            
+            Path dir = Files.createTempDirectory("history");
+            
+            HistoryWriter writer = new HistoryWriter(dir, 64 * 1024 * 1024);
+            HandRecord record = new HandRecord();
+            
+            for(int k=0; k < games; k++) {
+                fill(record, k);
+                writer.write(record);
+            }
+            
+            writer.close();
+            
+            reader = new HistoryReader(dir);
+        }
+    }
+    
+    @Benchmark
+    public long write(Writing state) throws IOException {
+        if(state.kind.equals("binary"))
+            return state.writer.write(state.record);
+        
+        state.text.write(state.record.toString());
+        state.text.newLine();
+        
+        return 0;
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long scan(Scanning state) throws IOException {
+        long[] pnl = new long[1];
+        
+        state.reader.scan(record -> pnl[0] += record.getPnl(0));
+        
+        return pnl[0];
+    }
+}
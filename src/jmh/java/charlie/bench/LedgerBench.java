@@ -0,0 +1,105 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.server.Ledger;
+import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks settling bets into the ledger from many dealers at once
+ * against one lock around a map of balances.
+ * @author Ron.Coleman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class LedgerBench {
+    @Param({"ledger", "locked"})
+    String kind;
+    
+    @Param({"64"})
+    int accounts;
+    
+    Ledger ledger;
+    final HashMap<Long,Double> locked = new HashMap<>();
+    
+    @Setup
+    public void setup() {
+        Bench.quiet();
+        
+        ledger = new Ledger();
+        
+        for(long number=0; number < accounts; number++) {
+            ledger.open(number, 1000);
+            locked.put(number, 1000.0);
+        }
+    }
+    
+    @Benchmark
+    public double settle() {
+        ThreadLocalRandom ran = ThreadLocalRandom.current();
+        
+        long number = ran.nextInt(accounts);
+        double amt = ran.nextBoolean() ? 5 : -5;
+        
+        if(kind.equals("ledger"))
+            return ledger.post(number, amt);
+        
+        synchronized(locked) {
+            double bankroll = locked.get(number) + amt;
+            locked.put(number, bankroll);
+            return bankroll;
+        }
+    }
+    
+    @Benchmark
+    public double total() {
+        if(kind.equals("ledger"))
+            return ledger.getTotal();
+        
+        synchronized(locked) {
+            double total = 0;
+            for(double bankroll: locked.values())
+                total += bankroll;
+            return total;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.card.Card;
+import charlie.card.HoleCard;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is a copy of how Hand counted cards before the packed
+ * evaluator, kept only as the benchmark baseline.
+ * @author Ron.Coleman
+ */
+class LegacyHand {
+    protected List<Card> cards = new ArrayList<>();
+    protected int[] values = new int[2];
+    
+    void hit(Card card) {
+        this.cards.add(card);
+
+        if(card instanceof HoleCard)
+            return;
+        
+        Integer value = card.value();
+        
+        values[0] += value;
+        values[1] += value;
+        
+        if(card.isAce() && values[1]+10 <= 21)
+            values[1] += 10;
+    }
+    
+    void revalue() {
+        values[0] = values[1] = 0;
+        
+        for(Card card: cards) {
+            int value = card.value();
+            
+            values[0] += value;
+            values[1] += value;
+            
+            if(card.isAce() && values[1]+10 <= 21)
+                values[1] += 10;
+        }
+    }
+    
+    boolean isBlackjack() {
+        if(cards.size() == 2 && values[1] == 21)
+            if(cards.get(0).isAce() || cards.get(1).isAce())
+                return true;
+        
+        return false;
+    }
+    
+    boolean isBroke() {
+        return values[0] > 21 && values[1] > 21;
+    }
+    
+    int getValue() {
+        return values[1] <= 21 ? values[1] : values[0];
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.actor.ClientAuthenticator;
+import charlie.actor.ServerAuthenticator;
+import charlie.server.GameServer;
+import charlie.server.TicketRegistry;
+import charlie.util.Constant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a login storm: thousands of clients logging in at once
+ * against the login listener with one or more workers. The time is for
+ * the whole storm; the listener's stats are printed at the end.
+ * @author Ron.Coleman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class LoginBench {
+    @Param({"1", "8"})
+    int workers;
+    
+    @Param({"5000"})
+    int logins;
+    
+    @Param({"256"})
+    int clients;
+    
+    ServerAuthenticator listener;
+    ExecutorService storm;
+    
+    @Setup
+    public void setup() throws InterruptedException {
+        Bench.quiet();
+        
+        System.setProperty("charlie.server.login", "127.0.0.1:19001");
+        System.setProperty(Constant.LOGIN_WORKERS, workers+"");
+        
+        listener = new ServerAuthenticator(new Server());
+        
+        Thread thread = new Thread(listener::receive);
+        thread.setDaemon(true);
+        thread.start();
+        
+        storm = Executors.newFixedThreadPool(clients);
+        
+        Thread.sleep(250);
+    }
+    
+    @Benchmark
+    public int storm() throws Exception {
+        List<Future<Boolean>> replies = new ArrayList<>(logins);
+        
+        for(int i=0; i < logins; i++)
+            replies.add(storm.submit(() -> new ClientAuthenticator().send("bench", "bench") != null));
+        
+        int ok = 0;
+        for(Future<Boolean> reply: replies)
+            if(reply.get())
+                ok++;
+        
+        return ok;
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.out.println();
+        System.out.println("workers = "+workers+" "+listener);
+        
+        listener.stop();
+        storm.shutdown();
+    }
+    
+    /**
+     * Game server with just a ticket registry.
+     */
+    static class Server extends GameServer {
+        Server() {
+            tickets = new TicketRegistry();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.plugin.IAdvisor;
+import charlie.plugin.Plugin;
+import charlie.plugin.PluginRegistry;
+import charlie.sim.BasicStrategy;
+import charlie.util.Constant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks making a plugin the way the dealer used to spawn bots, by
+ * property lookup and reflection every hand, against the registry's
+ * factory and its pool.
+ * @author Ron.Coleman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PluginBench {
+    Plugin<IAdvisor> plugin;
+    Plugin<IAdvisor> pool;
+    
+    @Setup
+    public void setup() {
+        Bench.quiet();
+        
+        System.setProperty(Constant.PLUGIN_ADVISOR, BasicStrategy.class.getName());
+        System.setProperty(Constant.PLUGIN_POOL, "true");
+        
+        // Only bots are pooled, so the pool gets the advisor under a bot's key
+        System.setProperty(Constant.PLUGIN_BOT+"bench", BasicStrategy.class.getName());
+        
+        PluginRegistry registry = PluginRegistry.load();
+        
+        plugin = registry.get(Constant.PLUGIN_ADVISOR, IAdvisor.class);
+        pool = registry.get(Constant.PLUGIN_BOT+"bench", IAdvisor.class);
+    }
+    
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public IAdvisor reflective() throws Exception {
+        String className = System.getProperties().getProperty(Constant.PLUGIN_ADVISOR);
+        
+        return (IAdvisor) Class.forName(className).newInstance();
+    }
+    
+    @Benchmark
+    public IAdvisor registry() {
+        return plugin.newInstance();
+    }
+    
+    @Benchmark
+    public IAdvisor pooled() {
+        IAdvisor advisor = pool.acquire();
+        
+        pool.release(advisor);
+        
+        return advisor;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.bench;
+
+import charlie.actor.last.ExecutorFactory;
+import charlie.util.Constant;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks parking blocked tasks on the actor executor, which is what an
+ * idle session's receive loop or channel reader costs it. These are
+ * stand-ins, not actor sessions with sockets: the benchmark shows what each
+ * executor mode costs per blocked task, that is, a platform thread apiece
+ * in "pool" mode and on a JVM without virtual threads. The time is how
+ * long it takes to park them all; the thread count and resident memory
+ * with every task parked are printed at the end of each iteration.
+ * @author Ron.Coleman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SessionBench {
+    @Param({"virtual", "pool"})
+    String executor;
+    
+    @Param({"1000", "10000"})
+    int sessions;
+    
+    ExecutorService pool;
+    CountDownLatch idle;
+    
+    @Setup
+    public void setup() {
+        Bench.quiet();
+        
+        // Each parameter set runs in its own fork, so this is the first use
+        System.setProperty(Constant.ACTOR_EXECUTOR, executor);
+        
+        pool = ExecutorFactory.getInstance();
+    }
+    
+    @Benchmark
+    public int park() throws InterruptedException {
+        idle = new CountDownLatch(1);
+        
+        final CountDownLatch parked = new CountDownLatch(sessions);
+        
+        for(int i=0; i < sessions; i++) {
+            pool.execute(() -> {
+                parked.countDown();
+                
+                try {
+                    idle.await();
+                }
+                catch(InterruptedException ex) {
+                }
+            });
+        }
+        
+        parked.await();
+        
+        return sessions;
+    }
+    
+    @TearDown(Level.Iteration)
+    public void report() {
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        
+        System.out.println();
+        System.out.println(ExecutorFactory.getMode()+" sessions = "+sessions+" threads = "+threads+" rss = "+rss()+" KB");
+        
+        // Let the sessions go
+        idle.countDown();
+    }
+    
+    /**
+     * Gets the resident set size of this process.
+     * @return Kilobytes or -1 if not on Linux
+     */
+    static long rss() {
+        try {
+            for(String line: Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if(line.startsWith("VmRSS:"))
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        catch(IOException | NumberFormatException ex) {
+        }
+        
+        return -1;
+    }
+}
@@ -197,8 +197,11 @@ public class GameClient extends AbstractGameFrame {
                                     options,
                                     options[1]);
 
-                            if(n == 0)
+                            if(n == 0) {
+                                courier.logout();
+                                
                                 System.exit(0);
+                            }
                         }
                     });
                 }
@@ -549,8 +549,11 @@ public class GameFrame extends AbstractGameFrame {
                             options,
                             options[1]);
                     
-                    if(n == 0)
+                    if(n == 0) {
+                        courier.logout();
+                        
                         System.exit(0);
+                    }
                 }
             });
         }
@@ -23,8 +23,14 @@
 package charlie.actor;
 
 import charlie.actor.last.Actor;
+import charlie.actor.last.Channel;
+import charlie.message.codec.CodecFactory;
 import charlie.message.view.from.Arrival;
+import charlie.message.view.from.Resume;
 import charlie.server.Ticket;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
@@ -35,6 +41,7 @@ import java.net.UnknownHostException;
 public class Arriver extends Actor {
 
     private final Ticket ticket;
+    private final int courierPort;
     
     /**
      * Constructor
@@ -43,23 +50,85 @@ public class Arriver extends Actor {
      * @param ticket Ticket to conduct business
      */
     public Arriver(Ticket ticket) {
+        this(ticket, Integer.parseInt(System.getProperty("charlie.client.courier").split(":")[1]));
+    }
+    
+    /**
+     * Constructor for a courier on a port of its own.
+     * @param ticket Ticket to conduct business
+     * @param courierPort Port the courier listens on
+     */
+    public Arriver(Ticket ticket, int courierPort) {
         super("",System.getProperty("charlie.server.house"));
         
         this.ticket = ticket;
+        this.courierPort = courierPort;
     }
     
+    /**
+     * Sends the arrival.
+     */
     public void send() {
+        arrive(false);
+    }
+    
+    /**
+     * Sends a resume to get back the seat of a courier which dropped.
+     */
+    public void resume() {
+        arrive(true);
+    }
+    
+    /**
+     * Sends the arrival or resume.
+     * @param resume True to resume
+     */
+    protected void arrive(boolean resume) {
         try {
-            int courierPort = Integer.parseInt(System.getProperty("charlie.client.courier").split(":")[1]);
+            Arrival arrival = resume ?
+                    new Resume(ticket,InetAddress.getLocalHost(),courierPort) :
+                    new Arrival(ticket,InetAddress.getLocalHost(),courierPort);
+            
+            String endpoint = System.getProperty(Constant.SERVER_ENDPOINT);
+            
+            // Ask the house for the same channel mode the courier uses
+            arrival.enablePersistent(endpoint != null || Helper.getPropertyOrElse(Constant.ACTOR_PERSISTENT, false));
+            arrival.setCodec(CodecFactory.getInstance().getName());
+            
+            if(endpoint != null)
+                send(arrival, endpoint);
+            else
+                super.send(arrival);
             
-            super.send(new Arrival(ticket,InetAddress.getLocalHost(),courierPort));
-            info("sent arrival message");
+            info("sent "+arrival.getClass().getSimpleName().toLowerCase()+" message");
             
         } catch (UnknownHostException ex) {
             error("got exception "+ex);
         }
     }
     
+    /**
+     * Sends the arrival as a frame to the server's single endpoint.
+     * @param arrival Arrival
+     * @param endpoint Server endpoint in "address:port" form
+     */
+    protected void send(Arrival arrival, String endpoint) {
+        Channel channel = null;
+        
+        try {
+            channel = Channel.connect(endpoint);
+            channel.setCodec(CodecFactory.getInstance());
+            
+            channel.write(arrival);
+        } catch (IOException ex) {
+            error("got exception "+ex);
+        }
+        finally {
+            if(channel != null)
+                channel.close();
+        }
+    }
+    
     /**
      * Blocks receives.
      */
@@ -23,8 +23,13 @@
 package charlie.actor;
 
 import charlie.actor.last.Authenticator;
+import charlie.actor.last.Channel;
+import charlie.message.Message;
+import charlie.message.codec.CodecFactory;
 import charlie.message.view.from.Login;
+import charlie.message.view.to.LoginResponse;
 import charlie.server.Ticket;
+import charlie.util.Constant;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -50,6 +55,11 @@ public class ClientAuthenticator extends Authenticator {
      * @return Ticket if login successful, null otherwise
      */
     public Ticket send(Login login) {
+        String endpoint = System.getProperty(Constant.SERVER_ENDPOINT);
+        
+        if(endpoint != null)
+            return send(login, endpoint);
+        
         try {
             // Login to the server
             String[] params = remoteHost.split(":");
@@ -80,4 +90,37 @@ public class ClientAuthenticator extends Authenticator {
             return null;
         }
     }
+    
+    /**
+     * Sends a login as a frame to the server's single endpoint.
+     * @param login Login
+     * @param endpoint Server endpoint in "address:port" form
+     * @return Ticket if login successful, null otherwise
+     */
+    protected Ticket send(Login login, String endpoint) {
+        Channel channel = null;
+        
+        try {
+            channel = Channel.connect(endpoint);
+            channel.setCodec(CodecFactory.getInstance());
+            
+            channel.write(login);
+            LOG.info("sent login request to "+endpoint);
+            
+            Message reply = channel.read();
+            
+            this.ticket = reply instanceof LoginResponse ? ((LoginResponse) reply).getTicket() : null;
+            LOG.info("received ticket "+ticket);
+            
+            return ticket;
+        } catch (IOException e) {
+            LOG.info("failed to connect to server: " + e);
+            
+            return null;
+        }
+        finally {
+            if(channel != null)
+                channel.close();
+        }
+    }
 }
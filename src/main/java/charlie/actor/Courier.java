@@ -24,6 +24,7 @@ package charlie.actor;
 
 import charlie.actor.last.Listener;
 import charlie.actor.last.Actor;
+import charlie.actor.last.Sequencer;
 import charlie.card.Card;
 import charlie.card.HoleCard;
 import charlie.message.view.to.Ready;
@@ -31,11 +32,15 @@ import charlie.plugin.IUi;
 import charlie.card.Hid;
 import charlie.dealer.Seat;
 import charlie.message.Message;
+import charlie.message.Status;
+import charlie.message.codec.CodecFactory;
 import charlie.message.view.from.Bet;
 import charlie.message.view.from.DoubleDown;
 import charlie.message.view.from.Hit;
+import charlie.message.view.from.Logout;
 import charlie.message.view.from.SplitRequest;
 import charlie.message.view.from.Stay;
+import charlie.message.view.to.Batch;
 import charlie.message.view.to.Blackjack;
 import charlie.message.view.to.Bust;
 import charlie.message.view.to.Charlie;
@@ -47,11 +52,17 @@ import charlie.message.view.to.Play;
 import charlie.message.view.to.Push;
 import charlie.message.view.to.GameStart;
 import charlie.message.view.to.Shuffle;
+import charlie.message.view.to.Snapshot;
 import charlie.message.view.to.SplitResponse;
 import charlie.message.view.to.Win;
 import charlie.util.Constant;
+import charlie.util.Helper;
 import java.net.InetAddress;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
 import charlie.plugin.ITrap;
+import charlie.plugin.PluginRegistry;
 import org.apache.log4j.Logger;
 
 /**
@@ -65,12 +76,29 @@ public class Courier extends Actor implements Listener {
     protected HoleCard holeCard;
     protected ITrap trap;
     
+    // Puts the real player's messages back in order and counts lost ones
+    protected final Sequencer sequencer = new Sequencer(Helper.getPropertyOrElse(Constant.COURIER_WINDOW, 64));
+    protected final int gapTimeout = Helper.getPropertyOrElse(Constant.COURIER_GAP, 1000);
+    // One timer for every courier in the process
+    protected final static Timer gapTimer = new Timer("courier-gap", true);
+    protected TimerTask gapTask;
+    
     /**
      * Constructor
      * @param ui User interface
      */
     public Courier(IUi ui) {
-        super(System.getProperty("charlie.client.courier"), System.getProperty("charlie.server.realplayer"));
+        this(ui, System.getProperty("charlie.client.courier"));
+    }
+    
+    /**
+     * Constructor for one of many couriers in a process, each on its own
+     * port.
+     * @param ui User interface
+     * @param myHost Courier host in "address:port" form
+     */
+    public Courier(IUi ui, String myHost) {
+        super(myHost, System.getProperty("charlie.server.realplayer"));
 
         this.ui = ui;
         
@@ -85,27 +113,93 @@ public class Courier extends Actor implements Listener {
         
         this.listener = this;
         
-        String className = System.getProperty(Constant.PLUGIN_TRAP);
-        
-        if(className != null) {
-            try {
-                Class<?> clazz = Class.forName(className);
-                
-                trap = (ITrap) clazz.newInstance();
-                
-                info("trap installed successfully: "+trap.getClass().getSimpleName());
-            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
-               error("exception caught: "+ex);
+        this.persistent = Helper.getPropertyOrElse(Constant.ACTOR_PERSISTENT, false);
+        
+        // A single server endpoint only speaks frames
+        String endpoint = System.getProperty(Constant.SERVER_ENDPOINT);
+        if(endpoint != null) {
+            this.remoteHost = endpoint;
+            this.persistent = true;
+        }
+        
+        this.codec = CodecFactory.getInstance();
+        
+        trap = PluginRegistry.getInstance().newInstance(Constant.PLUGIN_TRAP, ITrap.class);
+        
+        if(trap != null)
+            info("trap installed successfully: "+trap.getClass().getSimpleName());
+    }
+    
+    /**
+     * Receives messages in the order the real player sent them.
+     * A message which arrives ahead of one still missing waits, but not
+     * for longer than the gap timeout.
+     * @param message Message
+     */
+    @Override
+    public synchronized void received(Message message) {
+        // A snapshot stands in for everything the real player sent before it
+        if(message instanceof Snapshot)
+            sequencer.resync(message.getSeq());
+        
+        List<Message> ready = sequencer.offer(message);
+        
+        for(Message msg: ready)
+            deliver(msg);
+        
+        if(!sequencer.isWaiting()) {
+            if(gapTask != null) {
+                gapTask.cancel();
+                gapTask = null;
             }
         }
+        else if(gapTask == null) {
+            LOG.warn("waiting on message gap: "+sequencer);
+            
+            gapTask = new TimerTask() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            };
+            
+            gapTimer.schedule(gapTask, gapTimeout);
+        }
+    }
+    
+    /**
+     * Gives up waiting for missing messages and delivers the ones after them.
+     */
+    protected synchronized void flush() {
+        gapTask = null;
+        
+        for(Message msg: sequencer.flush())
+            deliver(msg);
+        
+        LOG.error("skipped message gap: "+sequencer);
+    }
+    
+    /**
+     * Gets the inbound sequencing counters.
+     * @return Sequencer
+     */
+    public Sequencer getSequencer() {
+        return sequencer;
     }
     
     /**
      * Dispatches received messages.
      * @param message Message
      */
-    @Override
-    public void received(Message message) {
+    protected void deliver(Message message) {
+        // A dealer step's events, in the order they happened
+        if(message instanceof Batch) {
+            for(Message msg: ((Batch) message).getMessages())
+                deliver(msg);
+            
+            return;
+        }
+        
         if(message instanceof Outcome)
             got((Outcome) message);
         
@@ -130,6 +224,12 @@ public class Courier extends Actor implements Listener {
         else if(message instanceof Shuffle)
             got((Shuffle)message);
         
+        else if(message instanceof Snapshot)
+            got((Snapshot)message);
+        
+        else if(message instanceof Status)
+            got((Status)message);
+        
         else
             LOG.error("dropping inbound message = "+message.getClass().getSimpleName());
         
@@ -192,6 +292,13 @@ public class Courier extends Actor implements Listener {
         send(new SplitRequest(hid));
     }
     
+    /**
+     * Sends the logout to give up our seat at the table.
+     */
+    public void logout() {
+        send(new Logout());
+    }
+    
     /**
      * Receives a split notification from the dealer with the new HID
      * @param split Response to split request
@@ -299,6 +406,37 @@ public class Courier extends Actor implements Listener {
         ui.shuffling();
     }
     
+    /**
+     * Receives the table as it stands after resuming and replays it to the
+     * user interface as a game start, the deals so far and the turn.
+     * @param snapshot Snapshot
+     */
+    public void got(Snapshot snapshot) {
+        LOG.info("received snapshot hands = "+snapshot.getHids().size()+" turn = "+snapshot.getTurn());
+        
+        if(snapshot.getHids().isEmpty())
+            return;
+        
+        ui.starting(snapshot.getHids(), snapshot.getShoeSize());
+        
+        for(Deal deal: snapshot.getDeals())
+            got(deal);
+        
+        if(snapshot.getTurn() != null)
+            ui.turn(snapshot.getTurn());
+    }
+    
+    /**
+     * Receives the house's status in place of ready when the house is full
+     * and there will be no game.
+     * @param status House's status
+     */
+    public void got(Status status) {
+        LOG.error("turned away by a full house: seated = "+status.getSeated()+" waiting = "+status.getWaiting());
+        
+        stop();
+    }
+    
     /**
      * Sets my address.
      * @param mine My address
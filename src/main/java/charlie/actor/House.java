@@ -24,22 +24,37 @@ package charlie.actor;
 
 import charlie.actor.last.Listener;
 import charlie.actor.last.Actor;
+import charlie.actor.last.Transport;
+import charlie.actor.last.TransportFactory;
 import charlie.card.Hid;
 import charlie.dealer.Dealer;
+import charlie.dealer.Table;
 import charlie.message.Message;
+import charlie.message.Status;
+import charlie.message.codec.CodecFactory;
 import charlie.plugin.IPlayer;
+import charlie.plugin.Plugin;
+import charlie.plugin.PluginRegistry;
 import charlie.message.view.from.Arrival;
+import charlie.message.view.from.Resume;
+import charlie.metrics.Counter;
+import charlie.metrics.Histogram;
+import charlie.metrics.Metrics;
+import charlie.server.AccountStore;
 import charlie.server.GameServer;
+import charlie.server.Ledger;
 import charlie.server.Ticket;
 
-import java.lang.reflect.Constructor;
 import java.net.InetAddress;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 import charlie.util.Constant;
+import charlie.util.Helper;
 import org.apache.log4j.Logger;
 
 /**
@@ -48,11 +63,28 @@ import org.apache.log4j.Logger;
  */
 public class House extends Actor implements Listener {
     private final Logger LOG = Logger.getLogger(House.class);
+    
+    protected final static Counter ARRIVALS = Metrics.counter("house.arrivals");
+    protected final static Histogram ARRIVING = Metrics.histogram("house.arrival");
+    protected final static Counter SETTLEMENTS = Metrics.counter("house.settlements");
+    protected final static Histogram SETTLING = Metrics.histogram("house.settle");
     private final String PLAYER_ACTOR = "PLAYER-";
     protected List<RealPlayer> players = new ArrayList<>();
     private Integer nextPlayerId = 0;
     private final GameServer server;
-    protected HashMap<IPlayer,Ticket> accounts = new HashMap<>();
+    protected final ConcurrentHashMap<IPlayer,Ticket> accounts = new ConcurrentHashMap<>();
+    protected final Ledger ledger = new Ledger();
+    protected final List<Table> tables = new ArrayList<>();
+    protected final ArrayDeque<RealPlayer> waiting = new ArrayDeque<>();
+    protected final int maxTables = Helper.getPropertyOrElse(Constant.HOUSE_TABLES, Integer.MAX_VALUE);
+    protected final int seats = Helper.getPropertyOrElse(Constant.HOUSE_SEATS, 1);
+    protected final int maxWaiting = Helper.getPropertyOrElse(Constant.HOUSE_QUEUE, Integer.MAX_VALUE);
+    
+    // Players by ticket number so a courier which drops can come back
+    protected final ConcurrentHashMap<Long,RealPlayer> sessions = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<RealPlayer,TimerTask> graces = new ConcurrentHashMap<>();
+    protected final int grace = Helper.getPropertyOrElse(Constant.HOUSE_GRACE, 30000);
+    protected final Timer graceTimer = new Timer("house-grace", true);
 
     /**
      * Constructor
@@ -83,16 +115,24 @@ public class House extends Actor implements Listener {
             return;
         }
         
+        long start = System.nanoTime();
+        
         onReceive((Arrival)msg);
+        
+        ARRIVALS.inc();
+        ARRIVING.since(start);
     }
     
     /**
      * Receives an arrival by a client.
      * At login the user gets a ticket from the server which the
      * house uses to validate. If the ticket is valid, the house
-     * allocates a dealer and spawns a real player to service the interface
-     * between the dealer and a "real" player. The dealer then waits for contact
-     * via a bet message through real player.
+     * spawns a real player to service the interface between a dealer and
+     * a "real" player and seats it at a table from the pool. If every table
+     * is full, the player waits in line for a seat, unless the line is full
+     * too, in which case the courier gets the house's status in place of
+     * ready and the player is stopped. Once seated, the dealer
+     * waits for contact via a bet message through real player.
      * @param arrival Arrival message
      */
     public void onReceive(Arrival arrival) {
@@ -105,73 +145,313 @@ public class House extends Actor implements Listener {
 
         LOG.info("validated ticket = " + ticket);
         
+        // Our copy of the ticket has the account and bankroll we issued
+        Ticket issued = server.getTickets().get(ticket.getNumber());
+        if(issued != null)
+            ticket = issued;
+        
         // Build address to courier to which real player is connected.
         InetAddress addr = arrival.getSource();
         LOG.info("arrival from " + addr);
 
         String courier = addr.getHostAddress() + ":" + arrival.getPort();
         
-        // Get a dealer for this player
-        // Note: if we were allocating dealers from a pool, this is the place
-        // to implement that logic. For now we'll just spawn dealers without
-        // restriction.
-//        Dealer dealer = new Dealer(this);
-        Dealer dealer = loadDealer();
-
+        // Back from a dropped connection: pick up where the player left off
+        if(arrival instanceof Resume && resume(ticket, courier, arrival))
+            return;
+        
         // Spawn a "real player" sandwiched between dealer and courier.
-        RealPlayer player = new RealPlayer(dealer, courier);
+        RealPlayer player = new RealPlayer(this, courier);
         player.setListener(player);
+        player.setPersistent(arrival.isPersistent());
+        player.setCodec(CodecFactory.getInstance(arrival.getCodec()));
         
-        player.start();
+        // Framed couriers can share the transport, if there is one.
+        Transport transport = arrival.isPersistent() ? TransportFactory.getInstance() : null;
+        if(transport != null)
+            player.attach(transport, ticket.getNumber());
+        
+        boolean full;
+        
+        synchronized (this) {
+            full = waiting.size() >= maxWaiting && !hasSeat();
+            
+            if(!full) {
+                // Put this player in the repository of player accounts.
+                accounts.put(player, ticket);
+                sessions.put(ticket.getNumber(), player);
+                ledger.open(ticket.getNumber(), ticket.getBankroll());
 
-        // Put this player in the repository of player accounts.
-        accounts.put(player, ticket);
+                nextPlayerId++;
 
-        synchronized (this) {
-            nextPlayerId++;
+                players.add(player);
+            }
+        }
+        
+        // Tell the courier rather than leave it waiting for ready
+        if(full) {
+            LOG.error("house full, turning away ticket = "+ticket);
+            
+            player.refuse(status());
+            return;
+        }
+        
+        player.start();
 
-            players.add(player);
+        seat(player);
+    }
+    
+    /**
+     * Drops a ticket the lobby placed here before sending its player to
+     * another node, unless the player already arrived with it.
+     * @param ticket Ticket
+     */
+    public void release(Ticket ticket) {
+        if(ticket == null || sessions.containsKey(ticket.getNumber())) {
+            LOG.info("keeping ticket = "+ticket);
+            return;
+        }
+        
+        server.getTickets().remove(ticket);
+        
+        LOG.info("released ticket = "+ticket);
+    }
+    
+    /**
+     * Reconnects a player whose courier came back and sends it a snapshot
+     * of its table.
+     * @param ticket Ticket
+     * @param courier Courier address + port
+     * @param arrival Resume message with the courier's channel preferences
+     * @return True if the player was still here, false otherwise
+     */
+    protected boolean resume(Ticket ticket, String courier, Arrival arrival) {
+        RealPlayer player = sessions.get(ticket.getNumber());
+        
+        if(player == null || !accounts.containsKey(player)) {
+            LOG.info("nothing to resume for ticket = "+ticket);
+            return false;
+        }
+        
+        TimerTask task = graces.remove(player);
+        if(task != null)
+            task.cancel();
+        
+        player.reconnect(courier, arrival.isPersistent(), CodecFactory.getInstance(arrival.getCodec()));
+        
+        Dealer dealer = dealerOf(player);
+        
+        if(dealer == null)
+            player.resume(null);
+        else {
+            // Nothing happens at the table between the snapshot and sending it
+            synchronized(dealer) {
+                player.resume(dealer.snapshot());
+            }
+        }
+        
+        LOG.info("resumed "+player+" at "+courier);
+        
+        return true;
+    }
+    
+    /**
+     * Holds a player's seat for the grace period after its courier drops.
+     * If the courier doesn't come back in time, the player is logged out and
+     * the dealer stands its hands.
+     * @param player Player
+     */
+    public void disconnected(RealPlayer player) {
+        Ticket ticket = accounts.get(player);
+        
+        // Gone or logged out and waiting for its hands to settle
+        if(ticket == null || sessions.get(ticket.getNumber()) != player)
+            return;
+        
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run() {
+                if(graces.remove(player, this)) {
+                    LOG.info("grace expired for "+player);
+                    logout(player);
+                }
+            }
+        };
+        
+        if(graces.putIfAbsent(player, task) != null)
+            return;
+        
+        LOG.info("lost "+player+" holding seat for "+grace+" ms");
+        
+        graceTimer.schedule(task, grace);
+    }
+    
+    /**
+     * Gets the dealer at a player's table.
+     * @param player Player
+     * @return Dealer or null if the player isn't seated
+     */
+    protected synchronized Dealer dealerOf(RealPlayer player) {
+        for(Table table: tables)
+            if(table.isSeated(player))
+                return table.getDealer();
+        
+        return null;
+    }
+    
+    /**
+     * Seats a player at a table from the pool, opening a table if there is
+     * room for one, otherwise puts the player in line.
+     * @param player Player
+     */
+    protected void seat(RealPlayer player) {
+        Table table = null;
+        
+        synchronized (this) {
+            for(Table t: tables) {
+                if(!t.isFull()) {
+                    table = t;
+                    break;
+                }
+            }
+            
+            if(table == null && tables.size() < maxTables) {
+                Dealer dealer = loadDealer();
+                
+                if(dealer != null) {
+                    table = new Table(tables.size(), dealer, seats);
+                    tables.add(table);
+                    LOG.info("opened "+table);
+                }
+            }
+            
+            if(table == null) {
+                waiting.add(player);
+                LOG.info("no seat for "+player+" waiting = "+waiting.size());
+                return;
+            }
+            
+            table.sit(player);
+            player.setDealer(table.getDealer());
+            LOG.info("seated "+player+" at "+table);
         }
 
         // Inform courier that login is complete and we're ready to play
         player.ready();
     }
+    
+    /**
+     * Tests if a table has a free seat or one can be opened.
+     * @return True if a player could be seated now
+     */
+    protected synchronized boolean hasSeat() {
+        if(tables.size() < maxTables)
+            return true;
+        
+        for(Table table: tables)
+            if(!table.isFull())
+                return true;
+        
+        return false;
+    }
+    
+    /**
+     * Gets the house's load for a lobby placing players across servers.
+     * @return Status
+     */
+    public synchronized Status status() {
+        int active = 0;
+        int seated = 0;
+        
+        for(Table table: tables) {
+            if(table.size() > 0)
+                active++;
+            
+            seated += table.size();
+        }
+        
+        return new Status(tables.size(), active, seated, waiting.size());
+    }
+    
+    /**
+     * Logs out a player, freeing its seat for the next player in line.
+     * @param player Player
+     */
+    public void logout(RealPlayer player) {
+        RealPlayer next = null;
+        Dealer dealer = null;
+        
+        synchronized (this) {
+            // The account stays open until the player's hands are settled
+            Ticket ticket = accounts.get(player);
+            
+            if(ticket != null)
+                sessions.remove(ticket.getNumber(), player);
+            
+            TimerTask task = graces.remove(player);
+            if(task != null)
+                task.cancel();
+            
+            players.remove(player);
+            
+            if(waiting.remove(player)) {
+                LOG.info("removed waiting player "+player);
+            }
+            else {
+                for(Table table: tables) {
+                    if(table.leave(player)) {
+                        LOG.info("unseated "+player+" from "+table);
+                        dealer = table.getDealer();
+                        next = waiting.poll();
+                        break;
+                    }
+                }
+            }
+        }
+        
+        // Outside the house lock since the dealer may finish the hand
+        if(dealer != null)
+            dealer.leave(player, () -> close(player));
+        else
+            close(player);
+        
+        player.stop();
+        
+        // The dealer stays warm for whoever was next in line
+        if(next != null)
+            seat(next);
+    }
+
+    /**
+     * Closes a player's account once it has nothing left in play.
+     * @param player Player
+     */
+    protected void close(RealPlayer player) {
+        Ticket ticket = accounts.remove(player);
+        
+        // The ticket leaves with what the player has left
+        if(ticket != null)
+            ticket.setBankroll(ledger.close(ticket.getNumber()));
+    }
 
     /**
      * Loads a dealer.
      * @return Class of dealer type.
      */
     protected Dealer loadDealer() {
-        String className = System.getProperty(Constant.PLUGIN_DEALER);
-        if(className == null) {
+        // Resolved at startup with its House constructor
+        Plugin<Dealer> plugin = PluginRegistry.getInstance().get(Constant.PLUGIN_DEALER, Dealer.class);
+        if(plugin == null) {
             LOG.info("no dealer plugin configured using default: "+Dealer.class.getName());
             return new Dealer(this);
         }
 
-        try {
-            // Should be a Dealer-type class...
-            Class clazz = Class.forName(className);
-
-            // Dealer constructor must have this signature...
-            Class<?>[] parameterTypes = {House.class};
-
-            Constructor<?>[] constructors = clazz.getConstructors();
-
-            // Inspect the configured dealer for the constructor
-            for(Constructor<?> constructor: constructors) {
-                if(Arrays.equals(parameterTypes,constructor.getParameterTypes())) {
-                    Dealer dealer = (Dealer) constructor.newInstance(this);
-                    LOG.info("loaded dealer plugin: "+className);
-                    return dealer;
-                }
-            }
-        }
-        catch(Exception e) {
-            LOG.error("failed to load dealer plugin "+className+": "+e);
-            e.printStackTrace();
-        }
+        Dealer dealer = plugin.newInstance(this);
+        
+        if(dealer != null)
+            LOG.info("loaded dealer plugin: "+plugin.getType().getName());
 
-        return null;
+        return dealer;
     }
     
     /**
@@ -180,14 +460,7 @@ public class House extends Actor implements Listener {
      * @return True if the ticket is valid, false otherwise.
      */
     protected boolean valid(Ticket ticket) {
-        List<Ticket> logins = server.getTickets();
-        
-        for(int i=0; i < logins.size(); i++) {
-            if(logins.get(i).equals(ticket))
-                return true;
-        }
-        
-        return false;
+        return server.getTickets().validate(ticket);
     }
     /**
      * Updates the bankroll.
@@ -195,14 +468,29 @@ public class House extends Actor implements Listener {
      * @param player the player
      */
     public void updateBankroll(IPlayer player,Hid hid) {
-        if(player == null || !accounts.containsKey(player))
+        Ticket ticket = player == null ? null : accounts.get(player);
+        
+        if(ticket == null)
             return;
         
-        Ticket ticket = accounts.get(player);
+        long start = System.nanoTime();
         
-        Double bankroll = ticket.getBankroll() + hid.getAmt() + hid.getSideAmt();
+        try {
+            long cents = ledger.postCents(ticket.getNumber(), Ledger.toCents(hid.getAmt() + hid.getSideAmt()));
+            
+            // Made durable off the dealer's thread
+            AccountStore store = server.getAccounts();
+            
+            if(store != null && ticket.getAccount() != 0)
+                store.post(ticket.getAccount(), cents);
+        }
+        catch(IllegalStateException ex) {
+            // Player logged out while the hand was settling
+            LOG.error("bankroll not updated: "+ex.getMessage());
+        }
         
-        ticket.setBankroll(bankroll);
+        SETTLEMENTS.inc();
+        SETTLING.since(start);
     }
     
     /**
@@ -211,9 +499,19 @@ public class House extends Actor implements Listener {
      * @return Dollar amount of bankroll
      */
     public Double getBankroll(IPlayer player) {
-        if(player == null || !accounts.containsKey(player))
+        Ticket ticket = player == null ? null : accounts.get(player);
+        
+        if(ticket == null)
             return 0.0;
         
-        return accounts.get(player).getBankroll();
+        return ledger.getBalance(ticket.getNumber());
+    }
+    
+    /**
+     * Gets the ledger of player balances.
+     * @return Ledger
+     */
+    public Ledger getLedger() {
+        return ledger;
     }
 }
@@ -24,6 +24,8 @@ package charlie.actor;
 
 import charlie.actor.last.Listener;
 import charlie.actor.last.Actor;
+import charlie.actor.last.Outbox;
+import charlie.actor.last.Transport;
 import charlie.card.Card;
 import charlie.message.view.from.Bet;
 import charlie.message.view.from.Hit;
@@ -31,11 +33,15 @@ import charlie.card.Hid;
 import charlie.dealer.Dealer;
 import charlie.card.Hand;
 import charlie.message.Message;
+import charlie.message.Status;
+import charlie.message.codec.Codec;
 import charlie.plugin.IPlayer;
 import charlie.message.view.from.DoubleDown;
+import charlie.message.view.from.Logout;
 import charlie.message.view.from.Request;
 import charlie.message.view.from.SplitRequest;
 import charlie.message.view.from.Stay;
+import charlie.message.view.to.Batch;
 import charlie.message.view.to.Blackjack;
 import charlie.message.view.to.Bust;
 import charlie.message.view.to.Charlie;
@@ -47,10 +53,12 @@ import charlie.message.view.to.Play;
 import charlie.message.view.to.Push;
 import charlie.message.view.to.GameStart;
 import charlie.message.view.to.Shuffle;
+import charlie.message.view.to.Snapshot;
 import charlie.message.view.to.SplitResponse;
 import charlie.message.view.to.Win;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 
@@ -61,7 +69,16 @@ import java.util.logging.Level;
 public class RealPlayer extends Actor implements Listener, IPlayer {
     protected InetAddress myAddress;
     protected Dealer dealer;
+    protected House house;
     protected Hand playing;
+    protected Transport transport = null;
+    
+    // Events of the dealer step in progress, sent as one batch at the end
+    protected final List<Message> pending = new ArrayList<>();
+    protected int depth = 0;
+    
+    // Sends go out on their own writer so a slow client can't stall the table
+    protected final Outbox outbox = new Outbox(this::write, this::overflow);
 
     /**
      * Constructor
@@ -78,6 +95,220 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
         }
     }
     
+    /**
+     * Constructor for a player the house seats at a pooled table.
+     * @param house House which handles logout
+     * @param courier Courier address + port
+     */
+    public RealPlayer(House house, String courier) {
+        this((Dealer) null, courier);
+        this.house = house;
+    }
+    
+    /**
+     * Sets the dealer once the player has a seat.
+     * @param dealer Dealer
+     */
+    public void setDealer(Dealer dealer) {
+        this.dealer = dealer;
+    }
+    
+    /**
+     * Attaches the player to a shared transport instead of its own port.
+     * @param transport Transport
+     * @param session Session id
+     */
+    public void attach(Transport transport, long session) {
+        this.transport = transport;
+        this.session = session;
+    }
+    
+    /**
+     * Starts receiving, either on our own port or as a session on the transport.
+     */
+    @Override
+    public void start() {
+        if(transport == null) {
+            super.start();
+            return;
+        }
+        
+        transport.register(session, remoteHost, codec, this);
+    }
+    
+    /**
+     * Stops the player, leaving the transport if it's attached to one.
+     */
+    @Override
+    public void stop() {
+        outbox.close();
+        
+        info("outbox "+outbox);
+        
+        if(transport != null)
+            transport.unregister(session);
+        
+        super.stop();
+    }
+    
+    /**
+     * Sends a message to the courier.
+     * @param msg Message
+     */
+    @Override
+    public void send(Message msg) {
+        synchronized(pending) {
+            if(depth > 0) {
+                pending.add(msg);
+                return;
+            }
+        }
+        
+        flush(msg);
+    }
+    
+    /**
+     * Starts collecting events of a dealer step.
+     */
+    @Override
+    public void startBatch() {
+        synchronized(pending) {
+            depth++;
+        }
+    }
+    
+    /**
+     * Sends the events of a dealer step, together if there's more than one.
+     */
+    @Override
+    public void endBatch() {
+        Message msg;
+        
+        synchronized(pending) {
+            if(depth == 0 || --depth > 0 || pending.isEmpty())
+                return;
+            
+            if(pending.size() == 1)
+                msg = pending.get(0);
+            else
+                msg = new Batch(new ArrayList<>(pending));
+            
+            pending.clear();
+        }
+        
+        flush(msg);
+    }
+    
+    /**
+     * Queues a message for the courier.
+     * @param msg Message
+     */
+    protected void flush(Message msg) {
+        outbox.offer(msg);
+    }
+    
+    /**
+     * Writes a message to the courier, on the outbox's writer.
+     * @param msg Message
+     */
+    protected void write(Message msg) {
+        if(transport == null) {
+            super.send(msg);
+            return;
+        }
+        
+        sequence(msg);
+        
+        if(!transport.send(session, msg))
+            error("failed to send "+msg.getClass().getSimpleName()+" to "+remoteHost);
+    }
+    
+    /**
+     * Comes here when the courier can't be reached. The house holds the
+     * seat for a while in case the courier comes back.
+     */
+    @Override
+    public void disconnected() {
+        if(house != null)
+            house.disconnected(this);
+    }
+    
+    /**
+     * Points the player at a courier which came back, possibly from a new
+     * address, dropping the old connection.
+     * @param courier Courier address + port
+     * @param persistent True if the courier wants a persistent channel
+     * @param codec Codec the courier wants frames encoded with
+     */
+    public void reconnect(String courier, boolean persistent, Codec codec) {
+        synchronized(channelLock) {
+            if(channel != null)
+                channel.close();
+            
+            channel = null;
+            
+            setRemoteHost(courier);
+            setPersistent(persistent);
+            setCodec(codec);
+        }
+        
+        if(transport != null) {
+            transport.unregister(session);
+            transport.register(session, remoteHost, codec, this);
+        }
+    }
+    
+    /**
+     * Brings a courier which came back up to date. The caller holds the
+     * dealer's lock so no table events come between the snapshot and the
+     * live events after it.
+     * @param snapshot Table snapshot or null if not seated
+     */
+    public void resume(Snapshot snapshot) {
+        // Even with no table, the courier starts counting from the snapshot
+        if(snapshot == null)
+            snapshot = new Snapshot(new ArrayList<>(), new ArrayList<>(), null, 0);
+        
+        flush(snapshot);
+        
+        flush(new Ready(myAddress));
+    }
+    
+    /**
+     * Turns the courier away with the house's status in place of ready and
+     * stops the player. The status is written right away, since the player
+     * never started and has nothing else queued.
+     * @param status House's status
+     */
+    public void refuse(Status status) {
+        if(transport != null)
+            transport.register(session, remoteHost, codec, this);
+        
+        write(status);
+        
+        stop();
+    }
+    
+    /**
+     * Gives up on a client which can't keep up, freeing its seat.
+     */
+    protected void overflow() {
+        error("dropping slow client "+remoteHost+" outbox "+outbox);
+        
+        if(house != null)
+            house.logout(this);
+        else
+            stop();
+    }
+    
+    /**
+     * Gets the outbound queue.
+     * @return Outbox
+     */
+    public Outbox getOutbox() {
+        return outbox;
+    }
+    
     /**
      * Sends ready to the courier to let remote host know we're connected.
      */
@@ -106,6 +337,11 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
         else if (msg instanceof Bet) {
             onReceive((Bet) msg);
         }
+        
+        else if (msg instanceof Logout) {
+            onReceive((Logout) msg);
+        }
+        
         else
             error("dropped message: "+msg.getClass().getSimpleName());
     }
@@ -120,6 +356,17 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
         dealer.bet(this, bet.getHid());
     }
     
+    /**
+     * Receives a logout from the courier which gives up the seat.
+     * @param logout Logout
+     */
+    public void onReceive(Logout logout) {
+        info("received logout");
+        
+        if(house != null)
+            house.logout(this);
+    }
+    
     /**
      * Receives a request from the courier.
      * @param request Request
@@ -168,7 +415,7 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     @Override
     public void bust(Hid hid) {
 //        courier.send(new Bust(hid));
-        send(new Bust(hid));
+        send(new Bust(new Hid(hid)));
     }
     
     /**
@@ -178,7 +425,7 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     @Override
     public void win(Hid hid) {
 //        courier.send(new Win(hid));
-        send(new Win(hid));
+        send(new Win(new Hid(hid)));
     }
     
     /**
@@ -188,7 +435,7 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     @Override
     public void lose(Hid hid) {
 //        courier.send(new Loose(hid));
-        send(new Lose(hid));
+        send(new Lose(new Hid(hid)));
     }
     
     /**
@@ -198,7 +445,7 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     @Override
     public void push(Hid hid) {
 //        courier.send(new Push(hid));
-        send(new Push(hid));
+        send(new Push(new Hid(hid)));
     }
 
     /**
@@ -207,7 +454,12 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
      */
     @Override
     public void startGame(List<Hid> hids,int shoeSize) {
-        send(new GameStart(hids,shoeSize));
+        List<Hid> copies = new ArrayList<>(hids.size());
+        
+        for(Hid hid: hids)
+            copies.add(new Hid(hid));
+        
+        send(new GameStart(copies,shoeSize));
     }
 
     /**
@@ -235,7 +487,7 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     @Override
     public void play(Hid hid) {
 //        courier.send(new Play(hid));
-        send(new Play(hid));
+        send(new Play(new Hid(hid)));
     }
 
     /**
@@ -246,7 +498,8 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
      */
     @Override
     public void deal(Hid hid, Card card, int[] values) {
-        Deal deal = new Deal(hid,values,card);
+        // The dealer keeps changing its copies and reuses them next game
+        Deal deal = new Deal(new Hid(hid),values.clone(),card);
         
 //        courier.send(deal);
         send(deal);
@@ -259,7 +512,7 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     @Override
     public void blackjack(Hid hid) {
 //        courier.send(new Blackjack(hid) );
-        send(new Blackjack(hid) );
+        send(new Blackjack(new Hid(hid)) );
     }
     
     /**
@@ -269,7 +522,7 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     @Override
     public void charlie(Hid hid) {
 //        courier.send(new Charlie(hid) );
-        send(new Charlie(hid) );
+        send(new Charlie(new Hid(hid)) );
     }
     
     /**
@@ -280,7 +533,7 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     @Override
     public void split(Hid newHid, Hid hid){
 //        courier.send(new SplitToView(newHid, hid));
-        send(new SplitResponse(newHid, hid));
+        send(new SplitResponse(new Hid(newHid), new Hid(hid)));
     }
     
     /**
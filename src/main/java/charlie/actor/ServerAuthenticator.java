@@ -23,10 +23,15 @@
 package charlie.actor;
 
 import charlie.actor.last.Authenticator;
+import charlie.actor.last.Responder;
 import charlie.message.Message;
 import charlie.message.view.from.Login;
+import charlie.message.view.to.LoginResponse;
+import charlie.server.AccountStore;
 import charlie.server.GameServer;
-import static charlie.util.Helper.sleep;
+import charlie.server.Ticket;
+import charlie.util.Constant;
+import charlie.util.Helper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -34,16 +39,40 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.log4j.Logger;
 
 /**
- *
+ * This class implements the server-side login.
+ * One listener accepts logins for the life of the server and hands each
+ * to a pool of "charlie.server.login.workers" threads which authenticate
+ * them concurrently. Subclasses plug in their own credential check by
+ * overriding validate; "charlie.server.authenticator" names such a
+ * subclass to use instead of this one. On a single server endpoint, the
+ * transport hands logins to respond instead.
  * @author Ron.Coleman
  */
-public class ServerAuthenticator extends Authenticator {
+public class ServerAuthenticator extends Authenticator implements Responder {
     protected final Logger LOG = Logger.getLogger(ServerAuthenticator.class);
     
     private final GameServer server;
+    protected final int workers = Helper.getPropertyOrElse(Constant.LOGIN_WORKERS, 8);
+    protected final int backlog = Helper.getPropertyOrElse(Constant.LOGIN_BACKLOG, 1024);
+    protected final int readTimeout = Helper.getPropertyOrElse(Constant.LOGIN_TIMEOUT, 5000);
+    protected ExecutorService pool;
+    
+    // Login stats
+    protected final LongAdder succeeded = new LongAdder();
+    protected final LongAdder failed = new LongAdder();
+    protected final LongAdder latency = new LongAdder();
+    protected final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    protected final AtomicLong started = new AtomicLong();
     
     public ServerAuthenticator(GameServer server) {
         this.server = server;
@@ -59,16 +88,53 @@ public class ServerAuthenticator extends Authenticator {
     }
     
     /**
-     * 
+     * Accepts logins until the listener is stopped.
      */
     @Override
     public void receive() {
-        try {           
-            int loginPort = Integer.parseInt(myHost.split(":")[1]);
+        int loginPort = Integer.parseInt(myHost.split(":")[1]);
+        
+        final AtomicInteger count = new AtomicInteger();
+        
+        pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "login-"+count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        started.set(System.nanoTime());
+        
+        try {
+            serverSocket = new ServerSocket(loginPort, backlog);
             
-            serverSocket = new ServerSocket(loginPort);
+            LOG.info("accepting logins on port "+loginPort+" workers = "+workers);
             
-            Socket clientSocket = serverSocket.accept();
+            while(true) {
+                Socket clientSocket = serverSocket.accept();
+                
+                long accepted = System.nanoTime();
+                
+                pool.execute(() -> authenticate(clientSocket, accepted));
+            }
+        } catch (IOException ex) {
+            if(serverSocket == null || !serverSocket.isClosed())
+                error("exception caught "+ex);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Authenticates one login and replies with a ticket if it's good.
+     * @param clientSocket Client socket
+     * @param accepted When the login was accepted in nanoseconds
+     */
+    protected void authenticate(Socket clientSocket, long accepted) {
+        Ticket ticket = null;
+        
+        try (clientSocket) {
+            clientSocket.setSoTimeout(readTimeout);
             
             InputStream is = clientSocket.getInputStream();
             
@@ -77,13 +143,9 @@ public class ServerAuthenticator extends Authenticator {
             Login login = (Login) ois.readObject();
             LOG.info("got login");
             
-            this.ticket = validate(login);
+            ticket = issue(login);
             
-            if (ticket != null) {               
-                LOG.info("validated ticket " + ticket + " login successful!");
-                
-                server.getTickets().add(ticket);
-                
+            if (ticket != null) {
                 OutputStream os = clientSocket.getOutputStream();
                 
                 ObjectOutputStream oos = new ObjectOutputStream(os);
@@ -92,14 +154,144 @@ public class ServerAuthenticator extends Authenticator {
                 
                 oos.flush();
                 info("sent ticket to client");
-                
-                clientSocket.close();
-                serverSocket.close();
-                
-                sleep(250);                
             }
-        } catch (IOException | ClassNotFoundException ex) {
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
             error("exception caught "+ex);
+            ticket = null;
+        }
+        
+        count(ticket, accepted);
+    }
+    
+    /**
+     * Answers a login which arrived on the server's single endpoint.
+     * @param msg Login
+     * @return Login response with the ticket, if the login is good
+     */
+    @Override
+    public Message respond(Message msg) {
+        long start = System.nanoTime();
+        
+        Ticket ticket = issue((Login) msg);
+        
+        count(ticket, start);
+        
+        return new LoginResponse(ticket);
+    }
+    
+    /**
+     * Validates a login and registers the ticket, if it's good.
+     * @param login Login
+     * @return Ticket or null if the login fails
+     */
+    protected Ticket issue(Login login) {
+        Ticket ticket = validate(login);
+        
+        if(ticket == null) {
+            LOG.error("client authentication failed");
+            return null;
+        }
+        
+        LOG.info("validated ticket " + ticket + " login successful!");
+        
+        // The bankroll is whatever the player left with last time
+        AccountStore store = server.getAccounts();
+        
+        if(store != null) {
+            long account = AccountStore.idOf(login.getLogname());
+            
+            ticket.setAccount(account);
+            ticket.setBankroll(store.getBalance(account, ticket.getBankroll()));
         }
+        
+        server.getTickets().add(ticket);
+        
+        return ticket;
+    }
+    
+    /**
+     * Counts a login in the stats.
+     * @param ticket Ticket or null if the login failed
+     * @param start When the login started in nanoseconds
+     */
+    protected void count(Ticket ticket, long start) {
+        long nanos = System.nanoTime() - start;
+        
+        latency.add(nanos);
+        maxLatency.accumulate(nanos);
+        
+        if(ticket != null)
+            succeeded.increment();
+        else
+            failed.increment();
+        
+        long n = succeeded.sum() + failed.sum();
+        if(n % 1000 == 0)
+            LOG.info("login stats: "+this);
+    }
+    
+    /**
+     * Stops accepting logins.
+     */
+    @Override
+    public void stop() {
+        super.stop();
+        
+        if(pool != null)
+            pool.shutdown();
+    }
+    
+    /**
+     * Gets the number of successful logins.
+     * @return Count
+     */
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+    
+    /**
+     * Gets the number of failed logins.
+     * @return Count
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+    
+    /**
+     * Gets the mean time from accepting a login to answering it.
+     * @return Milliseconds
+     */
+    public double getMeanLatency() {
+        long n = succeeded.sum() + failed.sum();
+        
+        return n == 0 ? 0 : latency.sum() / 1e6 / n;
+    }
+    
+    /**
+     * Gets the longest time from accepting a login to answering it.
+     * @return Milliseconds
+     */
+    public double getMaxLatency() {
+        return maxLatency.get() / 1e6;
+    }
+    
+    /**
+     * Gets the logins answered per second since the listener started.
+     * @return Logins per second
+     */
+    public double getThroughput() {
+        double secs = (System.nanoTime() - started.get()) / 1e9;
+        
+        return secs <= 0 ? 0 : (succeeded.sum() + failed.sum()) / secs;
+    }
+    
+    /**
+     * Converts the stats to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return String.format("ok = %d failed = %d mean = %.2f ms max = %.2f ms rate = %.1f/s",
+                getSucceeded(), getFailed(), getMeanLatency(), getMaxLatency(), getThroughput());
     }
 }
@@ -22,30 +22,48 @@
  */
 package charlie.actor.last;
 
+import charlie.message.Hello;
 import charlie.message.Message;
+import charlie.message.codec.Codec;
+import charlie.message.codec.SerialCodec;
+import charlie.metrics.Histogram;
+import charlie.metrics.Metrics;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.net.BindException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.log4j.Logger;
 
 /**
  * Models a simple actor with non-buffered, full duplex capability.
+ * By default every message goes over its own connection. In persistent mode,
+ * the actor instead keeps one long-lived {@link Channel} to its peer and
+ * exchanges length-prefixed frames over it in both directions. Inbound
+ * connections are detected as either kind, so persistent actors still
+ * receive from old, connection-per-message peers.
  * @author Ron.Coleman
  */
 abstract public class Actor implements Runnable {
     private final Logger LOG = Logger.getLogger(Actor.class);
     
+    /** Time to send and to handle each type of message */
+    protected final static ClassValue<Histogram> SENDS = Metrics.byType("actor.send.");
+    protected final static ClassValue<Histogram> RECEIVES = Metrics.byType("actor.receive.");
+    
     /** Callback on message arrival */
     protected Listener listener;
     
     /** Server socket for receiving inbound messages */
-    protected ServerSocket serverSocket;
+    protected volatile ServerSocket serverSocket;
     
     /** This host when actor runs */
     protected final String myHost;
@@ -53,6 +71,27 @@ abstract public class Actor implements Runnable {
     /** Remote host where message are sent to */
     protected String remoteHost;
     
+    /** If true, send over a persistent channel instead of socket-per-message */
+    protected boolean persistent = false;
+    
+    /** Codec for frames we send in persistent mode */
+    protected Codec codec = new SerialCodec();
+    
+    /** Current session channel in persistent mode */
+    protected volatile Channel channel;
+    
+    /** Session id the peer gave us, zero if none, so reconnects can be routed */
+    protected volatile long session = 0;
+    
+    /** Guards (re)connecting the channel */
+    protected final Object channelLock = new Object();
+    
+    /** Sequence numbers for messages we send so the peer can check order */
+    protected final AtomicLong sequence = new AtomicLong();
+    
+    /** Number of times to try (re)connecting before giving up on a message */
+    protected final int retries = Helper.getPropertyOrElse(Constant.ACTOR_RETRIES, 3);
+    
     /**
      * Constructor for full-duplex actors
      * @param myHost My host in "address:port" form.
@@ -76,7 +115,27 @@ abstract public class Actor implements Runnable {
      * result in "connection refused" exceptions.
      */
     public void start() {
-        new Thread(this).start();
+        ExecutorFactory.getInstance().execute(this);
+    }
+    
+    /**
+     * Stops the actor: no more messages are received and the session
+     * channel, if any, is closed.
+     */
+    public void stop() {
+        try {
+            if(serverSocket != null)
+                serverSocket.close();
+        } catch (IOException ex) {
+            error(ex+"");
+        }
+        
+        synchronized(channelLock) {
+            if(channel != null)
+                channel.close();
+            
+            channel = null;
+        }
     }
     
     /**
@@ -103,6 +162,38 @@ abstract public class Actor implements Runnable {
         this.remoteHost = remoteHost;
     }
     
+    /**
+     * Sets persistent mode.
+     * @param persistent True to send over a persistent channel
+     */
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+    
+    /**
+     * Tests if the actor sends over a persistent channel.
+     * @return True if persistent, false otherwise
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+    
+    /**
+     * Sets the codec for frames sent in persistent mode.
+     * @param codec Codec
+     */
+    public void setCodec(Codec codec) {
+        this.codec = codec;
+    }
+    
+    /**
+     * Gets the codec for frames sent in persistent mode.
+     * @return Codec
+     */
+    public Codec getCodec() {
+        return codec;
+    }
+    
     public InetAddress getMyAddress() {
         try {
             String[] addr = myHost.split(":");
@@ -121,40 +212,155 @@ abstract public class Actor implements Runnable {
         int portno = Integer.parseInt(myHost.split(":")[1]);
         try {
 
-            serverSocket = new ServerSocket(portno);
+            serverSocket = bind(portno);
             
             while(true) {
                 info("waiting for connection on port "+portno);
-                try (Socket clientSocket = serverSocket.accept()) {
-                    info("accepted connection on port "+portno);
-                    
-                    InputStream is = clientSocket.getInputStream();
-                    
-                    ObjectInputStream ois = new ObjectInputStream(is);
-                    
-                    Message msg = (Message) ois.readObject();
-                    info("received message "+msg.getClass().getSimpleName());
-                    
-                    if(listener != null) {
-                        info("invoking listener for "+msg.getClass().getSimpleName());
-                        listener.received(msg);
-                    }
-                    else
-                        error("dropped "+msg.getClass().getSimpleName());
-                    
+                Socket clientSocket = serverSocket.accept();
+                info("accepted connection on port "+portno);
+                
+                try {
+                    accept(clientSocket);
+                }
+                catch(IOException | ClassNotFoundException ex) {
+                    error(ex+"");
                     clientSocket.close();
                 }
             }
-        } catch (IOException | ClassNotFoundException ex) {
-            error(ex+"");
+        } catch (IOException ex) {
+            if(serverSocket == null || !serverSocket.isClosed())
+                error(ex+"");
         } 
     }
     
+    /**
+     * Binds the server socket, waiting a little for the port if the actor
+     * this one replaces is still letting go of it.
+     * @param portno Port
+     * @return Server socket
+     * @throws IOException If the port stays in use
+     */
+    protected ServerSocket bind(int portno) throws IOException {
+        for(int attempt=1; ; attempt++) {
+            try {
+                return new ServerSocket(portno);
+            }
+            catch(BindException ex) {
+                if(attempt >= retries)
+                    throw ex;
+                
+                error("attempt "+attempt+" to bind port "+portno+" failed: "+ex);
+                
+                Helper.sleep(100L * attempt);
+            }
+        }
+    }
+    
+    /**
+     * Handles an accepted connection.
+     * Old peers open a connection per message which starts with the Java
+     * serialization magic number. Anything else is the start of a framed,
+     * persistent channel.
+     * @param clientSocket Accepted socket
+     * @throws IOException If the connection fails
+     * @throws ClassNotFoundException If the message class is unknown
+     */
+    protected void accept(Socket clientSocket) throws IOException, ClassNotFoundException {
+        BufferedInputStream is = new BufferedInputStream(clientSocket.getInputStream());
+        
+        is.mark(2);
+        int magic = (is.read() << 8) | is.read();
+        is.reset();
+        
+        if(magic == Channel.STREAM_MAGIC) {
+            try (clientSocket) {
+                ObjectInputStream ois = new ObjectInputStream(is);
+
+                dispatch((Message) ois.readObject());
+            }
+        }
+        else {
+            Channel inbound = new Channel(clientSocket, is);
+            inbound.setCodec(codec);
+            info("opened channel from "+inbound);
+            
+            // The peer (re)connected to us: replies go back the same way.
+            synchronized(channelLock) {
+                if(channel != null)
+                    channel.close();
+                
+                channel = inbound;
+            }
+            
+            serve(inbound);
+        }
+    }
+    
+    /**
+     * Reads frames from a channel as its own task until the channel closes.
+     * @param ch Channel
+     */
+    protected void serve(Channel ch) {
+        ExecutorFactory.getInstance().execute(() -> {
+            try {
+                Message msg;
+                while((msg = ch.read()) != null)
+                    dispatch(msg);
+            }
+            catch(IOException ex) {
+                if(ch.isOpen())
+                    error("channel "+ch+" failed: "+ex);
+            }
+            
+            info("closed channel from "+ch);
+            
+            if(drop(ch))
+                lost();
+        });
+    }
+    
+    /**
+     * Invokes the listener for an inbound message.
+     * @param msg Message
+     */
+    protected void dispatch(Message msg) {
+        info("received message "+msg.getClass().getSimpleName());
+        
+        // Remember whose session this is in case we have to reconnect.
+        if(msg instanceof Hello) {
+            session = ((Hello) msg).getSession();
+            return;
+        }
+
+        if(listener != null) {
+            info("invoking listener for "+msg.getClass().getSimpleName());
+            
+            long start = System.nanoTime();
+            
+            listener.received(msg);
+            
+            RECEIVES.get(msg.getClass()).since(start);
+        }
+        else
+            error("dropped "+msg.getClass().getSimpleName());
+    }
+    
     /**
      * Sends a message synchronously.
      * @param msg Message to transmit
      */
     public void send(Message msg) {
+        long start = System.nanoTime();
+        
+        sequence(msg);
+        
+        if(persistent) {
+            sendFramed(msg);
+            
+            SENDS.get(msg.getClass()).since(start);
+            return;
+        }
+        
         try {
             info("sending "+msg.getClass().getSimpleName()+" to "+remoteHost);
             String[] params = remoteHost.split(":");
@@ -172,11 +378,117 @@ abstract public class Actor implements Runnable {
             }
             
             info("sent successfully "+msg.getClass().getSimpleName()+" to "+remoteHost);
+            
+            SENDS.get(msg.getClass()).since(start);
         } catch (IOException ex) {
             error(ex+"");
+            
+            lost();
+        }
+    }
+    
+    /**
+     * Gives a message the next sequence number in this actor's session.
+     * A message being resent keeps the number it has.
+     * @param msg Message
+     */
+    protected void sequence(Message msg) {
+        if(msg.getSeq() == 0)
+            msg.setSeq(sequence.incrementAndGet());
+    }
+    
+    /**
+     * Sends a message as a frame on the persistent channel, reconnecting
+     * to the remote host if the channel is down.
+     * @param msg Message to transmit
+     */
+    protected void sendFramed(Message msg) {
+        for(int attempt=1; attempt <= retries; attempt++) {
+            Channel ch = null;
+            try {
+                ch = open();
+                
+                ch.write(msg);
+                
+                info("sent successfully "+msg.getClass().getSimpleName()+" on "+ch);
+                return;
+            }
+            catch(IOException ex) {
+                error("attempt "+attempt+" to send "+msg.getClass().getSimpleName()+" failed: "+ex);
+                
+                if(ch != null)
+                    drop(ch);
+                
+                Helper.sleep(100L * attempt);
+            }
+        }
+        
+        error("gave up sending "+msg.getClass().getSimpleName()+" to "+remoteHost);
+        
+        lost();
+    }
+    
+    /**
+     * Gets the session channel, connecting to the remote host if necessary.
+     * @return Open channel
+     * @throws IOException If the connection fails
+     */
+    protected Channel open() throws IOException {
+        synchronized(channelLock) {
+            if(channel != null && channel.isOpen())
+                return channel;
+            
+            info("connecting channel to "+remoteHost);
+            Channel ch = Channel.connect(remoteHost);
+            
+            // Nobody sends on the channel until it has said who we are
+            try {
+                ch.setCodec(codec);
+                
+                // A shared endpoint routes by session, so say who we are first.
+                if(session != 0)
+                    ch.write(new Hello(session));
+            }
+            catch(IOException | RuntimeException ex) {
+                ch.close();
+                throw ex;
+            }
+            
+            channel = ch;
+            
+            // The peer may reply on the channel we opened.
+            serve(ch);
+            
+            return ch;
         }
     }
     
+    /**
+     * Closes a channel and forgets it if it's the session channel.
+     * @param ch Channel
+     * @return True if it was the session channel
+     */
+    protected boolean drop(Channel ch) {
+        ch.close();
+        
+        synchronized(channelLock) {
+            if(channel != ch)
+                return false;
+            
+            channel = null;
+            
+            return true;
+        }
+    }
+    
+    /**
+     * Tells the listener the peer can't be reached.
+     */
+    protected void lost() {
+        if(listener != null)
+            listener.disconnected();
+    }
+    
     /**
      * Logs diagnostics conveniently.
      * @param text Text of message.
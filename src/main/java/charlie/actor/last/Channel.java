@@ -0,0 +1,189 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.Message;
+import charlie.message.codec.Codec;
+import charlie.message.codec.CodecFactory;
+import charlie.message.codec.SerialCodec;
+import charlie.metrics.Counter;
+import charlie.metrics.Metrics;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Models a long-lived, full duplex connection between two actors.
+ * Messages travel as length-prefixed frames, that is, a four byte length
+ * followed by the message payload. Outbound payloads use the channel's codec;
+ * inbound payloads are decoded in whichever format they arrive.
+ * @author Ron.Coleman
+ */
+public class Channel {
+    /** Largest frame we'll accept, guards against garbage on the wire */
+    public final static int MAX_FRAME = 1 << 20;
+    
+    protected final static Counter SENT_BYTES = Metrics.counter("actor.bytes.sent");
+    protected final static Counter RECEIVED_BYTES = Metrics.counter("actor.bytes.received");
+    
+    /** First two bytes of every Java serialization stream */
+    public final static int STREAM_MAGIC = 0xACED;
+    
+    protected final Socket socket;
+    protected final DataInputStream in;
+    protected final DataOutputStream out;
+    protected Codec codec = new SerialCodec();
+    
+    /**
+     * Constructor
+     * @param socket Connected socket
+     * @throws IOException If the socket streams are not available
+     */
+    public Channel(Socket socket) throws IOException {
+        this(socket, socket.getInputStream());
+    }
+    
+    /**
+     * Constructor for a socket whose input has already been peeked.
+     * @param socket Connected socket
+     * @param is Input stream positioned at the first frame
+     * @throws IOException If the socket streams are not available
+     */
+    public Channel(Socket socket, InputStream is) throws IOException {
+        this.socket = socket;
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(is instanceof BufferedInputStream ? is : new BufferedInputStream(is));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+    
+    /**
+     * Opens a channel to a remote host.
+     * @param host Remote host in "address:port" form.
+     * @return Channel
+     * @throws IOException If the connection fails
+     */
+    public static Channel connect(String host) throws IOException {
+        String[] params = host.split(":");
+        
+        return new Channel(new Socket(params[0], Integer.parseInt(params[1])));
+    }
+    
+    /**
+     * Opens a channel to a remote host which gives up on a slow peer.
+     * @param host Remote host in "address:port" form.
+     * @param timeout Connect and read timeout in milliseconds
+     * @return Channel
+     * @throws IOException If the connection fails
+     */
+    public static Channel connect(String host, int timeout) throws IOException {
+        String[] params = host.split(":");
+        
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(params[0], Integer.parseInt(params[1])), timeout);
+        socket.setSoTimeout(timeout);
+        
+        return new Channel(socket);
+    }
+    
+    /**
+     * Sets the codec for outbound frames.
+     * @param codec Codec
+     */
+    public void setCodec(Codec codec) {
+        this.codec = codec;
+    }
+    
+    /**
+     * Writes a message as one frame.
+     * @param msg Message
+     * @throws IOException If the write fails
+     */
+    public synchronized void write(Message msg) throws IOException {
+        byte[] payload = codec.encode(msg);
+        
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+        
+        SENT_BYTES.add(4 + payload.length);
+    }
+    
+    /**
+     * Reads the next frame.
+     * @return Message or null if the remote host closed the channel
+     * @throws IOException If the read fails or the frame is malformed
+     */
+    public Message read() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        }
+        catch(EOFException ex) {
+            return null;
+        }
+        
+        if(length < 0 || length > MAX_FRAME)
+            throw new IOException("bad frame length "+length);
+        
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        
+        RECEIVED_BYTES.add(4 + length);
+        
+        return CodecFactory.decode(payload);
+    }
+    
+    /**
+     * Tests if the channel is still usable.
+     * @return True if open, false otherwise
+     */
+    public boolean isOpen() {
+        return !socket.isClosed();
+    }
+    
+    /**
+     * Closes the channel quietly.
+     */
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            
+        }
+    }
+    
+    /**
+     * Gets the remote end as a string.
+     * @return Remote address
+     */
+    @Override
+    public String toString() {
+        return socket.getRemoteSocketAddress()+"";
+    }
+}
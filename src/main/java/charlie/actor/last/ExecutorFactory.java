@@ -0,0 +1,167 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the executor factory for actors and client events.
+ * Instead of a new platform thread for every actor, channel and event, work
+ * runs on one of two process-wide executors configured by the
+ * "charlie.actor.executor" property:
+ * <ul>
+ * <li>"virtual" (the default) runs each task on a virtual thread if the JVM
+ * has them, so thousands of idle sessions don't each hold a platform stack.
+ * <li>"pool" runs tasks on cached pools of platform threads, which reuse
+ * threads as sessions and events come and go.
+ * </ul>
+ * On a JVM without virtual threads, "virtual" falls back to "pool". Only
+ * virtual threads save threads: actor loops and client events block for
+ * as long as they like, sounds loop and the autopilot waits between games,
+ * so a pool can't be bounded without starving them and each one still
+ * holds a platform thread while it runs. Without virtual threads, many
+ * sessions on a server need the shared transport, "charlie.actor.transport",
+ * which serves every session on a handful of threads.
+ * @author Ron.Coleman
+ */
+public class ExecutorFactory {
+    private static final Logger LOG = Logger.getLogger(ExecutorFactory.class);
+    public final static String VIRTUAL = "virtual";
+    public final static String POOL = "pool";
+    private static ExecutorService actors = null;
+    private static ExecutorService events = null;
+    private static Boolean virtual = null;
+    
+    /**
+     * Gets the executor for long-running actor work, that is, receive
+     * loops and channel readers which block most of the time.
+     * @return Executor
+     */
+    public static synchronized ExecutorService getInstance() {
+        if(actors != null)
+            return actors;
+        
+        if(isVirtual())
+            actors = newVirtual();
+        
+        if(actors == null)
+            actors = Executors.newCachedThreadPool(factory("actor", false));
+        
+        LOG.info("actor executor = "+getMode());
+        
+        return actors;
+    }
+    
+    /**
+     * Gets the executor for client events like card animations, autopilot
+     * moves and sounds, any of which may block for a while.
+     * @return Executor
+     */
+    public static synchronized ExecutorService getEvents() {
+        if(events != null)
+            return events;
+        
+        if(isVirtual())
+            events = newVirtual();
+        
+        if(events == null)
+            events = Executors.newCachedThreadPool(factory("event", true));
+        
+        LOG.info("event executor = "+getMode());
+        
+        return events;
+    }
+    
+    /**
+     * Gets the mode actually in use.
+     * @return "virtual" or "pool"
+     */
+    public static String getMode() {
+        return isVirtual() ? VIRTUAL : POOL;
+    }
+    
+    /**
+     * Tests if tasks run on virtual threads, that is, they're configured
+     * and the JVM has them.
+     * @return True if virtual
+     */
+    public static synchronized boolean isVirtual() {
+        if(virtual == null) {
+            String mode = Helper.getPropertyOrElse(Constant.ACTOR_EXECUTOR, VIRTUAL);
+            
+            virtual = false;
+            
+            if(mode.equalsIgnoreCase(VIRTUAL)) {
+                try {
+                    Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                    virtual = true;
+                }
+                catch(NoSuchMethodException ex) {
+                    LOG.info("no virtual threads in this JVM, using "+POOL);
+                }
+            }
+        }
+        
+        return virtual;
+    }
+    
+    /**
+     * Makes a virtual thread-per-task executor through reflection since
+     * we still build for JVMs which don't have one.
+     * @return Executor or null if virtual threads aren't available
+     */
+    protected static ExecutorService newVirtual() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            
+            return (ExecutorService) method.invoke(null);
+        }
+        catch(ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+    
+    /**
+     * Makes a factory for named platform threads.
+     * @param name Thread name prefix
+     * @param daemon True if the threads shouldn't keep the JVM alive
+     * @return Thread factory
+     */
+    protected static ThreadFactory factory(final String name, final boolean daemon) {
+        final AtomicInteger count = new AtomicInteger();
+        
+        return runnable -> {
+            Thread thread = new Thread(runnable, name+"-"+count.incrementAndGet());
+            thread.setDaemon(daemon);
+            
+            return thread;
+        };
+    }
+}
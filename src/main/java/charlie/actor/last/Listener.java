@@ -31,4 +31,10 @@ import charlie.message.Message;
 public interface Listener {
     public void received(Message msg);
     
+    /**
+     * Comes here when the connection to the peer is lost.
+     */
+    default public void disconnected() {
+        
+    }
 }
@@ -0,0 +1,420 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.Hello;
+import charlie.message.Message;
+import charlie.message.codec.Codec;
+import charlie.message.codec.CodecFactory;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import org.apache.log4j.Logger;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.frame.LengthFieldBasedFrameDecoder;
+import org.jboss.netty.handler.codec.frame.LengthFieldPrepender;
+import org.jboss.netty.handler.execution.ExecutionHandler;
+import org.jboss.netty.handler.execution.OrderedMemoryAwareThreadPoolExecutor;
+
+/**
+ * This class implements a non-blocking transport on Netty.
+ * A handful of I/O threads serve every session on one port. Frames have the
+ * same layout as {@link Channel}, so couriers in persistent mode talk to it
+ * unchanged. Listeners are invoked on a worker pool that keeps frames of a
+ * connection in order, so a slow dealer never stalls the I/O threads.
+ * @author Ron.Coleman
+ */
+public class NettyTransport implements Transport {
+    private final Logger LOG = Logger.getLogger(NettyTransport.class);
+    
+    /** Registered sessions by session id */
+    protected final ConcurrentHashMap<Long,Session> sessions = new ConcurrentHashMap<>();
+    
+    /** Session id of each bound connection by Netty channel id */
+    protected final ConcurrentHashMap<Integer,Long> routes = new ConcurrentHashMap<>();
+    
+    /** Handlers for messages outside any session by message class */
+    protected final ConcurrentHashMap<Class<?>,Responder> responders = new ConcurrentHashMap<>();
+    
+    /** All open connections, for shutdown */
+    protected final ChannelGroup connections = new DefaultChannelGroup("charlie");
+    
+    protected final int retries = Helper.getPropertyOrElse(Constant.ACTOR_RETRIES, 3);
+    
+    protected ServerBootstrap server;
+    protected ClientBootstrap client;
+    protected ExecutionHandler workers;
+    
+    /**
+     * Binds the shared endpoint.
+     * @param host Host in "address:port" form.
+     * @throws IOException If the endpoint can't be bound
+     */
+    @Override
+    public void bind(String host) throws IOException {
+        int port = Integer.parseInt(host.split(":")[1]);
+        
+        int ioThreads = Helper.getPropertyOrElse(Constant.TRANSPORT_IO_THREADS, Runtime.getRuntime().availableProcessors());
+        int workerThreads = Helper.getPropertyOrElse(Constant.TRANSPORT_WORKERS, 16 * Runtime.getRuntime().availableProcessors());
+        
+        workers = new ExecutionHandler(new OrderedMemoryAwareThreadPoolExecutor(workerThreads, 0, 0));
+        
+        ChannelPipelineFactory pipelines = () -> {
+            ChannelPipeline pipeline = Channels.pipeline();
+            
+            pipeline.addLast("framer", new LengthFieldBasedFrameDecoder(Channel.MAX_FRAME, 0, 4, 0, 4));
+            pipeline.addLast("prepender", new LengthFieldPrepender(4));
+            pipeline.addLast("workers", workers);
+            pipeline.addLast("router", new Router());
+            
+            return pipeline;
+        };
+        
+        server = new ServerBootstrap(new NioServerSocketChannelFactory(
+                Executors.newCachedThreadPool(), Executors.newCachedThreadPool(), ioThreads));
+        server.setPipelineFactory(pipelines);
+        server.setOption("child.tcpNoDelay", true);
+        
+        client = new ClientBootstrap(new NioClientSocketChannelFactory(
+                Executors.newCachedThreadPool(), Executors.newCachedThreadPool(), ioThreads));
+        client.setPipelineFactory(pipelines);
+        client.setOption("tcpNoDelay", true);
+        
+        try {
+            connections.add(server.bind(new InetSocketAddress(port)));
+        }
+        catch(Exception ex) {
+            throw new IOException("can't bind "+host+": "+ex);
+        }
+        
+        LOG.info("transport listening on port "+port+" io threads = "+ioThreads+" workers = "+workerThreads);
+    }
+    
+    /**
+     * Registers a session.
+     * @param session Session id
+     * @param remoteHost Remote host to connect to on the first send
+     * @param codec Codec the peer agreed to receive
+     * @param listener Callback for messages arriving on the session
+     */
+    @Override
+    public void register(long session, String remoteHost, Codec codec, Listener listener) {
+        sessions.put(session, new Session(session, remoteHost, codec, listener));
+    }
+
+    /**
+     * Unregisters a session and closes its connection once what's been
+     * written to it is sent.
+     * @param session Session id
+     */
+    @Override
+    public void unregister(long session) {
+        Session s = sessions.remove(session);
+        
+        org.jboss.netty.channel.Channel ch = s == null ? null : s.channel;
+        
+        if(ch != null)
+            ch.write(ChannelBuffers.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    /**
+     * Routes messages of a type which arrive outside any session.
+     * @param type Message class, which includes its subclasses
+     * @param responder Handler whose reply goes back on the same connection
+     */
+    @Override
+    public void route(Class<? extends Message> type, Responder responder) {
+        responders.put(type, responder);
+    }
+    
+    /**
+     * Gets the handler for a message outside any session.
+     * @param msg Message
+     * @return Responder or null if there's none for the message's type
+     */
+    protected Responder responderFor(Message msg) {
+        for(Class<?> clazz = msg.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            Responder responder = responders.get(clazz);
+            
+            if(responder != null)
+                return responder;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Sends a message on a session, connecting if necessary.
+     * @param session Session id
+     * @param msg Message
+     * @return True if the message was handed to the session's connection
+     */
+    @Override
+    public boolean send(long session, Message msg) {
+        Session s = sessions.get(session);
+        if(s == null) {
+            LOG.error("no session "+Long.toHexString(session)+" dropped "+msg);
+            return false;
+        }
+        
+        try {
+            org.jboss.netty.channel.Channel ch = open(s);
+            if(ch == null)
+                return false;
+            
+            long start = System.nanoTime();
+            
+            byte[] payload = s.codec.encode(msg);
+            
+            ch.write(ChannelBuffers.wrappedBuffer(payload));
+            
+            Channel.SENT_BYTES.add(4 + payload.length);
+            Actor.SENDS.get(msg.getClass()).since(start);
+            
+            return true;
+        }
+        catch(IOException ex) {
+            LOG.error("failed to encode "+msg+": "+ex);
+        }
+        
+        return false;
+    }
+
+    /**
+     * Gets the number of registered sessions.
+     * @return Session count
+     */
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes the endpoint and all sessions.
+     */
+    @Override
+    public void close() {
+        sessions.clear();
+        
+        connections.close().awaitUninterruptibly();
+        
+        server.releaseExternalResources();
+        client.releaseExternalResources();
+        workers.releaseExternalResources();
+    }
+    
+    /**
+     * Gets the connection of a session, connecting to the remote host if
+     * the peer hasn't connected to us.
+     * @param s Session
+     * @return Connection or null if it can't be opened
+     */
+    protected org.jboss.netty.channel.Channel open(Session s) {
+        synchronized(s) {
+            if(s.channel != null && s.channel.isConnected())
+                return s.channel;
+            
+            String[] params = s.remoteHost.split(":");
+            InetSocketAddress addr = new InetSocketAddress(params[0], Integer.parseInt(params[1]));
+            
+            for(int attempt=1; attempt <= retries; attempt++) {
+                ChannelFuture future = client.connect(addr).awaitUninterruptibly();
+                
+                if(future.isSuccess()) {
+                    bind(s, future.getChannel());
+                    
+                    // Let the peer know whose connection this is for reconnects.
+                    send(s.id, new Hello(s.id));
+                    
+                    return s.channel;
+                }
+                
+                LOG.error("attempt "+attempt+" to connect to "+s.remoteHost+" failed: "+future.getCause());
+                Helper.sleep(100L * attempt);
+            }
+            
+            return null;
+        }
+    }
+    
+    /**
+     * Binds a connection to a session, replacing any older connection.
+     * @param s Session
+     * @param ch Connection
+     */
+    protected void bind(Session s, org.jboss.netty.channel.Channel ch) {
+        routes.put(ch.getId(), s.id);
+        
+        org.jboss.netty.channel.Channel old = s.channel;
+        s.channel = ch;
+        
+        if(old != null && old != ch)
+            old.close();
+    }
+    
+    /**
+     * Binds a connection which says hello to its session, unless the
+     * session is still connected. The session id alone isn't proof of who
+     * the peer is, so it can't take over a live session; a courier whose
+     * connection dropped gets its session back, and a resume through the
+     * house registers the session afresh.
+     * @param s Session
+     * @param ch Connection
+     * @return True if bound, false otherwise
+     */
+    protected boolean claim(Session s, org.jboss.netty.channel.Channel ch) {
+        synchronized(s) {
+            if(s.channel != null && s.channel != ch && s.channel.isConnected())
+                return false;
+            
+            LOG.info("bound "+ch.getRemoteAddress()+" to session "+Long.toHexString(s.id));
+            bind(s, ch);
+            
+            return true;
+        }
+    }
+    
+    /**
+     * Holds the state of one session.
+     */
+    protected static class Session {
+        protected final long id;
+        protected final String remoteHost;
+        protected final Codec codec;
+        protected final Listener listener;
+        protected volatile org.jboss.netty.channel.Channel channel;
+        
+        protected Session(long id, String remoteHost, Codec codec, Listener listener) {
+            this.id = id;
+            this.remoteHost = remoteHost;
+            this.codec = codec;
+            this.listener = listener;
+        }
+    }
+    
+    /**
+     * Routes inbound frames to session listeners.
+     */
+    protected class Router extends SimpleChannelUpstreamHandler {
+        @Override
+        public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent e) {
+            connections.add(e.getChannel());
+        }
+        
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+            ChannelBuffer frame = (ChannelBuffer) e.getMessage();
+            
+            byte[] payload = new byte[frame.readableBytes()];
+            frame.readBytes(payload);
+            
+            Channel.RECEIVED_BYTES.add(4 + payload.length);
+            
+            Message msg = CodecFactory.decode(payload);
+            
+            org.jboss.netty.channel.Channel ch = e.getChannel();
+            
+            if(msg instanceof Hello) {
+                Session s = sessions.get(((Hello) msg).getSession());
+                
+                if(s == null) {
+                    LOG.error("unknown "+msg+" from "+ch.getRemoteAddress());
+                    ch.close();
+                }
+                else if(!routes.containsKey(ch.getId()) && !claim(s, ch)) {
+                    LOG.error("refused "+msg+" from "+ch.getRemoteAddress()+" while the session is connected");
+                    ch.close();
+                }
+                
+                return;
+            }
+            
+            Long id = routes.get(ch.getId());
+            Session s = id == null ? null : sessions.get(id);
+            
+            if(s != null) {
+                long start = System.nanoTime();
+                
+                s.listener.received(msg);
+                
+                Actor.RECEIVES.get(msg.getClass()).since(start);
+                return;
+            }
+            
+            // Not in a session: a login, an arrival and the like
+            Responder responder = responderFor(msg);
+            
+            if(responder == null) {
+                LOG.error("no session for "+ch.getRemoteAddress()+" dropped "+msg);
+                return;
+            }
+            
+            Message reply = responder.respond(msg);
+            
+            // Answer in the format we were asked in
+            if(reply != null)
+                ch.write(ChannelBuffers.wrappedBuffer(CodecFactory.of(payload).encode(reply)));
+        }
+        
+        @Override
+        public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) {
+            org.jboss.netty.channel.Channel ch = e.getChannel();
+            
+            Long id = routes.remove(ch.getId());
+            if(id == null)
+                return;
+            
+            Session s = sessions.get(id);
+            if(s != null && s.channel == ch) {
+                s.channel = null;
+                s.listener.disconnected();
+            }
+        }
+        
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+            LOG.error("connection "+e.getChannel().getRemoteAddress()+" failed: "+e.getCause());
+            e.getChannel().close();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.Message;
+import charlie.message.view.to.Batch;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements a bounded outbound queue for one session.
+ * Senders, like the dealer, only queue messages; a writer task drains
+ * the queue to the peer so a slow or dead peer never holds them up. The
+ * writer runs only while there is something to send, so idle sessions
+ * cost no thread. When the queue is full, the policy in
+ * "charlie.actor.outbox.policy" decides:
+ * <ul>
+ * <li>"coalesce" (the default) folds what's queued into batches of at most
+ * "charlie.actor.outbox.batch" messages, so each stays well under a frame,
+ * and gives up on the session once the queue is full of full batches.
+ * <li>"drop" gives up on the session.
+ * </ul>
+ * There's no policy to wait for room: senders queue holding the dealer's
+ * lock, so one slow peer would hold up the whole table.
+ * @author Ron.Coleman
+ */
+public class Outbox {
+    private final Logger LOG = Logger.getLogger(Outbox.class);
+    
+    public enum Policy { COALESCE, DROP }
+    
+    protected final ArrayDeque<Message> queue = new ArrayDeque<>();
+    protected final Consumer<Message> writer;
+    protected final Runnable overflow;
+    protected final int capacity;
+    protected final int batch;
+    protected final Policy policy;
+    protected boolean draining = false;
+    
+    // Last batch folded, which can take more messages while it's queued
+    protected Batch open = null;
+    protected boolean closed = false;
+    
+    protected long sent = 0;
+    protected long coalesced = 0;
+    protected long dropped = 0;
+    protected int maxDepth = 0;
+    
+    /**
+     * Constructor with the configured capacity, policy and batch size.
+     * @param writer Sends a message to the peer, possibly slowly
+     * @param overflow Gives up on the session
+     */
+    public Outbox(Consumer<Message> writer, Runnable overflow) {
+        this(writer, overflow,
+                Helper.getPropertyOrElse(Constant.OUTBOX_CAPACITY, 256),
+                toPolicy(Helper.getPropertyOrElse(Constant.OUTBOX_POLICY, "coalesce")),
+                Helper.getPropertyOrElse(Constant.OUTBOX_BATCH, 256));
+    }
+    
+    /**
+     * Constructor with the default batch size.
+     * @param writer Sends a message to the peer, possibly slowly
+     * @param overflow Gives up on the session
+     * @param capacity Most messages waiting, at least two
+     * @param policy What to do when full
+     */
+    public Outbox(Consumer<Message> writer, Runnable overflow, int capacity, Policy policy) {
+        this(writer, overflow, capacity, policy, 256);
+    }
+    
+    /**
+     * Constructor
+     * @param writer Sends a message to the peer, possibly slowly
+     * @param overflow Gives up on the session
+     * @param capacity Most messages waiting, at least two
+     * @param policy What to do when full
+     * @param batch Most messages in a coalesced batch, at least two
+     */
+    public Outbox(Consumer<Message> writer, Runnable overflow, int capacity, Policy policy, int batch) {
+        this.writer = writer;
+        this.overflow = overflow;
+        this.capacity = Math.max(2, capacity);
+        this.batch = Math.max(2, batch);
+        this.policy = policy;
+    }
+    
+    /**
+     * Gets a policy by name, coalescing if there's no such policy.
+     * @param name Name, in any case
+     * @return Policy
+     */
+    protected static Policy toPolicy(String name) {
+        try {
+            return Policy.valueOf(name.toUpperCase());
+        }
+        catch(IllegalArgumentException ex) {
+            Logger.getLogger(Outbox.class).error("no outbox policy "+name+", coalescing instead");
+            
+            return Policy.COALESCE;
+        }
+    }
+    
+    /**
+     * Queues a message for the peer.
+     * @param msg Message
+     * @return True if queued, false if the session has been given up
+     */
+    public boolean offer(Message msg) {
+        synchronized(this) {
+            if(closed) {
+                dropped++;
+                return false;
+            }
+            
+            while(queue.size() >= capacity && !closed) {
+                if(policy == Policy.COALESCE) {
+                    if(coalesce())
+                        continue;
+                    
+                    if(join(msg))
+                        return true;
+                    
+                    // Full of full batches: the peer is too far behind
+                    break;
+                }
+                else
+                    break;
+            }
+            
+            if(!closed && queue.size() < capacity) {
+                queue.add(msg);
+                
+                maxDepth = Math.max(maxDepth, queue.size());
+                
+                if(!draining) {
+                    draining = true;
+                    ExecutorFactory.getInstance().execute(this::drain);
+                }
+                
+                return true;
+            }
+            
+            if(!closed) {
+                LOG.error("outbox overflow, giving up on session: "+this);
+                close();
+                ExecutorFactory.getInstance().execute(overflow);
+            }
+            
+            dropped++;
+            return false;
+        }
+    }
+    
+    /**
+     * Folds the queued messages into batches, in order, of no more than the
+     * batch size. Full batches are left as they are.
+     * @return True if there's a free slot now, false otherwise
+     */
+    protected boolean coalesce() {
+        ArrayDeque<Message> folded = new ArrayDeque<>();
+        List<Message> messages = new ArrayList<>();
+        
+        for(Message msg: queue) {
+            if(msg instanceof Batch && ((Batch) msg).getMessages().size() >= batch) {
+                fold(messages, folded);
+                folded.add(msg);
+                continue;
+            }
+            
+            coalesced++;
+            
+            List<Message> more = msg instanceof Batch ? ((Batch) msg).getMessages() : List.of(msg);
+            
+            for(Message m: more) {
+                messages.add(m);
+                
+                if(messages.size() == batch)
+                    fold(messages, folded);
+            }
+        }
+        
+        fold(messages, folded);
+        
+        queue.clear();
+        queue.addAll(folded);
+        
+        return queue.size() < capacity;
+    }
+    
+    /**
+     * Adds the messages being folded to the queue as one batch.
+     * @param messages Messages, cleared afterwards
+     * @param folded Queue
+     */
+    protected void fold(List<Message> messages, ArrayDeque<Message> folded) {
+        if(messages.isEmpty())
+            return;
+        
+        open = new Batch(new ArrayList<>(messages));
+        folded.add(open);
+        
+        messages.clear();
+    }
+    
+    /**
+     * Adds a message to the last batch folded if it's still queued and has
+     * room.
+     * @param msg Message
+     * @return True if added, false otherwise
+     */
+    protected boolean join(Message msg) {
+        if(open == null || queue.peekLast() != open || open.getMessages().size() >= batch)
+            return false;
+        
+        open.getMessages().add(msg);
+        coalesced++;
+        
+        return true;
+    }
+    
+    /**
+     * Writes queued messages until there are none.
+     */
+    protected void drain() {
+        while(true) {
+            Message msg;
+            
+            synchronized(this) {
+                msg = queue.poll();
+                
+                if(msg == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            
+            try {
+                writer.accept(msg);
+                
+                synchronized(this) {
+                    sent++;
+                }
+            }
+            catch(RuntimeException ex) {
+                LOG.error("outbox write failed: "+ex);
+            }
+        }
+    }
+    
+    /**
+     * Closes the outbox, discarding whatever is still queued.
+     */
+    public synchronized void close() {
+        closed = true;
+        dropped += queue.size();
+        queue.clear();
+    }
+    
+    /**
+     * Gets the number of messages waiting.
+     * @return Depth
+     */
+    public synchronized int getDepth() {
+        return queue.size();
+    }
+    
+    /**
+     * Gets the most messages ever waiting.
+     * @return Depth
+     */
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    /**
+     * Gets the number of messages written.
+     * @return Count
+     */
+    public synchronized long getSent() {
+        return sent;
+    }
+    
+    /**
+     * Gets the number of messages folded into batches.
+     * @return Count
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+    
+    /**
+     * Gets the number of messages never written.
+     * @return Count
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+    
+    /**
+     * Tests if the session has been given up.
+     * @return True if closed
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * Converts the counters to a string.
+     * @return String
+     */
+    @Override
+    public synchronized String toString() {
+        return policy+" depth = "+queue.size()+"/"+capacity+" max = "+maxDepth+" sent = "+sent+
+                " coalesced = "+coalesced+" dropped = "+dropped;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.Message;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * This class puts a session's inbound messages back in the order they were
+ * sent and detects lost ones using the sender's sequence numbers.
+ * Early messages wait in a window for the ones before them. If the window
+ * fills, or the receiver gives up waiting and flushes, the missing
+ * messages are counted as lost and delivery goes on past the gap. Late
+ * messages and duplicates are dropped. Unsequenced messages pass through.
+ * @author Ron.Coleman
+ */
+public class Sequencer {
+    protected final int window;
+    protected final TreeMap<Long,Message> early = new TreeMap<>();
+    protected long expected = 1;
+    
+    protected long delivered = 0;
+    protected long reordered = 0;
+    protected long lost = 0;
+    protected long dropped = 0;
+    
+    /**
+     * Constructor
+     * @param window Most messages to hold while waiting on a gap
+     */
+    public Sequencer(int window) {
+        this.window = window;
+    }
+    
+    /**
+     * Takes an inbound message.
+     * @param msg Message
+     * @return Messages now ready, in order, possibly none
+     */
+    public synchronized List<Message> offer(Message msg) {
+        long seq = msg.getSeq();
+        
+        if(seq == 0) {
+            delivered++;
+            return Collections.singletonList(msg);
+        }
+        
+        if(seq < expected || early.containsKey(seq)) {
+            dropped++;
+            return Collections.emptyList();
+        }
+        
+        if(seq > expected) {
+            early.put(seq, msg);
+            
+            // Can't wait any longer: give up on the oldest gap
+            if(early.size() > window)
+                return skip();
+            
+            return Collections.emptyList();
+        }
+        
+        List<Message> ready = new ArrayList<>();
+        
+        ready.add(msg);
+        expected++;
+        
+        drain(ready);
+        
+        delivered += ready.size();
+        
+        return ready;
+    }
+    
+    /**
+     * Gives up on every gap and releases all waiting messages.
+     * @return Messages released, in order
+     */
+    public synchronized List<Message> flush() {
+        List<Message> ready = new ArrayList<>();
+        
+        while(!early.isEmpty())
+            ready.addAll(skip());
+        
+        return ready;
+    }
+    
+    /**
+     * Starts over at a message which stands in for everything before it,
+     * such as a snapshot: earlier messages, waiting or not, are dropped.
+     * @param seq Sequence number to expect next
+     */
+    public synchronized void resync(long seq) {
+        if(seq == 0)
+            return;
+        
+        while(!early.isEmpty() && early.firstKey() < seq) {
+            early.pollFirstEntry();
+            dropped++;
+        }
+        
+        expected = seq;
+    }
+    
+    /**
+     * Skips the gap before the earliest waiting message.
+     * @return Messages released, in order
+     */
+    protected List<Message> skip() {
+        long next = early.firstKey();
+        
+        lost += next - expected;
+        expected = next;
+        
+        List<Message> ready = new ArrayList<>();
+        
+        drain(ready);
+        
+        delivered += ready.size();
+        
+        return ready;
+    }
+    
+    /**
+     * Moves waiting messages which are next in line to the ready list.
+     * @param ready Ready list
+     */
+    protected void drain(List<Message> ready) {
+        Message next;
+        
+        while((next = early.remove(expected)) != null) {
+            ready.add(next);
+            reordered++;
+            expected++;
+        }
+    }
+    
+    /**
+     * Tests if messages are waiting on a gap.
+     * @return True if waiting
+     */
+    public synchronized boolean isWaiting() {
+        return !early.isEmpty();
+    }
+    
+    /**
+     * Gets the number of messages delivered.
+     * @return Count
+     */
+    public synchronized long getDelivered() {
+        return delivered;
+    }
+    
+    /**
+     * Gets the number of messages which arrived early and were held back.
+     * @return Count
+     */
+    public synchronized long getReordered() {
+        return reordered;
+    }
+    
+    /**
+     * Gets the number of messages never received.
+     * @return Count
+     */
+    public synchronized long getLost() {
+        return lost;
+    }
+    
+    /**
+     * Gets the number of late or duplicate messages dropped.
+     * @return Count
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+    
+    /**
+     * Converts the counters to a string.
+     * @return String
+     */
+    @Override
+    public synchronized String toString() {
+        return "delivered = "+delivered+" reordered = "+reordered+" lost = "+lost+" dropped = "+dropped;
+    }
+}
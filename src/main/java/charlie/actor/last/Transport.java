@@ -0,0 +1,87 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.Message;
+import charlie.message.codec.Codec;
+import java.io.IOException;
+
+/**
+ * This interface defines a transport which multiplexes many actor sessions
+ * over one shared endpoint. Sessions are routed by session id rather than by
+ * port: an outbound connection belongs to the session that opened it, and an
+ * inbound connection belongs to the session named in its first frame, a
+ * {@link charlie.message.Hello}. Messages on a connection which belongs to
+ * no session are routed by type to a {@link Responder}.
+ * @author Ron.Coleman
+ */
+public interface Transport {
+    /**
+     * Binds the shared endpoint.
+     * @param host Host in "address:port" form.
+     * @throws IOException If the endpoint can't be bound
+     */
+    public void bind(String host) throws IOException;
+    
+    /**
+     * Registers a session.
+     * @param session Session id
+     * @param remoteHost Remote host in "address:port" form to connect to on
+     * the first send, if the peer hasn't connected by then.
+     * @param codec Codec the peer agreed to receive
+     * @param listener Callback for messages arriving on the session
+     */
+    public void register(long session, String remoteHost, Codec codec, Listener listener);
+    
+    /**
+     * Unregisters a session and closes its connection.
+     * @param session Session id
+     */
+    public void unregister(long session);
+    
+    /**
+     * Routes messages of a type which arrive outside any session.
+     * @param type Message class, which includes its subclasses
+     * @param responder Handler whose reply goes back on the same connection
+     */
+    public void route(Class<? extends Message> type, Responder responder);
+    
+    /**
+     * Sends a message on a session, connecting if necessary.
+     * @param session Session id
+     * @param msg Message
+     * @return True if the message was handed to the session's connection
+     */
+    public boolean send(long session, Message msg);
+    
+    /**
+     * Gets the number of registered sessions.
+     * @return Session count
+     */
+    public int size();
+    
+    /**
+     * Closes the endpoint and all sessions.
+     */
+    public void close();
+}
@@ -0,0 +1,75 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.util.Constant;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the transport factory.
+ * The transport is a process-wide singleton configured by the
+ * "charlie.actor.transport" property and bound to the
+ * "charlie.server.realplayer" endpoint on first use. If the server has a
+ * single endpoint, "charlie.server.endpoint", the transport binds it
+ * instead, by default with Netty.
+ * @author Ron.Coleman
+ */
+public class TransportFactory {
+    private static final Logger LOG = Logger.getLogger(TransportFactory.class);
+    private static Transport transport = null;
+    
+    /**
+     * Gets the transport, if one has been configured.
+     * @return Transport or null to use the actor's own sockets
+     */
+    public static synchronized Transport getInstance() {
+        if(transport != null)
+            return transport;
+        
+        String endpoint = System.getProperty(Constant.SERVER_ENDPOINT);
+        
+        String className = System.getProperty(Constant.ACTOR_TRANSPORT);
+        if(className == null && endpoint != null)
+            className = NettyTransport.class.getName();
+        
+        if(className == null)
+            return null;
+        
+        try {
+            Class<?> clazz = Class.forName(className);
+            
+            Transport instance = (Transport) clazz.getDeclaredConstructor().newInstance();
+            
+            instance.bind(endpoint != null ? endpoint : System.getProperty("charlie.server.realplayer"));
+            
+            LOG.info("loaded transport "+className);
+            
+            transport = instance;
+        }
+        catch(Exception ex) {
+            LOG.error("failed to load transport '"+className+"': "+ex);
+        }
+        
+        return transport;
+    }
+}
@@ -24,6 +24,7 @@ package charlie.audio;
 
 import static charlie.audio.Effect.CHIPS_IN;
 import static charlie.audio.Effect.PUSH;
+import charlie.actor.last.ExecutorFactory;
 import java.util.Random;
 
 /**
@@ -205,12 +206,12 @@ public class SoundFactory {
         
         lastTime = now;
         
-        new Thread(new Runnable() { 
+        ExecutorFactory.getEvents().execute(new Runnable() {
             @Override
             public void run() {
                 for(int i=0; i < loop; i++)
                     sound.play();
             }
-        }).start();
+        });
     } 
 }
\ No newline at end of file
@@ -37,6 +37,44 @@ public class Card implements Serializable {
     protected final int rank;
     private final Suit suit;
     
+    // One of each card: cards are immutable so these can be shared freely
+    private final static Card[] CACHE = new Card[52];
+    
+    static {
+        for(int rank=ACE; rank <= KING; rank++)
+            for(Suit suit: Suit.values())
+                CACHE[code(rank, suit)] = new Card(rank, suit);
+    }
+    
+    /**
+     * Gets the shared instance of a card.
+     * @param rank Rank
+     * @param suit Suit
+     * @return Card
+     */
+    public static Card valueOf(int rank, Suit suit) {
+        return CACHE[code(rank, suit)];
+    }
+    
+    /**
+     * Gets the shared instance of a card from its code.
+     * @param code Code in 0-51
+     * @return Card
+     */
+    public static Card valueOf(int code) {
+        return CACHE[code];
+    }
+    
+    /**
+     * Packs a card into a code in 0-51.
+     * @param rank Rank
+     * @param suit Suit
+     * @return Code
+     */
+    public static int code(int rank, Suit suit) {
+        return (rank - 1) * 4 + suit.ordinal();
+    }
+    
     /**
      * Copy constructor
      * @param card Card to copy
@@ -37,6 +37,11 @@ public class Hand implements Serializable {
     protected List<Card> cards = new ArrayList<>();
     protected int[] values;
     
+    // Packed states, see HandState: visible cards only and all cards
+    protected int state = HandState.EMPTY;
+    protected int full = HandState.EMPTY;
+    protected boolean hidden = false;
+    
     /**
      * Constructor
      */
@@ -53,6 +58,19 @@ public class Hand implements Serializable {
         values = new int[2];
     }
     
+    /**
+     * Empties the hand so the dealer can use it again in the next game.
+     * @param hid Hand id for the next game
+     */
+    public void reset(Hid hid) {
+        this.hid = hid;
+        cards.clear();
+        values[Constant.HAND_LITERAL_VALUE] = 0;
+        values[Constant.HAND_SOFT_VALUE] = 0;
+        state = full = HandState.EMPTY;
+        hidden = false;
+    }
+    
     /**
      * Gets a card in the hand.
      * @param k Index
@@ -78,22 +96,20 @@ public class Hand implements Serializable {
      * @return True if hand gt 21
      */
     public boolean isBroke() {
-        if(values[Constant.HAND_LITERAL_VALUE] > 21 && values[Constant.HAND_SOFT_VALUE] > 21)
-            return true;
-        
-        return false;
+        return HandState.isBroke(state);
     }
     
     /**
      * Tests if hand has a blackjack.
+     * A split hand which draws to A+10 is only 21, not a blackjack.
      * @return True if hand has A+10
      */
     public boolean isBlackjack() {
-        if(cards.size() == 2 && values[Constant.HAND_SOFT_VALUE] == 21)
-            if(cards.get(0).isAce() || cards.get(1).isAce())
-                return true;
+        if(hid.isSplit())
+            return false;
         
-        return false;
+        // Soft 21 on two counted cards can only be A+10
+        return cards.size() == 2 && HandState.soft(state) == 21;
     }
     
     /**
@@ -101,10 +117,7 @@ public class Hand implements Serializable {
      * @return True if hand has A+10
      */    
     public boolean isCharlie() {
-        if(cards.size() == 5 && getValue() <= 21)
-            return true;
-        
-        return false;
+        return cards.size() == 5 && HandState.value(state) <= 21;
     }
     
     /**
@@ -112,10 +125,7 @@ public class Hand implements Serializable {
      * @return True if hand has 2+2, 3+3, etc.
      */
     public boolean isPair() {
-        if(cards.size() != 2)
-            return false;
-        
-        return cards.get(0).rank == cards.get(1).rank;
+        return HandState.isPair(full);
     }
     
     /**
@@ -139,18 +149,19 @@ public class Hand implements Serializable {
      */
     public void hit(Card card) {
         this.cards.add(card);
+        
+        full = HandState.hit(full, card.rank);
 
         // If the card is a hole card, don't count it
-        if(card instanceof HoleCard)
+        if(card instanceof HoleCard) {
+            hidden = true;
             return;
+        }
         
-        Integer value = card.value();
-        
-        values[Constant.HAND_LITERAL_VALUE] += value;
-        values[Constant.HAND_SOFT_VALUE] += value;
+        // Until there's a hole card, every card counts
+        state = hidden ? HandState.hit(state, card.rank) : full;
         
-        if(card.isAce() && values[Constant.HAND_SOFT_VALUE]+10 <= 21)
-            values[Constant.HAND_SOFT_VALUE] += 10;
+        update();
     }
     
     /**
@@ -169,7 +180,7 @@ public class Hand implements Serializable {
         Card card = this.cards.remove(1);
         
         // Update "this" hand's values
-        this.revalue();
+        this.recount();
         
         // Give the new hand a card, the card we removed from this hand
         newHand.hit(card);
@@ -185,17 +196,47 @@ public class Hand implements Serializable {
      * hole card.
      */
     public void revalue() {
-        values[Constant.HAND_LITERAL_VALUE] = values[Constant.HAND_SOFT_VALUE] = 0;
+        // All cards have been counted all along
+        state = full;
+        hidden = false;
+        
+        update();
+    }
+    
+    /**
+     * Recounts the cards from scratch, for instance, after a split.
+     */
+    protected void recount() {
+        state = full = HandState.EMPTY;
+        hidden = false;
         
         for(Card card: cards) {
-            int value = card.value();
+            full = HandState.hit(full, card.rank);
             
-            values[Constant.HAND_LITERAL_VALUE] += value;
-            values[Constant.HAND_SOFT_VALUE] += value;
-            
-            if(card.isAce() && values[Constant.HAND_SOFT_VALUE]+10 <= 21)
-                values[Constant.HAND_SOFT_VALUE] += 10;
+            if(card instanceof HoleCard)
+                hidden = true;
+            else
+                state = hidden ? HandState.hit(state, card.rank) : full;
         }
+        
+        update();
+    }
+    
+    /**
+     * Copies the totals to the values array.
+     */
+    protected void update() {
+        values[Constant.HAND_LITERAL_VALUE] = HandState.hard(state);
+        values[Constant.HAND_SOFT_VALUE] = HandState.soft(state);
+    }
+    
+    /**
+     * Gets the packed state of the counted cards for constant time
+     * queries with HandState.
+     * @return Hand state
+     */
+    public int getState() {
+        return state;
     }
     
     /**
@@ -211,7 +252,7 @@ public class Hand implements Serializable {
      * @return Hand value
      */
     public int getValue() {
-        return Hand.getValue(values);        
+        return HandState.value(state);
     }
     
     /**
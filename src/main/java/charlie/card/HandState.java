@@ -0,0 +1,208 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.card;
+
+/**
+ * This class evaluates hands packed into an int so totals and tests cost
+ * a table lookup or a mask and never allocate. The state layout is:
+ * <pre>
+ *  bits  0-5   hard total, aces count 1
+ *  bit   6     soft bonus: an ace arrived when it could count 11
+ *  bits  7-9   number of cards, stops at 7
+ *  bits 10-13  rank of the first card
+ *  bit  14     first two cards are a pair
+ * </pre>
+ * The soft bonus follows Hand's rule exactly: an ace counts 11 only if it
+ * fits when it's dealt, so the soft value is the hard total plus 10 once
+ * the bonus is set, even if that later goes over 21.
+ * @author Ron Coleman
+ */
+public final class HandState {
+    /** A hand with no cards */
+    public final static int EMPTY = 0;
+    
+    protected final static int HARD = 0x3F;
+    protected final static int BONUS = 1 << 6;
+    protected final static int TOTALS = HARD | BONUS;
+    protected final static int COUNT_SHIFT = 7;
+    protected final static int COUNT = 0x7 << COUNT_SHIFT;
+    protected final static int RANK_SHIFT = 10;
+    protected final static int RANK = 0xF << RANK_SHIFT;
+    protected final static int PAIR = 1 << 14;
+    
+    // Next totals by current totals and card value (1-10)
+    protected final static byte[] STEP = new byte[(TOTALS + 1) * 11];
+    
+    // Soft and unified values by totals
+    protected final static byte[] SOFT = new byte[TOTALS + 1];
+    protected final static byte[] VALUE = new byte[TOTALS + 1];
+    
+    static {
+        for(int totals=0; totals <= TOTALS; totals++) {
+            int hard = totals & HARD;
+            boolean bonus = (totals & BONUS) != 0;
+            
+            int soft = bonus ? hard + 10 : hard;
+            
+            SOFT[totals] = (byte) soft;
+            VALUE[totals] = (byte) (soft <= 21 ? soft : hard);
+            
+            for(int value=1; value <= 10; value++) {
+                int next = Math.min(hard + value, HARD);
+                
+                // Ace gets the bonus only if it fits right now
+                boolean nextBonus = bonus || (value == 1 && soft + 11 <= 21);
+                
+                STEP[totals * 11 + value] = (byte) (next | (nextBonus ? BONUS : 0));
+            }
+        }
+    }
+    
+    private HandState() {
+        
+    }
+    
+    /**
+     * Hits a hand.
+     * @param state Hand state
+     * @param rank Card rank, 1-13
+     * @return New hand state
+     */
+    public static int hit(int state, int rank) {
+        int value = rank >= 10 ? 10 : rank;
+        
+        int count = (state & COUNT) >>> COUNT_SHIFT;
+        
+        int next = STEP[(state & TOTALS) * 11 + value];
+        
+        if(count == 0)
+            next |= rank << RANK_SHIFT;
+        else
+            next |= state & RANK;
+        
+        if(count == 1 && rank == (state & RANK) >>> RANK_SHIFT)
+            next |= PAIR;
+        
+        return next | Math.min(count + 1, 7) << COUNT_SHIFT;
+    }
+    
+    /**
+     * Hits a hand.
+     * @param state Hand state
+     * @param card Card
+     * @return New hand state
+     */
+    public static int hit(int state, Card card) {
+        return hit(state, card.getRank());
+    }
+    
+    /**
+     * Gets the hard total where aces count 1.
+     * @param state Hand state
+     * @return Hard total
+     */
+    public static int hard(int state) {
+        return state & HARD;
+    }
+    
+    /**
+     * Gets the soft total which includes the ace bonus, if any.
+     * @param state Hand state
+     * @return Soft total
+     */
+    public static int soft(int state) {
+        return SOFT[state & TOTALS];
+    }
+    
+    /**
+     * Gets the unified value: the soft total unless it's over 21.
+     * @param state Hand state
+     * @return Value
+     */
+    public static int value(int state) {
+        return VALUE[state & TOTALS];
+    }
+    
+    /**
+     * Tests if an ace is counting 11.
+     * @param state Hand state
+     * @return True if the hand is soft
+     */
+    public static boolean isSoft(int state) {
+        return (state & BONUS) != 0 && SOFT[state & TOTALS] <= 21;
+    }
+    
+    /**
+     * Tests if the hand is over 21.
+     * @param state Hand state
+     * @return True if broke
+     */
+    public static boolean isBroke(int state) {
+        return (state & HARD) > 21;
+    }
+    
+    /**
+     * Tests for two cards totaling 21.
+     * @param state Hand state
+     * @return True if blackjack
+     */
+    public static boolean isBlackjack(int state) {
+        return size(state) == 2 && SOFT[state & TOTALS] == 21;
+    }
+    
+    /**
+     * Tests for five cards not over 21.
+     * @param state Hand state
+     * @return True if Charlie
+     */
+    public static boolean isCharlie(int state) {
+        return size(state) == 5 && (state & HARD) <= 21;
+    }
+    
+    /**
+     * Tests if the hand is two cards of the same rank.
+     * @param state Hand state
+     * @return True if a pair
+     */
+    public static boolean isPair(int state) {
+        return (state & PAIR) != 0 && size(state) == 2;
+    }
+    
+    /**
+     * Gets the rank of the first card, for instance, to play a pair.
+     * @param state Hand state
+     * @return Rank or zero if no cards
+     */
+    public static int firstRank(int state) {
+        return (state & RANK) >>> RANK_SHIFT;
+    }
+    
+    /**
+     * Gets the number of cards, up to 7.
+     * @param state Hand state
+     * @return Card count
+     */
+    public static int size(int state) {
+        return (state & COUNT) >>> COUNT_SHIFT;
+    }
+}
@@ -110,6 +110,22 @@ public class Hid implements Serializable {
         this(seat,Constant.MIN_BET,0.0);
     }
 
+    /**
+     * Gets the key which makes the hand id unique.
+     * @return Key
+     */
+    public long getKey() {
+        return key;
+    }
+    
+    /**
+     * Sets the key, for instance, when decoding a hand id off the wire.
+     * @param key Key
+     */
+    public void setKey(long key) {
+        this.key = key;
+    }
+    
     /**
      * Adds a play to the hand history.
      * @param play Play
@@ -206,12 +222,13 @@ public class Hid implements Serializable {
     }
     
     /**
-     * Hashes this object to insure hash code based on hand id.
+     * Hashes this object on the key, as equals does, without building
+     * the string.
      * @return Hash code
      */
     @Override
     public int hashCode() {
-        return this.toString().hashCode();
+        return Long.hashCode(key);
     }
 
     /**
@@ -25,18 +25,31 @@ package charlie.dealer;
 import charlie.plugin.*;
 import charlie.card.Hand;
 import charlie.actor.House;
-import charlie.actor.RealPlayer;
 import charlie.card.Card;
 import charlie.card.HoleCard;
 import charlie.card.Hid;
-import charlie.shoe.ShoeFactory;
+import charlie.history.HandRecord;
+import charlie.history.HistoryWriter;
+import charlie.history.Outcome;
+import charlie.message.view.to.Deal;
+import charlie.message.view.to.Snapshot;
+import charlie.metrics.Counter;
+import charlie.metrics.Histogram;
+import charlie.metrics.Metrics;
 import charlie.util.Constant;
+import charlie.util.Helper;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Properties;
-import java.util.logging.Level;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import charlie.util.Play;
 import org.apache.log4j.Logger;
@@ -60,12 +73,10 @@ public class Dealer implements Serializable {
     protected final static Double LOSS = -1.0;   
     protected final static Double PUSH = 0.0;
     protected IShoe shoe;
-    protected HashMap<Hid,Hand> hands = new HashMap<>();
-    protected HashMap<Hid,IPlayer> players = new HashMap<>();
-    protected List<Hid> handSequence = new ArrayList<>();
+    protected final Slots slots = new Slots();
     protected List<IPlayer> playerSequence = new ArrayList<>();
     protected final House house;
-    protected Integer nextHandIndex = 0;
+    protected int nextHandIndex = 0;
     protected IPlayer active = null;
     protected ISideBetRule sideRule = null;
     protected Hand dealerHand;
@@ -73,8 +84,56 @@ public class Dealer implements Serializable {
     protected boolean gameOver = false;
     protected boolean shufflePending = false;
     
-    // To "delay" deal so cards do not come out too fast
-    protected final int DEAL_DELAY = 1000;
+    // Players sharing a pooled table take turns: bets wait here while a game is on
+    protected boolean inPlay = false;
+    protected final ArrayDeque<Wager> waiting = new ArrayDeque<>();
+    protected final Set<IPlayer> gone = new HashSet<>();
+    protected final List<Runnable> departures = new ArrayList<>();
+    
+    // Hands paid out this game, so a failed game refunds only the rest
+    protected final Set<Hid> settled = new HashSet<>();
+    
+    // Game phases the dealer steps through
+    protected enum State { IDLE, DEALING, PLAYING, DEALER }
+    protected State state = State.IDLE;
+    
+    // Pause between cards so they do not come out too fast, zero to deal
+    // straight through for bots and simulation
+    protected long pace = Helper.getPropertyOrElse(Constant.DEALER_PACE, Constant.DEAL_DELAY);
+    
+    // Phases of the game, in System.nanoTime()
+    protected final static Counter GAMES = Metrics.counter("dealer.games");
+    protected final static Counter SHUFFLES = Metrics.counter("shoe.shuffles");
+    protected final static Histogram DEALING = Metrics.histogram("dealer.start");
+    protected final static Histogram DECISION = Metrics.histogram("dealer.decision");
+    protected final static Histogram CLOSING = Metrics.histogram("dealer.close");
+    protected final static Histogram GAME = Metrics.histogram("dealer.game");
+    protected long started;
+    protected long turned;
+    protected long closed;
+    
+    // Plugins resolved at startup and the bots at the table this hand by seat
+    protected final PluginRegistry plugins = PluginRegistry.getInstance();
+    protected final HashMap<String,String> botKeys = new HashMap<>();
+    protected final static Seat[] SEATS = Seat.values();
+    protected final IBot[] bots = new IBot[SEATS.length];
+    protected final EnumMap<Seat,Plugin<IBot>> botPlugins = new EnumMap<>(Seat.class);
+    
+    // Hand history, if there is one, and this table's game in progress
+    protected HistoryWriter history = HistoryWriter.getInstance();
+    protected final HandRecord record = new HandRecord();
+    
+    // Initial deal in progress: hands in order and cards dealt so far
+    protected List<Hid> dealing;
+    protected int dealt;
+    
+    // Steps and batch lists made once rather than every hand
+    protected final Runnable dealNextStep = this::dealNext;
+    protected final Runnable drawStep = this::draw;
+    protected final ArrayDeque<List<IPlayer>> spareBatches = new ArrayDeque<>();
+    
+    // Shared by all tables: paced steps wait here instead of on a thread
+    protected static ScheduledExecutorService scheduler;
     
     /**
      * Constructor
@@ -84,12 +143,10 @@ public class Dealer implements Serializable {
         this.house = house;
 
         // Instantiate the shoe
-        Properties props = System.getProperties();
-        
-        String scenario = props.getProperty(Constant.PLUGIN_SHOE, "charlie.shoe.Shoe");
-        LOG.info("using scenario = '"+scenario+"'");
+        Plugin<IShoe> scenario = plugins.get(Constant.PLUGIN_SHOE, IShoe.class);
+        LOG.info("using scenario = '"+(scenario == null ? null : scenario.getType().getName())+"'");
         
-        shoe = ShoeFactory.getInstance(scenario);
+        shoe = scenario == null ? null : scenario.newInstance();
         
         shoe.init();
         
@@ -98,16 +155,39 @@ public class Dealer implements Serializable {
         loadSideRule();
     }
     
+    /**
+     * Constructor for a dealer with a shoe of its own, for instance, a
+     * seeded shoe in simulation.
+     * @param house House actor which launched dealer, null if none.
+     * @param shoe Initialized shoe
+     */
+    public Dealer(House house, IShoe shoe) {
+        this.house = house;
+        this.shoe = shoe;
+        
+        loadSideRule();
+    }
+    
     /**
      * Receives a bet request from a "real" you. Don't invoke this method
      * for a bot. Bots are spawned by this method.
-     * @param you Real player
+     * @param you Real player, or an in-process player in simulation
      * @param hid Hand id
      */
-    public void bet(RealPlayer you,Hid hid) {
-        LOG.info("got new bet = "+ hid.getAmt() +
-                " side bet = "+ hid.getSideAmt() +
-                " from " + you + " for hid = " + hid);
+    public synchronized void bet(IPlayer you,Hid hid) {
+        if(LOG.isInfoEnabled())
+            LOG.info("got new bet = "+ hid.getAmt() +
+                    " side bet = "+ hid.getSideAmt() +
+                    " from " + you + " for hid = " + hid);
+        
+        // Another player at this table is mid-game: play this bet next
+        if(inPlay) {
+            LOG.info("game in play, queueing bet from "+you);
+            waiting.add(new Wager(you, hid));
+            return;
+        }
+        
+        inPlay = true;
         
         // Clear out old hands, if any
         reset();
@@ -124,23 +204,129 @@ public class Dealer implements Serializable {
         // We'll start with this sequence number when playing hands
         nextHandIndex = 0;
 
-        // Create the dealer hand
-        dealerHand = new Hand(new Hid(Seat.DEALER));
+        // Create the dealer hand, reusing the last one's
+        if(dealerHand == null)
+            dealerHand = new Hand(new Hid(Seat.DEALER));
+        else
+            dealerHand.reset(new Hid(Seat.DEALER));
         
         // Let the game begin!
-        startGame();
+        List<IPlayer> batch = startBatch();
+        
+        try {
+            startGame();
+        }
+        finally {
+            endBatch(batch);
+        }
     }
         
+    /**
+     * Removes a player leaving the table, including any bet it has waiting.
+     * @param player Player
+     */
+    public void leave(IPlayer player) {
+        leave(player, null);
+    }
+    
+    /**
+     * Removes a player leaving the table, including any bet it has waiting.
+     * Hands the player has in play stand and are settled as usual, so the
+     * house must keep the player's account until they are.
+     * @param player Player
+     * @param settled Runs once the player's hands are settled, right away
+     * if there are none, or null
+     */
+    public synchronized void leave(IPlayer player, Runnable settled) {
+        if(waiting.removeIf(wager -> wager.player == player))
+            LOG.info("dropped waiting bet from "+player);
+        
+        if(!inPlay || !playerSequence.contains(player)) {
+            if(settled != null)
+                settled.run();
+            
+            return;
+        }
+        
+        // Player walked away mid-game: its hands stand as they are
+        LOG.info("player left mid-game "+player);
+        gone.add(player);
+        
+        if(settled != null)
+            departures.add(settled);
+        
+        // A split hand still getting its second card stays once it's dealt
+        if(active == player && nextHandIndex > 0 && state == State.PLAYING)
+            stay(player, slots.hid(nextHandIndex - 1));
+    }
+    
+    /**
+     * Takes a snapshot of the game for a player coming back to the table.
+     * The cards of each hand are replayed as they were dealt, so the hand
+     * values match what the players saw, and the dealer's hole card stays
+     * hidden until it's the dealer's turn. Hands are copies, since the
+     * snapshot is sent after the dealer moves on.
+     * @return Snapshot, without hands between games
+     */
+    public synchronized Snapshot snapshot() {
+        List<Hid> hids = new ArrayList<>();
+        List<Deal> deals = new ArrayList<>();
+        Hid turn = null;
+        
+        if(!inPlay || dealerHand == null)
+            return new Snapshot(hids, deals, turn, shoe.size());
+        
+        for(int slot=0; slot < slots.size(); slot++) {
+            hids.add(new Hid(slots.hid(slot)));
+            
+            replay(slots.hand(slot), deals, false);
+        }
+        
+        hids.add(new Hid(dealerHand.getHid()));
+        
+        replay(dealerHand, deals, state == State.DEALER);
+        
+        if(state == State.DEALER)
+            turn = new Hid(dealerHand.getHid());
+        
+        else if(state == State.PLAYING && nextHandIndex > 0)
+            turn = new Hid(slots.hid(nextHandIndex - 1));
+        
+        return new Snapshot(hids, deals, turn, shoe.size());
+    }
+    
+    /**
+     * Adds the deals of a hand to a snapshot.
+     * @param hand Hand
+     * @param deals Deals
+     * @param reveal True if the hole card has been revealed
+     */
+    protected void replay(Hand hand, List<Deal> deals, boolean reveal) {
+        Hid hid = new Hid(hand.getHid());
+        Hand copy = new Hand(hid);
+        
+        for(int i=0; i < hand.size(); i++) {
+            Card card = hand.getCard(i);
+            
+            copy.hit(card);
+            deals.add(new Deal(hid, copy.getValues().clone(), card));
+            
+            // The hole card counts from the dealer's turn on
+            if(reveal && i == 1) {
+                copy.revalue();
+                deals.add(new Deal(hid, copy.getValues().clone(), null));
+            }
+        }
+    }
+    
     /**
      * Inserts a player at the table.
      * @param you You player
      * @param yours Your hand id
      */
     protected void sitPlayer(IPlayer you,Hid yours) {
-        handSequence.add(yours);
+        slots.add(yours, you);
         playerSequence.add(you); 
-        players.put(yours, you);
-        hands.put(yours, new Hand(yours));        
     }
     
     /**
@@ -156,21 +342,25 @@ public class Dealer implements Serializable {
         }
         
         String name_ = name.toLowerCase();
-        Properties props = System.getProperties();
         
-        String className = props.getProperty("charlie.bot." + name_);
-        if (className == null) {
-            LOG.info("no bot configured for charlie.bot."+name_);
+        String key = botKeys.computeIfAbsent(name_, n -> Constant.PLUGIN_BOT + n);
+        
+        Plugin<IBot> plugin = plugins.get(key, IBot.class);
+        if (plugin == null) {
+            if(LOG.isInfoEnabled())
+                LOG.info("no bot configured for "+key);
             return null;
         }
         
-        LOG.info("attempting to spawn bot "+name_+" class = "+className);
-
-        Class<?> clazz;
-        try {
-            clazz = Class.forName(className);
+        if(LOG.isInfoEnabled())
+            LOG.info("attempting to spawn bot "+name_+" class = "+plugin.getType().getName());
 
-            IBot bot = (IBot) clazz.newInstance();
+        // The same bot plays hand after hand if pooling is on
+        IBot bot = plugin.acquire();
+        
+        if(bot != null) {
+            bots[seat.ordinal()] = bot;
+            botPlugins.put(seat, plugin);
             
             bot.sit(seat);
             
@@ -179,30 +369,38 @@ public class Dealer implements Serializable {
             Hand hand = bot.getHand();
             Hid hid = hand.getHid();
 
-            handSequence.add(hid);
+            slots.add(hid, hand, bot);
             
             playerSequence.add(bot);
-            
-            players.put(hid, bot);
-            
-            hands.put(hid, hand);
            
-            LOG.info("successfully spawned bot = "+name_);
-            return bot;
-        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
-            LOG.error("caught exception: " + ex);
+            if(LOG.isInfoEnabled())
+                LOG.info("successfully spawned bot = "+name_);
         }
-
-        return null;
+        
+        return bot;
     }
     
     /**
      * Resets the state of the game.
      */
     protected void reset() {
-        handSequence.clear();
+        // Bots from the last hand can play at any table now
+        for(Seat seat: SEATS) {
+            IBot bot = bots[seat.ordinal()];
+            
+            if(bot != null)
+                botPlugins.get(seat).release(bot);
+            
+            bots[seat.ordinal()] = null;
+        }
+        
+        botPlugins.clear();
+        
+        slots.clear();
         playerSequence.clear();
-        hands.clear();        
+        gone.clear();
+        settled.clear();
+        active = null;
     }
     
     /**
@@ -212,6 +410,9 @@ public class Dealer implements Serializable {
     protected Card deal() {
         Card card = shoe.next();
         
+        if(history != null)
+            record.card(card);
+        
         checkShoe();
         
         return card;
@@ -250,6 +451,22 @@ public class Dealer implements Serializable {
 //        }   
 //    }
     
+    /**
+     * Sets the pause between cards at this table.
+     * @param pace Milliseconds, zero to deal without pausing
+     */
+    public void setPace(long pace) {
+        this.pace = pace;
+    }
+    
+    /**
+     * Gets the pause between cards at this table.
+     * @return Milliseconds
+     */
+    public long getPace() {
+        return pace;
+    }
+    
     /**
      * Starts the game.
      */
@@ -258,70 +475,140 @@ public class Dealer implements Serializable {
         
         gameOver = false;
         
-        try {
-            // Gather up all the initial hands (ie, not including splits)
-            List<Hid> hids = new ArrayList<>();
-            
-            for(Hid hid: handSequence) {
-                hids.add(hid);
-            }
-            
-            // Include the dealer's hand
-            hids.add(dealerHand.getHid());
-          
+        started = System.nanoTime();
+        turned = 0;
+        
+        if(history != null)
+            record.reset(System.currentTimeMillis());
+        
+        // Gather up all the initial hands (ie, not including splits)
+        // The players keep this list, so it's theirs and not the dealer's
+        List<Hid> hids = new ArrayList<>(slots.size() + 1);
+
+        for(int slot=0; slot < slots.size(); slot++) {
+            hids.add(slots.hid(slot));
+        }
+
+        // Include the dealer's hand
+        hids.add(dealerHand.getHid());
+
+        if(LOG.isInfoEnabled())
             LOG.info("hands at table + dealer = "+hids.size());
-            
-            
-            // Tell each player we're starting a game
-            for(IPlayer player: playerSequence)              
-                player.startGame(hids,shoe.size());
-            
-//            shuffle();
-            
-            Thread.sleep(250);
-            
-            // First round card to everyone
-            round(hids);
-            
-            Card card = deal();
-            
+
+        // Tell each player we're starting a game
+        for(IPlayer player: playerSequence)              
+            player.startGame(hids,shoe.size());
+        
+        // Two rounds of cards to everyone, dealer last
+        state = State.DEALING;
+        dealing = hids;
+        dealt = 0;
+        
+        later(pace / 3, dealNextStep);
+    }
+    
+    /**
+     * Deals the next card of the initial two rounds.
+     */
+    protected void dealNext() {
+        if(dealt == 2 * dealing.size()) {
+            dealt();
+            return;
+        }
+        
+        // Slots come first in the deal, then the dealer
+        int slot = dealt % dealing.size();
+        boolean firstRound = dealt < dealing.size();
+        
+        dealt++;
+        
+        if(slot == dealing.size() - 1)
+            dealDealer(firstRound);
+        else
+            dealPlayer(slot);
+        
+        later(pace, dealNextStep);
+    }
+    
+    /**
+     * Deals an initial card to a player's hand.
+     * @param slot Slot of the hand
+     */
+    protected void dealPlayer(int slot) {
+        Hid hid = slots.hid(slot);
+        
+        // Get a card from the shoe
+        Card card = deal();
+
+        // Deal this card
+        if(LOG.isInfoEnabled())
+            LOG.info("dealing to "+slots.player(slot)+" card = "+card); 
+
+        // Save it to dealer's copy of hand
+        Hand hand = slots.hand(slot);
+
+        hand.hit(card);
+        hid.request(Play.HIT);
+
+        // Distribute the hard to everyone, even if it's not theirs
+        for (IPlayer _player : playerSequence) {
+            _player.deal(hid, card, hand.getValues());
+        }
+
+        // If player has blackjack -- they win automatically!
+        if (hand.isBlackjack()) {
+            updateBankroll(hid,BLACKJACK_PAYS);
+
+            for (IPlayer player_ : playerSequence) {
+                player_.blackjack(hid);
+            }
+        }
+    }
+    
+    /**
+     * Deals the dealer's hole card or up card.
+     * @param hole True for the hole card
+     */
+    protected void dealDealer(boolean hole) {
+        Card card = deal();
+        
+        if(hole) {
             holeCard = new HoleCard(card);
             dealerHand.hit(holeCard);  
-            
-            Thread.sleep(Constant.DEAL_DELAY);
-            
+
             for(IPlayer player: playerSequence) {
                 // Don't send hole card yet to bots -- they could see it
                 if(!(player instanceof IBot))
                     player.deal(dealerHand.getHid(), holeCard, dealerHand.getValues());
             }
-
-            // Second round card to everyone
-            round(hids);
-            
-            Card upCard = deal();
-            dealerHand.hit(upCard);
-            
-            Thread.sleep(Constant.DEAL_DELAY);
-            
-            for(IPlayer player: playerSequence)
-                player.deal(dealerHand.getHid(), upCard, dealerHand.getValues()); 
-            
-            // Revalue the dealer's hand since hit doesn't value hole card
-            dealerHand.revalue();
-            
-            // Check if players want to buy insurance
-            if(upCard.isAce())
-                insure();
-            
-            if(dealerHand.isBlackjack()) {
-                closeGame();
-            }
-            else
-                goNextHand();
-        } catch (InterruptedException e) {
             
+            return;
         }
+        
+        dealerHand.hit(card);
+
+        for(IPlayer player: playerSequence)
+            player.deal(dealerHand.getHid(), card, dealerHand.getValues()); 
+
+        // Revalue the dealer's hand since hit doesn't value hole card
+        dealerHand.revalue();
+
+        // Check if players want to buy insurance
+        if(card.isAce())
+            insure();
+    }
+    
+    /**
+     * Comes here when the initial deal is done to start play.
+     */
+    protected void dealt() {
+        state = State.PLAYING;
+        
+        if(dealerHand.isBlackjack()) {
+            closeGame();
+        }
+        else
+            goNextHand();
     }
     
     /**
@@ -332,52 +619,89 @@ public class Dealer implements Serializable {
     }
     
     /**
-     * Deals a round of cards to everyone.
-     * @param hids Hand ids
+     * Runs the next step of the game after a pause. Without a pause, the
+     * step runs right away on the caller's thread. Otherwise, the caller
+     * returns and a scheduler thread runs the step holding the dealer's lock
+     * just as a player request would.
+     * @param delay Pause in milliseconds
+     * @param step Next step
      */
-    protected void round(List<Hid> hids) {
-        try {
-            for(Hid hid: hids) {
-                IPlayer player = players.get(hid);
-                
-                // If there's no correspondsing player, must be dealer's hid_
-                if(player == null)
-                    continue;
-               
-                // Get a card from the shoe
-                Card card = deal();
-                
-                // Deal this card
-                LOG.info("dealing to "+player+" card 1 = "+card); 
-                
-                // Save it to dealer's copy of hand
-                Hand hand = this.hands.get(hid);
-                
-                hand.hit(card);
-                hid.request(Play.HIT);
-                                                
-                Thread.sleep(Constant.DEAL_DELAY);
+    protected void later(long delay, Runnable step) {
+        if(delay <= 0) {
+            step.run();
+            return;
+        }
+        
+        getScheduler().schedule(() -> {
+            synchronized(Dealer.this) {
+                List<IPlayer> batch = startBatch();
                 
-                // Distribute the hard to everyone, even if it's not theirs
-                for (IPlayer _player : playerSequence) {
-                    _player.deal(hid, card, hand.getValues());
+                try {
+                    step.run();
                 }
-                
-                // If player has blackjack -- they win automatically!
-                if (hand.isBlackjack()) {
-//                    hid.multiplyAmt(BLACKJACK_PAYS);
-
-                    updateBankroll(hid,BLACKJACK_PAYS);
-
-                    for (IPlayer player_ : playerSequence) {
-                        player_.blackjack(hid);
-                    }
+                catch(Exception e) {
+                    LOG.error("dealer step failed", e);
+                    
+                    abort();
                 }
-            }            
-        }
-        catch(InterruptedException e) {
+                finally {
+                    endBatch(batch);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Tells the players at the table a dealer step is starting so they can
+     * send its events together.
+     * @return Players told, since the table may change during the step
+     */
+    protected List<IPlayer> startBatch() {
+        List<IPlayer> batch = spareBatches.poll();
+        
+        if(batch == null)
+            batch = new ArrayList<>(playerSequence.size());
+        
+        // Not addAll which copies the players to an array first
+        for(int i=0; i < playerSequence.size(); i++)
+            batch.add(playerSequence.get(i));
+        
+        for(IPlayer player: batch)
+            player.startBatch();
+        
+        return batch;
+    }
+    
+    /**
+     * Tells the players a dealer step is done.
+     * @param batch Players told the step started
+     */
+    protected void endBatch(List<IPlayer> batch) {
+        for(IPlayer player: batch)
+            player.endBatch();
+        
+        batch.clear();
+        spareBatches.push(batch);
+    }
+    
+    /**
+     * Gets the scheduler for paced steps, starting it if necessary.
+     * @return Scheduler
+     */
+    protected static synchronized ScheduledExecutorService getScheduler() {
+        if(scheduler == null) {
+            int n = Helper.getPropertyOrElse(Constant.DEALER_THREADS, Runtime.getRuntime().availableProcessors());
+            
+            AtomicInteger count = new AtomicInteger();
             
+            scheduler = Executors.newScheduledThreadPool(n, runnable -> {
+                Thread thread = new Thread(runnable, "dealer-"+count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        
+        return scheduler;
     }
     
     /**
@@ -385,67 +709,77 @@ public class Dealer implements Serializable {
      * @param iplayer Player requesting a hit.
      * @param hid Player's hand id
      */
-    public void hit(IPlayer iplayer, Hid hid) {
-        // Validate the request
-        Hand hand = validate(hid);
-        if(hand == null) {
-            LOG.error("got invalid HIT player = "+iplayer);
-            return;
-        }
+    public synchronized void hit(IPlayer iplayer, Hid hid) {
+        List<IPlayer> batch = startBatch();
         
-        // Deal a card
-        Card card = deal();
-        hand.hit(card);
+        try {
+            // Validate the request
+            Hand hand = validate(hid);
+            if(hand == null) {
+                LOG.error("got invalid HIT player = "+iplayer);
+                return;
+            }
+            
+            decided();
+        
+            // Deal a card
+            Card card = deal();
+            hand.hit(card);
 
-        hid.request(Play.HIT);
+            hid.request(Play.HIT);
 
-        LOG.info("hit hid = " + hid + " with " + card);
+            if(LOG.isInfoEnabled())
+                LOG.info("hit hid = " + hid + " with " + card);
 
-        // All players MUST test for charlie. Otherwise they will
-        // not know they have this hand and may try to hit if hand<21.
-        for (IPlayer player : playerSequence) {
-            player.deal(hid, card, hand.getValues());
-        }
+            // All players MUST test for charlie. Otherwise they will
+            // not know they have this hand and may try to hit if hand<21.
+            for (IPlayer player : playerSequence) {
+                player.deal(hid, card, hand.getValues());
+            }
 
 
-        // If the hand isBroke, we're done with this hand
-        if(hand.isBroke()) {
-            updateBankroll(hid,LOSS);
+            // If the hand isBroke, we're done with this hand
+            if(hand.isBroke()) {
+                updateBankroll(hid,LOSS);
             
-            // Tell everyone what happened
-            for (IPlayer _player : playerSequence)
-                _player.bust(hid);
+                // Tell everyone what happened
+                for (IPlayer _player : playerSequence)
+                    _player.bust(hid);
 
-            LOG.info("going to next hand");
-            goNextHand();
-        }
-        // If hand got a Charlie or Blackjack, we're done with this hand
-        else if(hand.isCharlie()) {
-//            hid.multiplyAmt(CHARLIE_PAYS);
-            hid.request(Play.STAY);
+                LOG.info("going to next hand");
+                goNextHand();
+            }
+            // If hand got a Charlie or Blackjack, we're done with this hand
+            else if(hand.isCharlie()) {
+    //            hid.multiplyAmt(CHARLIE_PAYS);
+                hid.request(Play.STAY);
             
-            updateBankroll(hid,CHARLIE_PAYS);
+                updateBankroll(hid,CHARLIE_PAYS);
             
-            // Tell everyone what happened
-            for (IPlayer _player : playerSequence)
-                _player.charlie(hid);
+                // Tell everyone what happened
+                for (IPlayer _player : playerSequence)
+                    _player.charlie(hid);
             
-            goNextHand();
-        }
-        else if(hand.isBlackjack()) {
-            hid.request(Play.STAY);
+                goNextHand();
+            }
+            else if(hand.isBlackjack()) {
+                hid.request(Play.STAY);
 
-            updateBankroll(hid,BLACKJACK_PAYS);
+                updateBankroll(hid,BLACKJACK_PAYS);
             
-            // Tell everyone what happened
-            for (IPlayer _player : playerSequence)
-                _player.charlie(hid);
+                // Tell everyone what happened
+                for (IPlayer _player : playerSequence)
+                    _player.charlie(hid);
             
-            goNextHand();
+                goNextHand();
+            }
+            // Player has 21: don't force player to break!
+            else if(hand.getValue() == 21) {
+                goNextHand();
+            }
         }
-        // Player has 21: don't force player to break!
-        else if(hand.getValue() == 21) {
-            goNextHand();
+        finally {
+            endBatch(batch);
         }
     }    
     
@@ -454,21 +788,31 @@ public class Dealer implements Serializable {
      * @param iplayer Player requesting a hit.
      * @param hid Player's hand id
      */
-    public void stay(IPlayer iplayer, Hid hid) {
-        // Validate the request
-        Hand hand = validate(hid);
-        if(hand == null) {
-            LOG.error("got invalid STAY player = "+iplayer);
-            return;
-        }
+    public synchronized void stay(IPlayer iplayer, Hid hid) {
+        List<IPlayer> batch = startBatch();
+        
+        try {
+            // Validate the request
+            Hand hand = validate(hid);
+            if(hand == null) {
+                LOG.error("got invalid STAY player = "+iplayer);
+                return;
+            }
+            
+            decided();
         
-        LOG.info("got STAY for "+hid);
+            if(LOG.isInfoEnabled())
+                LOG.info("got STAY for "+hid);
 
-        hid.request(Play.STAY);
+            hid.request(Play.STAY);
         
-        // Since player stayed, we're done with hand
-        LOG.info("going to next hand");
-        goNextHand();
+            // Since player stayed, we're done with hand
+            LOG.info("going to next hand");
+            goNextHand();
+        }
+        finally {
+            endBatch(batch);
+        }
     }
     
     /**
@@ -476,46 +820,56 @@ public class Dealer implements Serializable {
      * @param iplayer Player requesting a hit.
      * @param hid Player's hand id
      */
-    public void doubleDown(IPlayer iplayer, Hid hid) {
-        LOG.info("got double-down request");
+    public synchronized void doubleDown(IPlayer iplayer, Hid hid) {
+        List<IPlayer> batch = startBatch();
+        
+        try {
+            LOG.info("got double-down request");
 
-        // Validate the request
-        Hand hand = validate(hid);
+            // Validate the request
+            Hand hand = validate(hid);
         
-        if(hand == null) {
-            LOG.error("null hand double-down player = "+iplayer);
-            return;
-        }
+            if(hand == null) {
+                LOG.error("null hand double-down player = "+iplayer);
+                return;
+            }
+            
+            decided();
 
-        if(hand.size() != 2)
-            throw new UnsupportedOperationException("invalid hand size = "+hand.size());
+            if(hand.size() != 2)
+                throw new UnsupportedOperationException("invalid hand size = "+hand.size());
 
-        // Dealer must double bet since one in hid is a copy -- not dealers
-        hand.dubble();
+            // Dealer must double bet since one in hid is a copy -- not dealers
+            hand.dubble();
 
-        hid.request(Play.DOUBLE_DOWN);
+            hid.request(Play.DOUBLE_DOWN);
        
-        Card card = deal();
-        LOG.info("got double down amt = "+hid.getAmt()+" hid = "+hid+" card = "+card);
+            Card card = deal();
+            if(LOG.isInfoEnabled())
+                LOG.info("got double down amt = "+hid.getAmt()+" hid = "+hid+" card = "+card);
 
-        // Double the bet and hit the hand once
-        hand.hit(card);
+            // Double the bet and hit the hand once
+            hand.hit(card);
         
-        // Send the card out to everyone
-        for (IPlayer player : playerSequence)
-            player.deal(hid, card, hand.getValues());
+            // Send the card out to everyone
+            for (IPlayer player : playerSequence)
+                player.deal(hid, card, hand.getValues());
         
-        // If hand broke, update the account and tell everyone
-        if(hand.isBroke()) {
-            updateBankroll(hid,LOSS);
+            // If hand broke, update the account and tell everyone
+            if(hand.isBroke()) {
+                updateBankroll(hid,LOSS);
             
-            for (IPlayer _player : playerSequence)
-                _player.bust(hid);
-        }
+                for (IPlayer _player : playerSequence)
+                    _player.bust(hid);
+            }
         
-        // Go to next hand regardless on a double down
-        LOG.info("going to next hand");
-        goNextHand();
+            // Go to next hand regardless on a double down
+            LOG.info("going to next hand");
+            goNextHand();
+        }
+        finally {
+            endBatch(batch);
+        }
     }
     
     /**
@@ -524,79 +878,91 @@ public class Dealer implements Serializable {
      * @param player the player who requested the split
      * @param hid the hand to which needs splitting.
      */
-    public void split(IPlayer player, Hid hid) {
-        if(player instanceof IBot)
-            throw new UnsupportedOperationException("split not supported for IBot");
+    public synchronized void split(IPlayer player, Hid hid) {
+        List<IPlayer> batch = startBatch();
         
-        // First we need to validate original hand
-        Hand origHand = validate(hid);
+        try {
+            if(player instanceof IBot)
+                throw new UnsupportedOperationException("split not supported for IBot");
         
-        // Log any errors
-        if(origHand == null) {
-            LOG.error("got invalid SPLIT player = "+player);
-            return;
-        }
+            // First we need to validate original hand
+            Hand origHand = validate(hid);
         
-        // Create a new Hand ID from original.
-        // Same seat, same bet amount, but no sidebet as player
-        // does side bet and did or did not already.
-        Hid newHid = new Hid(hid.getSeat(), hid.getAmt(), 0);
+            // Log any errors
+            if(origHand == null) {
+                LOG.error("got invalid SPLIT player = "+player);
+                return;
+            }
+            
+            decided();
+        
+            // Create a new Hand ID from original.
+            // Same seat, same bet amount, but no sidebet as player
+            // does side bet and did or did not already.
+            Hid newHid = new Hid(hid.getSeat(), hid.getAmt(), 0);
 
-        // Want to let the HID's know they have been split aready
-        // to enforce 'rules' about splitting splits later.
-        newHid.setSplit(true);
-        hid.setSplit(true);
+            // Want to let the HID's know they have been split aready
+            // to enforce 'rules' about splitting splits later.
+            newHid.setSplit(true);
+            hid.setSplit(true);
 
-        hid.request(Play.SPLIT);
-        newHid.request(Play.SPLIT);
+            hid.request(Play.SPLIT);
+            newHid.request(Play.SPLIT);
         
-        // Let us split the original hand.
-        Hand newHand = origHand.split(newHid);
+            // Let us split the original hand.
+            Hand newHand = origHand.split(newHid);
         
-        // Log that we are doing a split action
-        // Guess we will log what cards we are splitting and the "new hand amount"
-        LOG.info("Player requested to split " 
-                + origHand.getCard(0).getName() 
-                + "'s."); 
-        LOG.info("HID: " + newHid + " created for hand: " + newHand );
+            // Log that we are doing a split action
+            // Guess we will log what cards we are splitting and the "new hand amount"
+            LOG.info("Player requested to split " 
+                    + origHand.getCard(0).getName() 
+                    + "'s."); 
+            LOG.info("HID: " + newHid + " created for hand: " + newHand );
 
-        // Add this hand to this player
-        players.put(newHand.getHid(), player);
-        
-        // Now that we have two hands we need to manipulate the handSeqIndex
-        // Think it will be easier to request it AFTER the current hand since that
-        // hand is actually "in play" ... 
-        int i = handSequence.indexOf(hid);
-        handSequence.add((i+1),newHand.getHid());
-        
-        hands.put(newHid, newHand);
+            // Now that we have two hands we need to manipulate the handSeqIndex
+            // Think it will be easier to request it AFTER the current hand since that
+            // hand is actually "in play" ... 
+            int i = slots.slotOf(hid);
+            slots.insert(i+1, newHid, newHand, player);
         
-        // Send back to the ATable what has just occurred.
-        player.split(newHid, hid);
+            // Send back to the ATable what has just occurred.
+            player.split(newHid, hid);
                 
-        // Need to hit one of the hands, might as well make it the 
-        // original.
-        this.hit(player, hid);
+            // Need to hit one of the hands, might as well make it the 
+            // original.
+            this.hit(player, hid);
+        }
+        finally {
+            endBatch(batch);
+        }
     }
      
     /**
      * Moves to the next hand at the table
      */
     protected void goNextHand() {
-        LOG.info("hand sequence index = "+ nextHandIndex +" hand sequence size = "+handSequence.size());
+        if(LOG.isInfoEnabled())
+            LOG.info("hand sequence index = "+ nextHandIndex +" hand sequence size = "+slots.size());
 
         // Get next hand and inform player
-        if (nextHandIndex < handSequence.size()) {
-            // Did we "hit" a split hand this time
-            boolean firstSplitHit = false;
-            
-            Hid hid = handSequence.get(nextHandIndex++);
+        if (nextHandIndex < slots.size()) {
+            int slot = nextHandIndex++;
+            Hid hid = slots.hid(slot);
 
-            active = players.get(hid);
-            LOG.info("active player = " + active);
+            active = slots.player(slot);
+            
+            if(LOG.isInfoEnabled())
+                LOG.info("active player = " + active);
+            
+            // Nobody is there to play this hand
+            if(gone.contains(active)) {
+                hid.request(Play.STAY);
+                goNextHand();
+                return;
+            }
 
             // Check for isBlackjack before moving on
-            Hand hand = this.hands.get(hid);
+            Hand hand = slots.hand(slot);
 
             // If hand has Blackjack, it's not automatic hand wins
             // since the dealer may also have isBlackjack
@@ -606,36 +972,36 @@ public class Dealer implements Serializable {
             }
             
             // Is this hand created from a "split" AND about to be new turn?
-            // If so, we need to "HIT" the hand with its first card.
-            if(hid.isSplit() && hand.size() == 1){
-                // Need to request a delay or it comes out too fast.
-                try{
-                    Thread.sleep(DEAL_DELAY);
+            // If so, we need to "HIT" the hand with its first card after
+            // a pause or it comes out too fast.
+            if(hid.isSplit() && hand.size() == 1) {
+                state = State.DEALING;
+                
+                later(pace, () -> {
+                    state = State.PLAYING;
                     
                     Card card = deal(); 
-                    
+
                     hand.hit(card);
                     
-                    firstSplitHit = true;
-                }catch(InterruptedException ex){
-                    LOG.error(ex.getMessage());
-                }
-            }
-
-            // Unless the player got a isBlackjack, tell the player they're
-            // to start playing this hand
-            for (IPlayer player: playerSequence) {
-                
-                // If the hand is a split, lets tell everyone a deal happened.
-                // Do this here to prevent using the same 'for loop' twice.
-                if(firstSplitHit){
-                    // tell players about hit
-                    player.deal(hid, hand.getCard(1), hand.getValues());
-                }
+                    // Tell everyone a deal happened
+                    for (IPlayer player: playerSequence)
+                        player.deal(hid, hand.getCard(1), hand.getValues());
+                    
+                    // Player left while the card was on its way
+                    if(gone.contains(active)) {
+                        hid.request(Play.STAY);
+                        goNextHand();
+                        return;
+                    }
+                    
+                    turn(hid);
+                });
                 
-                LOG.info("sending turn "+hid+" to "+player);
-                player.play(hid);
+                return;
             }
+            
+            turn(hid);
         }
         else
             // If there are no more hands, close out game with dealer
@@ -643,12 +1009,39 @@ public class Dealer implements Serializable {
             closeGame();
     }
     
+    /**
+     * Tells everyone it's a hand's turn to play.
+     * @param hid Hand id
+     */
+    protected void turn(Hid hid) {
+        long now = System.nanoTime();
+        
+        // First turn ends the initial deal
+        if(turned == 0)
+            DEALING.record(now - started);
+        
+        turned = now;
+        
+        for (IPlayer player: playerSequence) {
+            if(LOG.isInfoEnabled())
+                LOG.info("sending turn "+hid+" to "+player);
+            player.play(hid);
+        }
+    }
+    
+    /**
+     * Closes out the game with the dealer making the last play.
+     */
     protected void closeGame() { 
         if(gameOver)
             return;
         
         gameOver = true;
         
+        closed = System.nanoTime();
+        
+        state = State.DEALER;
+        
         // Tell everyone it's dealer's turn
         signal();
         
@@ -658,30 +1051,41 @@ public class Dealer implements Serializable {
      
         // Dealer only plays if there is someone standing and dealer doesn't
         // have Blackjack
-        if (handsStanding() && !dealerHand.isBlackjack()) {
-            // Draw until we reach (any) 17 or we break
-            while (dealerHand.getValue() < 17) {
-                Card card = deal();
-                
-                try {
-                    Thread.sleep(Constant.DEAL_DELAY);
-                }
-                catch (InterruptedException ex) {
-                    java.util.logging.Logger.getLogger(Dealer.class.getName()).log(Level.SEVERE, null, ex);
-                }
-                
-                dealerHand.hit(card);
+        if (handsStanding() && !dealerHand.isBlackjack())
+            later(pace, drawStep);
+        else
+            settle();
+    }
+    
+    /**
+     * Draws the dealer's next card until we reach (any) 17 or we break.
+     */
+    protected void draw() {
+        if(dealerHand.getValue() >= 17) {
+            settle();
+            return;
+        }
+        
+        Card card = deal();
 
-                // Tell everybody what dealer drew
-                for (IPlayer player : playerSequence) {
-                    player.deal(dealerHand.getHid(), card, dealerHand.getValues());
-                }
-            }
+        dealerHand.hit(card);
+
+        // Tell everybody what dealer drew
+        for (IPlayer player : playerSequence) {
+            player.deal(dealerHand.getHid(), card, dealerHand.getValues());
         }
         
+        later(pace, drawStep);
+    }
+    
+    /**
+     * Settles the hands against the dealer's.
+     */
+    protected void settle() {
         // Compute outcomes and inform everyone
-        for(Hid hid: handSequence) {
-            Hand hand = hands.get(hid);
+        for(int slot=0; slot < slots.size(); slot++) {
+            Hid hid = slots.hid(slot);
+            Hand hand = slots.hand(slot);
             
             // These handled during hit cycle
             if(hand.isBroke() || hand.isCharlie() || hand.isBlackjack())
@@ -721,13 +1125,94 @@ public class Dealer implements Serializable {
      * Tells everyone game over.
      */
     protected void wrapUp() { 
+        long now = System.nanoTime();
+        
+        CLOSING.record(now - closed);
+        GAME.record(now - started);
+        GAMES.inc();
+        
+        if(history != null) {
+            record.dealer(dealerHand.getHid(), dealerHand.isBroke() ? Outcome.BUST : Outcome.NONE);
+            
+            history.write(record);
+        }
+        
         if(shufflePending) {
             shoe.shuffle();
             shufflePending = false;
+            
+            SHUFFLES.inc();
         }
         
         for (IPlayer player: playerSequence)           
             player.endGame(shoe.size()); 
+        
+        // Players who left mid-game are settled now
+        for(Runnable departure: departures)
+            departure.run();
+        
+        departures.clear();
+        
+        state = State.IDLE;
+        
+        inPlay = false;
+        
+        // Next player at a shared table gets the dealer
+        Wager next = waiting.poll();
+        if(next != null)
+            bet(next.player, next.hid);
+    }
+    
+    /**
+     * Ends a game a dealer step failed in, so the table doesn't wait on a
+     * step that will never come. Hands not yet settled push, which gives
+     * their bets back, and the table is free for the next game.
+     */
+    protected void abort() {
+        gameOver = true;
+        
+        for(int slot=0; slot < slots.size(); slot++) {
+            Hid hid = slots.hid(slot);
+            
+            if(settled.contains(hid))
+                continue;
+            
+            settled.add(hid);
+            
+            hid.setAmt(0);
+            hid.setSideAmt(0);
+            
+            for (IPlayer player: playerSequence)
+                player.push(hid);
+        }
+        
+        try {
+            wrapUp();
+        }
+        catch(Exception e) {
+            LOG.error("dealer wrap up failed", e);
+            
+            for(Runnable departure: departures)
+                departure.run();
+            
+            departures.clear();
+            
+            state = State.IDLE;
+            
+            inPlay = false;
+            
+            reset();
+            
+            Wager next = waiting.poll();
+            if(next != null)
+                bet(next.player, next.hid);
+            
+            return;
+        }
+        
+        // Nobody else took the table over
+        if(!inPlay)
+            reset();
     }
     
     /**
@@ -749,8 +1234,8 @@ public class Dealer implements Serializable {
      * @return True if at least one hand hasn't broken, false otherwise
      */
     protected boolean handsStanding() {
-        for(Hid hid: handSequence) {
-            Hand hand = hands.get(hid);
+        for(int slot=0; slot < slots.size(); slot++) {
+            Hand hand = slots.hand(slot);
             
             if(!hand.isBroke() && !hand.isBlackjack() && !hand.isCharlie())
                 return true;
@@ -767,11 +1252,61 @@ public class Dealer implements Serializable {
     protected void updateBankroll(Hid hid,double gain) {
         applySideBet(hid);
 
+        settled.add(hid);
+        
         // Update the P&L.
-        double pl = hid.getAmt() * gain;
+        double bet = hid.getAmt();
+        double pl = bet * gain;
         hid.setAmt(pl);
         
-        house.updateBankroll(players.get(hid), hid);
+        if(history != null)
+            record.hand(hid, outcomeOf(hid, gain), bet, pl);
+        
+        if(house != null)
+            house.updateBankroll(slots.playerOf(hid), hid);
+    }
+    
+    /**
+     * Records how long the player took to decide on the hand in turn.
+     */
+    protected void decided() {
+        long now = System.nanoTime();
+        
+        DECISION.record(now - turned);
+        
+        turned = now;
+    }
+    
+    /**
+     * Gets the outcome of a settled hand.
+     * @param hid Hand id
+     * @param gain Profit and loss factor
+     * @return Outcome
+     */
+    protected Outcome outcomeOf(Hid hid, double gain) {
+        if(gain == BLACKJACK_PAYS)
+            return Outcome.BLACKJACK;
+        
+        if(gain == CHARLIE_PAYS)
+            return Outcome.CHARLIE;
+        
+        if(gain == PROFIT)
+            return Outcome.WIN;
+        
+        if(gain == PUSH)
+            return Outcome.PUSH;
+        
+        Hand hand = slots.handOf(hid);
+        
+        return hand != null && hand.isBroke() ? Outcome.BUST : Outcome.LOSE;
+    }
+    
+    /**
+     * Sets the hand history this table writes to.
+     * @param history History or null for none
+     */
+    public void setHistory(HistoryWriter history) {
+        this.history = history;
     }
     
     /**
@@ -782,7 +1317,7 @@ public class Dealer implements Serializable {
         if(sideRule == null)
             return;
         
-        Hand hand = hands.get(hid);
+        Hand hand = slots.handOf(hid);
         
         double payout = sideRule.apply(hand);
         
@@ -798,18 +1333,23 @@ public class Dealer implements Serializable {
      * @return True if had is valid, false otherwise
      */
     protected Hand validate(Hid hid) {
-        if(gameOver)
+        if(gameOver || state != State.PLAYING)
             return null;
         
         if(hid == null)
             return null;
         
-        Hand hand = hands.get(hid);
+        int slot = slots.slotOf(hid);
         
-        if(hand == null || hand.isBroke() || hand.isCharlie() || hand.isBlackjack())
+        if(slot < 0)
             return null;
         
-        if(players.get(hid) != active)
+        Hand hand = slots.hand(slot);
+        
+        if(hand.isBroke() || hand.isCharlie() || hand.isBlackjack())
+            return null;
+        
+        if(slots.player(slot) != active)
             return null;
         
         return hand;
@@ -819,21 +1359,22 @@ public class Dealer implements Serializable {
      * Loads the side bet rule.
      */
     protected final void loadSideRule() {        
-        String className = System.getProperty(Constant.PLUGIN_SIDE_BET_RULE);
+        this.sideRule = plugins.newInstance(Constant.PLUGIN_SIDE_BET_RULE, ISideBetRule.class);
         
-        if(className == null) 
-            return;
-              
-        Class<?> clazz;
-        try {
-            clazz = Class.forName(className);
-
-            this.sideRule = (ISideBetRule) clazz.newInstance();
-            
+        if(sideRule != null)
             LOG.info("successfully loaded side bet rule");
-            
-        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
-            LOG.error("side bet rule failed to load: " + ex);
-        }       
+    }
+    
+    /**
+     * Holds a bet waiting for its turn at a shared table.
+     */
+    protected static class Wager {
+        protected final IPlayer player;
+        protected final Hid hid;
+        
+        protected Wager(IPlayer player, Hid hid) {
+            this.player = player;
+            this.hid = hid;
+        }
     }
 }
@@ -0,0 +1,211 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.dealer;
+
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.plugin.IPlayer;
+import java.util.Arrays;
+
+/**
+ * This class keeps the hands at a table by slot, the small integer which
+ * is the hand's place in the order of play: seats right to left as they
+ * bet, each split right after the hand it came from.
+ * The arrays last from game to game and so do the dealer's copies of the
+ * players' hands, which are reset instead of made anew, so a table in
+ * steady state allocates nothing to keep track of its hands. Finding a
+ * hand by its id scans a few slots comparing keys, which at table sizes
+ * costs less than hashing.
+ * @author Ron Coleman
+ */
+public class Slots {
+    protected final static int CAPACITY = 8;
+    protected Hid[] hids = new Hid[CAPACITY];
+    protected Hand[] hands = new Hand[CAPACITY];
+    protected IPlayer[] players = new IPlayer[CAPACITY];
+    
+    // Dealer's copies of player hands, one per slot, kept across games
+    protected Hand[] spares = new Hand[CAPACITY];
+    protected int size = 0;
+    
+    /**
+     * Adds a hand to the end of play with the dealer's copy of the hand
+     * recycled from earlier games.
+     * @param hid Hand id
+     * @param player Player who owns the hand
+     * @return Slot
+     */
+    public int add(Hid hid, IPlayer player) {
+        ensure(size + 1);
+        
+        Hand hand = spares[size];
+        
+        if(hand == null)
+            hand = spares[size] = new Hand(hid);
+        else
+            hand.reset(hid);
+        
+        return insert(size, hid, hand, player);
+    }
+    
+    /**
+     * Adds a hand to the end of play.
+     * @param hid Hand id
+     * @param hand Hand, for instance, the one a bot keeps
+     * @param player Player who owns the hand
+     * @return Slot
+     */
+    public int add(Hid hid, Hand hand, IPlayer player) {
+        return insert(size, hid, hand, player);
+    }
+    
+    /**
+     * Inserts a hand into play, moving the hands after it down a slot.
+     * @param slot Slot for the hand
+     * @param hid Hand id
+     * @param hand Hand
+     * @param player Player who owns the hand
+     * @return Slot
+     */
+    public int insert(int slot, Hid hid, Hand hand, IPlayer player) {
+        if(slot < 0 || slot > size)
+            throw new IndexOutOfBoundsException("slot "+slot+" size "+size);
+        
+        ensure(size + 1);
+        
+        int moved = size - slot;
+        
+        System.arraycopy(hids, slot, hids, slot + 1, moved);
+        System.arraycopy(hands, slot, hands, slot + 1, moved);
+        System.arraycopy(players, slot, players, slot + 1, moved);
+        
+        hids[slot] = hid;
+        hands[slot] = hand;
+        players[slot] = player;
+        
+        size++;
+        
+        return slot;
+    }
+    
+    /**
+     * Finds the slot of a hand.
+     * @param hid Hand id, the dealer's or one that came over the wire
+     * @return Slot or -1 if the hand isn't in play
+     */
+    public int slotOf(Hid hid) {
+        if(hid == null)
+            return -1;
+        
+        for(int slot=0; slot < size; slot++)
+            if(hids[slot] == hid || hids[slot].equals(hid))
+                return slot;
+        
+        return -1;
+    }
+    
+    /**
+     * Gets the hand id in a slot.
+     * @param slot Slot
+     * @return Hand id
+     */
+    public Hid hid(int slot) {
+        return hids[slot];
+    }
+    
+    /**
+     * Gets the hand in a slot.
+     * @param slot Slot
+     * @return Hand
+     */
+    public Hand hand(int slot) {
+        return hands[slot];
+    }
+    
+    /**
+     * Gets the player in a slot.
+     * @param slot Slot
+     * @return Player
+     */
+    public IPlayer player(int slot) {
+        return players[slot];
+    }
+    
+    /**
+     * Gets a hand by its id.
+     * @param hid Hand id
+     * @return Hand or null if the hand isn't in play
+     */
+    public Hand handOf(Hid hid) {
+        int slot = slotOf(hid);
+        
+        return slot < 0 ? null : hands[slot];
+    }
+    
+    /**
+     * Gets the owner of a hand by the hand's id.
+     * @param hid Hand id
+     * @return Player or null if the hand isn't in play
+     */
+    public IPlayer playerOf(Hid hid) {
+        int slot = slotOf(hid);
+        
+        return slot < 0 ? null : players[slot];
+    }
+    
+    /**
+     * Gets the number of hands in play.
+     * @return Number of hands
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Clears the hands for the next game, keeping the arrays and spare
+     * hands but not references to the players.
+     */
+    public void clear() {
+        Arrays.fill(hids, 0, size, null);
+        Arrays.fill(hands, 0, size, null);
+        Arrays.fill(players, 0, size, null);
+        
+        size = 0;
+    }
+    
+    /**
+     * Grows the arrays, which only happens when players split a lot.
+     * @param capacity Slots needed
+     */
+    protected void ensure(int capacity) {
+        if(capacity <= hids.length)
+            return;
+        
+        int length = Math.max(capacity, hids.length * 2);
+        
+        hids = Arrays.copyOf(hids, length);
+        hands = Arrays.copyOf(hands, length);
+        players = Arrays.copyOf(players, length);
+        spares = Arrays.copyOf(spares, length);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.dealer;
+
+import charlie.plugin.IPlayer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class implements a table, that is, a dealer and its seats.
+ * Tables are pooled by the house: the dealer and its shoe stay warm while
+ * players come and go.
+ * @author Ron Coleman
+ */
+public class Table {
+    protected final int id;
+    protected final Dealer dealer;
+    protected final int capacity;
+    protected final List<IPlayer> seated = new ArrayList<>();
+    
+    /**
+     * Constructor
+     * @param id Table number
+     * @param dealer Dealer for the table
+     * @param capacity Number of seats for real players
+     */
+    public Table(int id, Dealer dealer, int capacity) {
+        this.id = id;
+        this.dealer = dealer;
+        this.capacity = capacity;
+    }
+    
+    /**
+     * Seats a player.
+     * @param player Player
+     * @return True if seated, false if the table is full
+     */
+    public boolean sit(IPlayer player) {
+        if(isFull())
+            return false;
+        
+        seated.add(player);
+        
+        return true;
+    }
+    
+    /**
+     * Frees a player's seat.
+     * @param player Player
+     * @return True if the player was seated here
+     */
+    public boolean leave(IPlayer player) {
+        return seated.remove(player);
+    }
+    
+    /**
+     * Tests if a player is seated here.
+     * @param player Player
+     * @return True if seated
+     */
+    public boolean isSeated(IPlayer player) {
+        return seated.contains(player);
+    }
+    
+    /**
+     * Tests if all seats are taken.
+     * @return True if full
+     */
+    public boolean isFull() {
+        return seated.size() >= capacity;
+    }
+    
+    /**
+     * Gets the number of players seated.
+     * @return Player count
+     */
+    public int size() {
+        return seated.size();
+    }
+
+    /**
+     * Gets the dealer.
+     * @return Dealer
+     */
+    public Dealer getDealer() {
+        return dealer;
+    }
+    
+    /**
+     * Gets the table number.
+     * @return Table number
+     */
+    public int getId() {
+        return id;
+    }
+    
+    /**
+     * Converts table to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "table "+id+" seats "+seated.size()+"/"+capacity;
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.history;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.server.Ledger;
+import charlie.util.Play;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class holds one game of the hand history: the cards in the order
+ * they came out of the shoe and, for each hand, its seat, bet, plays,
+ * outcome and P&amp;L. A dealer fills in one record over and over and
+ * the reader decodes into one record over and over, so neither allocates
+ * per game.
+ * <p>
+ * On disk a record is its length, the game number, the time stamp, the
+ * cards as codes, the hands and a CRC of all but the length. Amounts are
+ * in cents.
+ * @author Ron Coleman
+ */
+public class HandRecord {
+    protected final static Seat[] SEATS = Seat.values();
+    protected final static Play[] PLAYS = Play.values();
+    protected final static Outcome[] OUTCOMES = Outcome.values();
+    
+    protected long game;
+    protected long stamp;
+    
+    protected byte[] cards = new byte[32];
+    protected int cardCount;
+    
+    protected int handCount;
+    protected byte[] seats = new byte[8];
+    protected long[] keys = new long[8];
+    protected long[] bets = new long[8];
+    protected long[] pnls = new long[8];
+    protected byte[] outcomes = new byte[8];
+    protected int[] playStarts = new int[8];
+    protected int[] playCounts = new int[8];
+    
+    protected byte[] plays = new byte[32];
+    protected int playTotal;
+    
+    /**
+     * Starts over for a new game.
+     * @param stamp Time the game started in milliseconds
+     */
+    public void reset(long stamp) {
+        this.stamp = stamp;
+        game = 0;
+        cardCount = 0;
+        handCount = 0;
+        playTotal = 0;
+    }
+    
+    /**
+     * Adds a card as it comes out of the shoe.
+     * @param card Card
+     */
+    public void card(Card card) {
+        if(cardCount == cards.length)
+            cards = Arrays.copyOf(cards, 2 * cardCount);
+        
+        cards[cardCount++] = (byte) Card.code(card.getRank(), card.getSuit());
+    }
+    
+    /**
+     * Adds a hand once it's settled.
+     * @param hid Hand id with its plays
+     * @param outcome Outcome
+     * @param bet Bet in dollars
+     * @param pnl Profit, or loss if negative, in dollars
+     */
+    public void hand(Hid hid, Outcome outcome, double bet, double pnl) {
+        List<Play> requests = hid.getRequests();
+        
+        hand(hid.getSeat().ordinal() | (hid.isSplit() ? 0x08 : 0), hid.getKey(),
+                Ledger.toCents(bet), Ledger.toCents(pnl), outcome.ordinal(), requests.size());
+        
+        for(Play play: requests)
+            plays[playTotal++] = (byte) play.ordinal();
+    }
+    
+    /**
+     * Adds the dealer's hand last, which takes the other side of the
+     * players' P&amp;L.
+     * @param hid Dealer's hand id
+     * @param outcome Outcome
+     */
+    public void dealer(Hid hid, Outcome outcome) {
+        long pnl = 0;
+        
+        for(int i=0; i < handCount; i++)
+            pnl -= pnls[i];
+        
+        hand(hid.getSeat().ordinal(), hid.getKey(), 0, pnl, outcome.ordinal(), 0);
+    }
+    
+    /**
+     * Adds a hand, making room for its plays.
+     */
+    protected void hand(int seat, long key, long bet, long pnl, int outcome, int n) {
+        if(handCount == seats.length) {
+            int size = 2 * handCount;
+            seats = Arrays.copyOf(seats, size);
+            keys = Arrays.copyOf(keys, size);
+            bets = Arrays.copyOf(bets, size);
+            pnls = Arrays.copyOf(pnls, size);
+            outcomes = Arrays.copyOf(outcomes, size);
+            playStarts = Arrays.copyOf(playStarts, size);
+            playCounts = Arrays.copyOf(playCounts, size);
+        }
+        
+        if(playTotal + n > plays.length)
+            plays = Arrays.copyOf(plays, Math.max(2 * plays.length, playTotal + n));
+        
+        seats[handCount] = (byte) seat;
+        keys[handCount] = key;
+        bets[handCount] = bet;
+        pnls[handCount] = pnl;
+        outcomes[handCount] = (byte) outcome;
+        playStarts[handCount] = playTotal;
+        playCounts[handCount] = n;
+        
+        handCount++;
+    }
+    
+    /**
+     * Gets the encoded size.
+     * @return Bytes, including the length
+     */
+    public int size() {
+        return 4 + 8 + 8 + 1 + cardCount + 1 + handCount * (1 + 8 + 8 + 8 + 1 + 1) + playTotal + 4;
+    }
+    
+    /**
+     * Writes the record, except its CRC which the writer adds.
+     * @param buf Buffer
+     */
+    protected void encode(ByteBuffer buf) {
+        buf.putInt(size() - 4);
+        buf.putLong(game);
+        buf.putLong(stamp);
+        
+        buf.put((byte) cardCount);
+        buf.put(cards, 0, cardCount);
+        
+        buf.put((byte) handCount);
+        
+        for(int i=0; i < handCount; i++) {
+            buf.put(seats[i]);
+            buf.putLong(keys[i]);
+            buf.putLong(bets[i]);
+            buf.putLong(pnls[i]);
+            buf.put(outcomes[i]);
+            buf.put((byte) playCounts[i]);
+            buf.put(plays, playStarts[i], playCounts[i]);
+        }
+    }
+    
+    /**
+     * Reads a record, after its length, into this one.
+     * @param buf Buffer
+     */
+    protected void decode(ByteBuffer buf) {
+        game = buf.getLong();
+        stamp = buf.getLong();
+        
+        cardCount = buf.get() & 0xFF;
+        if(cardCount > cards.length)
+            cards = new byte[cardCount];
+        buf.get(cards, 0, cardCount);
+        
+        handCount = 0;
+        playTotal = 0;
+        
+        int n = buf.get() & 0xFF;
+        
+        for(int i=0; i < n; i++) {
+            int seat = buf.get();
+            long key = buf.getLong();
+            long bet = buf.getLong();
+            long pnl = buf.getLong();
+            int outcome = buf.get();
+            int count = buf.get() & 0xFF;
+            
+            hand(seat, key, bet, pnl, outcome, count);
+            
+            buf.get(plays, playTotal, count);
+            playTotal += count;
+        }
+    }
+    
+    /**
+     * Gets the game number.
+     * @return Game number, from one in each history
+     */
+    public long getGame() {
+        return game;
+    }
+    
+    /**
+     * Gets when the game started.
+     * @return Milliseconds since the epoch
+     */
+    public long getStamp() {
+        return stamp;
+    }
+    
+    /**
+     * Gets the number of cards dealt.
+     * @return Count
+     */
+    public int getCardCount() {
+        return cardCount;
+    }
+    
+    /**
+     * Gets a card in shoe order.
+     * @param k Index
+     * @return Card
+     */
+    public Card getCard(int k) {
+        return Card.valueOf(cards[k]);
+    }
+    
+    /**
+     * Gets the number of hands, dealer's last.
+     * @return Count
+     */
+    public int getHandCount() {
+        return handCount;
+    }
+    
+    /**
+     * Gets the seat of a hand.
+     * @param i Hand index
+     * @return Seat
+     */
+    public Seat getSeat(int i) {
+        return SEATS[seats[i] & 0x07];
+    }
+    
+    /**
+     * Tests if a hand came from a split.
+     * @param i Hand index
+     * @return True if split
+     */
+    public boolean isSplit(int i) {
+        return (seats[i] & 0x08) != 0;
+    }
+    
+    /**
+     * Gets the key of a hand's id.
+     * @param i Hand index
+     * @return Key
+     */
+    public long getKey(int i) {
+        return keys[i];
+    }
+    
+    /**
+     * Gets the bet on a hand.
+     * @param i Hand index
+     * @return Cents
+     */
+    public long getBet(int i) {
+        return bets[i];
+    }
+    
+    /**
+     * Gets the P&amp;L of a hand.
+     * @param i Hand index
+     * @return Cents
+     */
+    public long getPnl(int i) {
+        return pnls[i];
+    }
+    
+    /**
+     * Gets the outcome of a hand.
+     * @param i Hand index
+     * @return Outcome
+     */
+    public Outcome getOutcome(int i) {
+        return OUTCOMES[outcomes[i]];
+    }
+    
+    /**
+     * Gets the number of plays on a hand.
+     * @param i Hand index
+     * @return Count
+     */
+    public int getPlayCount(int i) {
+        return playCounts[i];
+    }
+    
+    /**
+     * Gets a play on a hand.
+     * @param i Hand index
+     * @param k Play index
+     * @return Play
+     */
+    public Play getPlay(int i, int k) {
+        return PLAYS[plays[playStarts[i] + k]];
+    }
+    
+    /**
+     * Converts the record to a line of text.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        
+        buffer.append("game ").append(game).append(" at ").append(stamp).append(" cards");
+        
+        for(int k=0; k < cardCount; k++)
+            buffer.append(' ').append(getCard(k));
+        
+        for(int i=0; i < handCount; i++) {
+            buffer.append(" | ").append(getSeat(i)).append(isSplit(i) ? " split" : "")
+                  .append(" bet ").append(Ledger.toDollars(bets[i]));
+            
+            for(int k=0; k < playCounts[i]; k++)
+                buffer.append(' ').append(getPlay(i, k));
+            
+            buffer.append(' ').append(getOutcome(i)).append(' ').append(Ledger.toDollars(pnls[i]));
+        }
+        
+        return buffer.toString();
+    }
+}
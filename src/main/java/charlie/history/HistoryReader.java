@@ -0,0 +1,186 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.history;
+
+import charlie.server.Ledger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * This class reads the hand history back. It maps each segment read-only
+ * and decodes every record into the same hand record, so scanning costs
+ * no allocation per hand. A segment ends at a zero length, the end of the
+ * file or the first record whose CRC doesn't match, which is where a crash
+ * would have torn it.
+ * <p>
+ * From the command line: HistoryReader dir [--replay] prints each hand
+ * with --replay and, in any case, a summary of the hands and the house's
+ * P&amp;L.
+ * @author Ron Coleman
+ */
+public class HistoryReader {
+    protected final Path dir;
+    protected final CRC32 crc = new CRC32();
+    protected long torn = 0;
+    
+    /**
+     * Constructor
+     * @param dir Directory of the segments
+     */
+    public HistoryReader(Path dir) {
+        this.dir = dir;
+    }
+    
+    /**
+     * Gets the segments in order.
+     * @return Paths
+     * @throws IOException If the directory can't be listed
+     */
+    public List<Path> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(HistoryWriter.PREFIX) && name.endsWith(HistoryWriter.SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Scans every hand in the history.
+     * @param consumer Gets each record, which is only valid during the call
+     * @return Number of records
+     * @throws IOException If a segment can't be read
+     */
+    public long scan(Consumer<HandRecord> consumer) throws IOException {
+        HandRecord record = new HandRecord();
+        
+        long count = 0;
+        
+        for(Path path: segments())
+            count += scan(path, record, consumer);
+        
+        return count;
+    }
+    
+    /**
+     * Scans the hands in a segment.
+     * @param path Segment
+     * @param record Record to decode into
+     * @param consumer Gets each record
+     * @return Number of records
+     * @throws IOException If the segment can't be read
+     */
+    protected long scan(Path path, HandRecord record, Consumer<HandRecord> consumer) throws IOException {
+        long count = 0;
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            
+            while(buf.remaining() >= 4) {
+                int start = buf.position();
+                int length = buf.getInt();
+                
+                if(length <= 0 || length > buf.remaining())
+                    break;
+                
+                ByteBuffer body = buf.duplicate();
+                body.position(start + 4).limit(start + length);
+                
+                crc.reset();
+                crc.update(body);
+                
+                if((int) crc.getValue() != buf.getInt(start + length)) {
+                    torn++;
+                    break;
+                }
+                
+                record.decode(buf);
+                
+                buf.position(start + 4 + length);
+                
+                consumer.accept(record);
+                
+                count++;
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Gets the number of segments that ended in a torn record.
+     * @return Count
+     */
+    public long getTorn() {
+        return torn;
+    }
+    
+    /**
+     * Replays or summarizes a history.
+     * @param args Directory and optionally --replay
+     * @throws IOException If the history can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.err.println("usage: HistoryReader dir [--replay]");
+            System.exit(1);
+        }
+        
+        boolean replay = args.length > 1 && args[1].equals("--replay");
+        
+        HistoryReader reader = new HistoryReader(Paths.get(args[0]));
+        
+        long[] tally = new long[2];
+        
+        long start = System.nanoTime();
+        
+        long games = reader.scan(record -> {
+            for(int i=0; i < record.getHandCount() - 1; i++) {
+                tally[0]++;
+                tally[1] -= record.getPnl(i);
+            }
+            
+            if(replay)
+                System.out.println(record);
+        });
+        
+        double secs = (System.nanoTime() - start) / 1e9;
+        
+        System.out.printf("games=%d hands=%d house P&L=%.2f torn=%d in %.3fs (%.0f games/s)%n",
+                games, tally[0], Ledger.toDollars(tally[1]), reader.getTorn(),
+                secs, games / Math.max(secs, 1e-9));
+    }
+}
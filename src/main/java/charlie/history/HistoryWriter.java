@@ -0,0 +1,292 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.history;
+
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.apache.log4j.Logger;
+
+/**
+ * This class appends hand records to the history. The history is a
+ * directory of fixed-size, memory-mapped segments numbered in order. A
+ * record goes straight into the mapped segment, so writing one is a copy
+ * and a CRC, not a system call; when a segment can't hold the next record,
+ * it's closed with a zero length and the next one is mapped. A restarted
+ * writer starts a new segment after the last one so nothing is overwritten.
+ * @author Ron Coleman
+ */
+public class HistoryWriter {
+    private final static Logger LOG = Logger.getLogger(HistoryWriter.class);
+    
+    public final static String PREFIX = "hands-";
+    public final static String SUFFIX = ".bin";
+    
+    protected static HistoryWriter instance;
+    protected static boolean loaded = false;
+    
+    protected final Path dir;
+    protected final int capacity;
+    
+    protected int segment;
+    protected FileChannel channel;
+    protected MappedByteBuffer buf;
+    protected final CRC32 crc = new CRC32();
+    
+    protected long game = 0;
+    protected long bytes = 0;
+    protected int segments = 0;
+    
+    /**
+     * Gets the configured history writer.
+     * @return Writer or null if there's no history directory
+     */
+    public static synchronized HistoryWriter getInstance() {
+        if(loaded)
+            return instance;
+        
+        loaded = true;
+        
+        String dir = System.getProperty(Constant.HISTORY_DIR);
+        
+        if(dir == null)
+            return null;
+        
+        try {
+            instance = new HistoryWriter(Paths.get(dir),
+                    Helper.getPropertyOrElse(Constant.HISTORY_SEGMENT, 64 * 1024 * 1024));
+            
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::close, "history-close"));
+            
+            LOG.info("hand history in "+dir);
+        }
+        catch(IOException ex) {
+            LOG.error("no hand history: "+ex);
+        }
+        
+        return instance;
+    }
+    
+    /**
+     * Constructor
+     * @param dir Directory of the segments
+     * @param capacity Segment size in bytes
+     * @throws IOException If the first segment can't be mapped
+     */
+    public HistoryWriter(Path dir, int capacity) throws IOException {
+        this.dir = dir;
+        this.capacity = capacity;
+        
+        Files.createDirectories(dir);
+        
+        segment = last(dir) + 1;
+        
+        map();
+    }
+    
+    /**
+     * Gets the number of the last segment in a directory.
+     * @param dir Directory
+     * @return Segment number, zero if none
+     * @throws IOException If the directory can't be listed
+     */
+    protected static int last(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .mapToInt(name -> Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .max()
+                    .orElse(0);
+        }
+    }
+    
+    /**
+     * Gets the path of a segment.
+     * @param dir Directory
+     * @param segment Segment number
+     * @return Path
+     */
+    public static Path pathOf(Path dir, int segment) {
+        return dir.resolve(String.format("%s%06d%s", PREFIX, segment, SUFFIX));
+    }
+    
+    /**
+     * Maps the current segment.
+     * @throws IOException If the segment can't be mapped
+     */
+    protected final void map() throws IOException {
+        channel = FileChannel.open(pathOf(dir, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        
+        buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        
+        segments++;
+    }
+    
+    /**
+     * Closes the current segment and maps the next one.
+     * @throws IOException If the next segment can't be mapped
+     */
+    protected void rotate() throws IOException {
+        finish();
+        
+        segment++;
+        
+        map();
+    }
+    
+    /**
+     * Ends and unmaps the current segment.
+     * @throws IOException If the segment can't be closed
+     */
+    protected void finish() throws IOException {
+        if(buf.remaining() >= 4)
+            buf.putInt(0);
+        
+        buf.force();
+        
+        channel.close();
+    }
+    
+    /**
+     * Appends a hand record, giving it the next game number.
+     * @param record Record
+     * @return Game number, or zero if the record couldn't be written
+     */
+    public synchronized long write(HandRecord record) {
+        if(channel == null)
+            return 0;
+        
+        int size = record.size();
+        
+        try {
+            // Leave room to mark the end
+            if(buf.remaining() < size + 4) {
+                if(buf.position() == 0 || size + 4 > capacity)
+                    throw new IOException("record of "+size+" bytes exceeds segment");
+                
+                rotate();
+            }
+        }
+        catch(IOException ex) {
+            LOG.error("history write failed: "+ex);
+            return 0;
+        }
+        
+        record.game = ++game;
+        
+        int start = buf.position();
+        
+        record.encode(buf);
+        
+        // CRC the body after the length
+        ByteBuffer body = buf.duplicate();
+        body.position(start + 4).limit(buf.position());
+        
+        crc.reset();
+        crc.update(body);
+        
+        buf.putInt((int) crc.getValue());
+        
+        bytes += size;
+        
+        return game;
+    }
+    
+    /**
+     * Forces what's written to disk.
+     */
+    public synchronized void flush() {
+        if(channel != null)
+            buf.force();
+    }
+    
+    /**
+     * Marks the end of the last segment and closes it.
+     */
+    public synchronized void close() {
+        if(channel == null)
+            return;
+        
+        try {
+            finish();
+        }
+        catch(IOException ex) {
+            LOG.error("failed to close history: "+ex);
+        }
+        
+        channel = null;
+        
+        LOG.info(this);
+    }
+    
+    /**
+     * Gets the number of games written.
+     * @return Count
+     */
+    public synchronized long getGames() {
+        return game;
+    }
+    
+    /**
+     * Gets the number of bytes written.
+     * @return Bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+    
+    /**
+     * Gets the number of segments this writer mapped.
+     * @return Count
+     */
+    public synchronized int getSegments() {
+        return segments;
+    }
+    
+    /**
+     * Gets the directory of the segments.
+     * @return Path
+     */
+    public Path getDir() {
+        return dir;
+    }
+    
+    /**
+     * Converts the writer to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "history "+dir+" games="+getGames()+" bytes="+getBytes()+" segments="+getSegments();
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.load;
+
+import charlie.actor.Arriver;
+import charlie.actor.ClientAuthenticator;
+import charlie.actor.Courier;
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.dealer.Seat;
+import charlie.message.Status;
+import charlie.message.view.from.Bet;
+import charlie.message.view.to.Ready;
+import charlie.plugin.IAdvisor;
+import charlie.plugin.IUi;
+import charlie.server.Ticket;
+import charlie.util.Play;
+import java.util.HashMap;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements one headless client of the swarm. It logs in,
+ * arrives with a courier on its own port and then bets, plays by the
+ * advisor and bets again at the swarm's rate until stopped. Every hit,
+ * double-down and split is timed from the request to the card that
+ * answers it.
+ * @author Ron Coleman
+ */
+public class LoadClient implements IUi {
+    private final static Logger LOG = Logger.getLogger(LoadClient.class);
+    
+    protected final Swarm swarm;
+    protected final int id;
+    protected final int port;
+    protected final IAdvisor advisor;
+    protected Courier courier;
+    protected boolean ready = false;
+    protected boolean refused = false;
+    protected volatile boolean running = false;
+    
+    // The game in progress
+    protected final HashMap<Hid,Hand> hands = new HashMap<>();
+    protected Card upCard;
+    protected Hid turn;
+    protected Hid pending;
+    protected long requested;
+    protected boolean doubled;
+    protected long betAt;
+    protected long due;
+    
+    /**
+     * Constructor
+     * @param swarm Swarm which runs this client
+     * @param id Client number, which also picks the login and port
+     * @param port Port for the courier
+     * @param advisor Strategy to play by
+     */
+    public LoadClient(Swarm swarm, int id, int port, IAdvisor advisor) {
+        this.swarm = swarm;
+        this.id = id;
+        this.port = port;
+        this.advisor = advisor;
+    }
+    
+    /**
+     * Logs in, arrives and places the first bet.
+     * @return True if the client is playing
+     */
+    public boolean start() {
+        Ticket ticket = new ClientAuthenticator().send("load"+id, "load");
+        
+        if(ticket == null) {
+            Swarm.LOGINS_FAILED.inc();
+            return false;
+        }
+        
+        courier = new Courier(this, "-1:"+port) {
+            @Override
+            public void got(Ready msg) {
+                synchronized(LoadClient.this) {
+                    ready = true;
+                }
+                
+                super.got(msg);
+            }
+            
+            @Override
+            public void got(Status status) {
+                synchronized(LoadClient.this) {
+                    refused = true;
+                    LoadClient.this.notifyAll();
+                }
+                
+                super.got(status);
+            }
+        };
+        
+        courier.start();
+        
+        // Hold the lock so the ready can't come before we wait for it
+        synchronized(this) {
+            new Arriver(ticket, port).send();
+            
+            long deadline = System.currentTimeMillis() + swarm.stall;
+            
+            try {
+                while(!ready && !refused && System.currentTimeMillis() < deadline)
+                    wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            
+            if(!ready) {
+                Swarm.ARRIVALS_FAILED.inc();
+                courier.stop();
+                return false;
+            }
+            
+            running = true;
+            due = System.nanoTime();
+        }
+        
+        bet();
+        
+        return true;
+    }
+    
+    /**
+     * Logs out and closes the courier.
+     */
+    public void stop() {
+        synchronized(this) {
+            if(!running)
+                return;
+            
+            running = false;
+        }
+        
+        courier.logout();
+        courier.stop();
+    }
+    
+    /**
+     * Places a bet.
+     */
+    protected void bet() {
+        // The hand has to be ours before the dealer can answer the bet
+        Hid hid = new Hid(Seat.YOU, swarm.bet, 0);
+        
+        synchronized(this) {
+            if(!running)
+                return;
+            
+            hands.clear();
+            hands.put(hid, new Hand(hid));
+            upCard = null;
+            turn = null;
+            pending = null;
+            betAt = System.nanoTime();
+        }
+        
+        courier.send(new Bet(hid));
+    }
+    
+    /**
+     * Checks the game in progress hasn't stalled and, if it has, bets again.
+     * @param now Time from System.nanoTime()
+     */
+    protected void check(long now) {
+        synchronized(this) {
+            if(!running || betAt == 0 || now - betAt < swarm.stall * 1000000L)
+                return;
+            
+            LOG.warn("client "+id+" stalled in "+turn);
+            
+            betAt = 0;
+        }
+        
+        Swarm.STALLS.inc();
+        
+        bet();
+    }
+    
+    /**
+     * Plays the hand in turn by the advisor.
+     * @param hid Hand id
+     */
+    protected void decide(Hid hid) {
+        Play play;
+        
+        synchronized(this) {
+            Hand hand = hands.get(hid);
+            
+            if(!running || hand == null || upCard == null || !hid.equals(turn) || pending != null)
+                return;
+            
+            play = advisor.advise(hand, upCard);
+            
+            // The dealer splits a pair once and doubles on two cards
+            if(play == Play.SPLIT && (!hand.isPair() || hid.isSplit()))
+                play = Play.HIT;
+            
+            if(play == Play.DOUBLE_DOWN && hand.size() != 2)
+                play = Play.HIT;
+            
+            // The dealer answers all but a stay with a card
+            if(play == Play.HIT || play == Play.DOUBLE_DOWN || play == Play.SPLIT) {
+                pending = hid;
+                doubled = play == Play.DOUBLE_DOWN;
+                requested = System.nanoTime();
+            }
+        }
+        
+        switch(play) {
+            case HIT:
+                courier.hit(hid);
+                break;
+            case DOUBLE_DOWN:
+                courier.dubble(hid);
+                break;
+            case SPLIT:
+                courier.split(hid);
+                break;
+            default:
+                courier.stay(hid);
+                break;
+        }
+    }
+    
+    @Override
+    public void deal(Hid hid, Card card, int[] handValues) {
+        if(card == null)
+            return;
+        
+        synchronized(this) {
+            Hand hand = hands.get(hid);
+            
+            if(hand == null) {
+                // Dealer's first card is the hole card, the next one is the up-card
+                if(hid.getSeat() == Seat.DEALER && upCard == null && !(card instanceof HoleCard))
+                    upCard = card;
+                
+                return;
+            }
+            
+            hand.hit(card);
+            
+            if(!hid.equals(pending))
+                return;
+            
+            Swarm.ACTIONS.since(requested);
+            
+            pending = null;
+            
+            // Keep playing until the dealer moves on
+            if(doubled || hand.isBroke() || hand.isCharlie())
+                return;
+        }
+        
+        swarm.execute(() -> decide(hid));
+    }
+
+    @Override
+    public void turn(Hid hid) {
+        synchronized(this) {
+            turn = hid;
+            
+            if(!hands.containsKey(hid))
+                return;
+        }
+        
+        swarm.execute(() -> decide(hid));
+    }
+
+    @Override
+    public void split(Hid newHid, Hid origHid) {
+        synchronized(this) {
+            Hand hand = hands.get(origHid);
+            
+            if(hand != null)
+                hands.put(newHid, hand.split(newHid));
+        }
+    }
+
+    @Override
+    public void ending(int shoeSize) {
+        long delay;
+        
+        synchronized(this) {
+            betAt = 0;
+            
+            // Bets go out at the rate regardless of how long games take
+            due += swarm.period;
+            
+            long now = System.nanoTime();
+            
+            if(due < now)
+                due = now;
+            
+            delay = due - now;
+        }
+        
+        Swarm.HANDS.inc();
+        
+        swarm.schedule(this::bet, delay);
+    }
+
+    @Override
+    public void bust(Hid hid) {
+    }
+
+    @Override
+    public void win(Hid hid) {
+    }
+
+    @Override
+    public void lose(Hid hid) {
+    }
+
+    @Override
+    public void push(Hid hid) {
+    }
+
+    @Override
+    public void blackjack(Hid hid) {
+    }
+
+    @Override
+    public void charlie(Hid hid) {
+    }
+
+    @Override
+    public void starting(List<Hid> hids, int shoeSize) {
+    }
+
+    @Override
+    public void shuffling() {
+    }
+
+    @Override
+    public void setCourier(Courier courier) {
+    }
+    
+    /**
+     * Gets the courier.
+     * @return Courier or null if the client never logged in
+     */
+    public Courier getCourier() {
+        return courier;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.load;
+
+import charlie.metrics.Counter;
+import charlie.metrics.Histogram;
+import charlie.metrics.Metrics;
+import charlie.plugin.IAdvisor;
+import charlie.plugin.PluginRegistry;
+import charlie.sim.BasicStrategy;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class runs a swarm of headless clients against a game server to
+ * plan its capacity. Every client logs in and plays through the same
+ * courier, authenticator and arriver as the real client, each courier on
+ * a port of its own, and bets at a target rate. The report gives hands per
+ * second, the latency of hits, double-downs and splits from the request to
+ * the card that answers it, and the errors: failed logins and arrivals,
+ * stalled games and messages the couriers lost.
+ * <p>
+ * Clients always talk in frames: socket-per-message couriers would all
+ * send to one real player port, so the server needs a shared transport or
+ * a single endpoint.
+ * @author Ron Coleman
+ */
+public class Swarm {
+    private final static Logger LOG = Logger.getLogger(Swarm.class);
+    
+    protected final static Counter HANDS = Metrics.counter("load.hands");
+    protected final static Histogram ACTIONS = Metrics.histogram("load.action");
+    protected final static Counter LOGINS_FAILED = Metrics.counter("load.errors.login");
+    protected final static Counter ARRIVALS_FAILED = Metrics.counter("load.errors.arrival");
+    protected final static Counter STALLS = Metrics.counter("load.errors.stall");
+    
+    protected final int clients;
+    protected final double rate;
+    protected final int port;
+    protected final int bet;
+    protected final long period;
+    protected final int stall = Helper.getPropertyOrElse(Constant.LOAD_STALL, 30000);
+    
+    protected final List<LoadClient> playing = new ArrayList<>();
+    protected final ScheduledExecutorService scheduler;
+    
+    /**
+     * Constructor
+     * @param clients Number of clients
+     * @param rate Hands per second each client bets
+     * @param port Courier port of the first client, the others follow
+     * @param bet Bet per hand
+     */
+    public Swarm(int clients, double rate, int port, int bet) {
+        this.clients = clients;
+        this.rate = rate;
+        this.port = port;
+        this.bet = bet;
+        this.period = (long) (1e9 / rate);
+        
+        scheduler = Executors.newScheduledThreadPool(
+                Helper.getPropertyOrElse(Constant.LOAD_THREADS, Runtime.getRuntime().availableProcessors()),
+                r -> {
+                    Thread thread = new Thread(r, "swarm");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    /**
+     * This method is the main entry point for the swarm.
+     * @param args Number of clients, optional, overrides charlie.load.clients
+     */
+    public static void main(String[] args) {
+        String path = System.getProperty("charlie.props", "charlie.props");
+        
+        try {
+            System.getProperties().load(new FileInputStream(path));
+        } catch (IOException ex) {
+            System.err.println("can't load "+path+": "+ex);
+        }
+        
+        if(System.getProperty(Constant.SERVER_ENDPOINT) == null)
+            System.setProperty(Constant.ACTOR_PERSISTENT, "true");
+        
+        // Per-message logging would swamp the run
+        Logger.getRootLogger().setLevel(Level.toLevel(Helper.getPropertyOrElse(Constant.SIM_LOG_LEVEL, "WARN")));
+        
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) :
+                Helper.getPropertyOrElse(Constant.LOAD_CLIENTS, 100);
+        
+        Swarm swarm = new Swarm(
+                clients,
+                Double.parseDouble(Helper.getPropertyOrElse(Constant.LOAD_RATE, "0.2")),
+                Helper.getPropertyOrElse(Constant.LOAD_PORT, 20000),
+                Constant.MIN_BET);
+        
+        int secs = Helper.getPropertyOrElse(Constant.LOAD_SECS, 60);
+        
+        long hands = swarm.run(secs);
+        
+        System.out.println(swarm.report(hands, secs));
+        
+        System.exit(0);
+    }
+    
+    /**
+     * Starts the clients, lets them play and stops them.
+     * @param secs Seconds to play once every client has started
+     * @return Hands played in that time
+     */
+    public long run(long secs) {
+        scheduler.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            
+            for(LoadClient client: getPlaying())
+                client.check(now);
+        }, 1, 1, TimeUnit.SECONDS);
+        
+        // Logins and arrivals block, so start a few at a time
+        ExecutorService starter = Executors.newFixedThreadPool(Math.min(clients, 16));
+        
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            
+            for(int k=0; k < clients; k++) {
+                LoadClient client = new LoadClient(this, k, port + k, loadAdvisor());
+                
+                futures.add(starter.submit(() -> {
+                    if(client.start()) {
+                        synchronized(playing) {
+                            playing.add(client);
+                        }
+                    }
+                }));
+            }
+            
+            for(Future<?> future: futures)
+                future.get();
+        }
+        catch(InterruptedException | ExecutionException ex) {
+            LOG.error("start failed: "+ex);
+        }
+        finally {
+            starter.shutdown();
+        }
+        
+        LOG.info("started "+getPlaying().size()+" of "+clients+" clients");
+        
+        // Only count the steady state
+        long start = HANDS.getCount();
+        ACTIONS.reset();
+        
+        try {
+            Thread.sleep(secs * 1000);
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        
+        long hands = HANDS.getCount() - start;
+        
+        for(LoadClient client: getPlaying())
+            client.stop();
+        
+        scheduler.shutdownNow();
+        
+        return hands;
+    }
+    
+    /**
+     * Runs a task on the swarm's threads.
+     * @param task Task
+     */
+    protected void execute(Runnable task) {
+        scheduler.execute(task);
+    }
+    
+    /**
+     * Runs a task on the swarm's threads after a delay.
+     * @param task Task
+     * @param nanos Delay in nanoseconds
+     */
+    protected void schedule(Runnable task, long nanos) {
+        if(!scheduler.isShutdown())
+            scheduler.schedule(task, nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Gets the clients which started.
+     * @return Copy of the clients
+     */
+    public List<LoadClient> getPlaying() {
+        synchronized(playing) {
+            return new ArrayList<>(playing);
+        }
+    }
+    
+    /**
+     * Gets the messages the clients' couriers gave up waiting for.
+     * @return Count
+     */
+    public long getLost() {
+        long lost = 0;
+        
+        for(LoadClient client: getPlaying())
+            lost += client.getCourier().getSequencer().getLost();
+        
+        return lost;
+    }
+    
+    /**
+     * Loads the configured advisor, otherwise basic strategy.
+     * @return Advisor
+     */
+    protected IAdvisor loadAdvisor() {
+        IAdvisor advisor = PluginRegistry.getInstance().newInstance(Constant.PLUGIN_ADVISOR, IAdvisor.class);
+        
+        return advisor != null ? advisor : new BasicStrategy();
+    }
+    
+    /**
+     * Gets the report.
+     * @param hands Hands played
+     * @param secs Elapsed time
+     * @return Report
+     */
+    public String report(long hands, double secs) {
+        long errors = LOGINS_FAILED.getCount() + ARRIVALS_FAILED.getCount() + STALLS.getCount();
+        
+        return String.format(
+                "clients: %,d of %,d playing, %.2f hands/s each%n" +
+                "hands: %,d elapsed: %.1f s rate: %,.1f hands/s%n" +
+                "action latency: n=%,d mean=%.2f ms p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n" +
+                "errors: %,d (%.3f%% of hands) login: %,d arrival: %,d stall: %,d lost messages: %,d",
+                getPlaying().size(), clients, rate,
+                hands, secs, hands / secs,
+                ACTIONS.getCount(), ACTIONS.getMean() / 1000, ACTIONS.getP50() / 1000,
+                ACTIONS.getP99() / 1000, ACTIONS.getP999() / 1000, ACTIONS.getMax() / 1000,
+                errors, 100. * errors / Math.max(1, hands + errors),
+                LOGINS_FAILED.getCount(), ARRIVALS_FAILED.getCount(), STALLS.getCount(), getLost());
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.lobby;
+
+import charlie.actor.last.NettyTransport;
+import charlie.actor.last.Transport;
+import charlie.message.Message;
+import charlie.message.Release;
+import charlie.message.view.from.Arrival;
+import charlie.message.view.from.Login;
+import charlie.message.view.from.Resume;
+import charlie.message.view.to.LoginResponse;
+import charlie.metrics.Counter;
+import charlie.metrics.Histogram;
+import charlie.metrics.Metrics;
+import charlie.server.Ticket;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements a lobby in front of several game servers. Clients
+ * log in and arrive at the lobby's endpoint as they would at a single
+ * server's; the lobby places each login on the least loaded node that's
+ * up and not draining, gives the client a ticket of its own and sends the
+ * arrival with the node's ticket to the same node. The node then connects
+ * back to the courier itself, so the game never passes through the lobby.
+ * A login goes on to the next node only if the last one couldn't be
+ * reached: once a node has the login, it may have logged the player in
+ * even if its answer never came.
+ * <p>
+ * Placement is sticky: a resume goes to the node that has the player's
+ * table. A player who logged in on a node which went down or started
+ * draining before the arrival is logged in again on another node, and
+ * the first node drops the ticket it issued.
+ * <p>
+ * The lobby probes every node each charlie.lobby.poll milliseconds for its
+ * load, ie, dealers at work, players seated and players in line.
+ * @author Ron Coleman
+ */
+public class Lobby implements LobbyMBean {
+    private final static Logger LOG = Logger.getLogger(Lobby.class);
+    
+    protected final static String BEAN = "charlie.lobby:type=Lobby";
+    
+    protected final static Counter LOGINS = Metrics.counter("lobby.logins");
+    protected final static Counter REJECTED = Metrics.counter("lobby.rejected");
+    protected final static Counter ARRIVALS = Metrics.counter("lobby.arrivals");
+    protected final static Counter MOVED = Metrics.counter("lobby.moved");
+    protected final static Counter UNPLACED = Metrics.counter("lobby.unplaced");
+    protected final static Histogram PLACING = Metrics.histogram("lobby.login");
+    
+    protected final List<Node> nodes = new ArrayList<>();
+    protected final ConcurrentHashMap<Long,Placement> placements = new ConcurrentHashMap<>();
+    protected final int poll = Helper.getPropertyOrElse(Constant.LOBBY_POLL, 1000);
+    protected final int timeout = Helper.getPropertyOrElse(Constant.LOBBY_TIMEOUT, 1000);
+    protected final long ttl = Long.parseLong(Helper.getPropertyOrElse(Constant.TICKETS_TTL, "86400000"));
+    protected Transport transport;
+    protected Timer timer;
+    
+    /**
+     * Constructor
+     * @param endpoints Game server endpoints in "address:port" form
+     */
+    public Lobby(List<String> endpoints) {
+        for(String endpoint: endpoints)
+            nodes.add(new Node(endpoint.trim()));
+    }
+    
+    /**
+     * This method is the main entry point for the lobby.
+     * @param args Command line arguments (currently not used)
+     */
+    public static void main(String[] args) {
+        String path = System.getProperty("charlie.props", "charlie.props");
+        
+        try {
+            System.getProperties().load(new FileInputStream(path));
+        } catch (IOException ex) {
+            LOG.error("can't load "+path+": "+ex);
+        }
+        
+        String endpoints = System.getProperty(Constant.LOBBY_NODES);
+        
+        if(endpoints == null) {
+            LOG.error("no game servers in "+Constant.LOBBY_NODES);
+            System.exit(1);
+        }
+        
+        try {
+            Lobby lobby = new Lobby(List.of(endpoints.split(",")));
+            
+            lobby.start(Helper.getPropertyOrElse(Constant.LOBBY_ENDPOINT, "127.0.0.1:8500"));
+        } catch (IOException ex) {
+            LOG.error("exception thrown: "+ex);
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Probes the nodes, then takes logins and arrivals on the endpoint.
+     * @param endpoint Lobby endpoint in "address:port" form
+     * @throws IOException If the endpoint can't be bound
+     */
+    public void start(String endpoint) throws IOException {
+        // Place the first logins on what's up rather than on nothing
+        poll();
+        
+        transport = new NettyTransport();
+        transport.bind(endpoint);
+        
+        transport.route(Login.class, msg -> login((Login) msg));
+        transport.route(Arrival.class, msg -> arrive((Arrival) msg));
+        
+        timer = new Timer("lobby-health", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                poll();
+            }
+        }, poll, poll);
+        
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName id = new ObjectName(BEAN);
+            
+            if(server.isRegistered(id))
+                server.unregisterMBean(id);
+            
+            server.registerMBean(this, id);
+        }
+        catch(JMException ex) {
+            LOG.error("failed to publish lobby: "+ex);
+        }
+        
+        LOG.info("lobby on "+endpoint+" for "+nodes);
+    }
+    
+    /**
+     * Stops taking logins and probing the nodes.
+     */
+    public void stop() {
+        if(timer != null)
+            timer.cancel();
+        
+        if(transport != null)
+            transport.close();
+        
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(BEAN));
+        }
+        catch(JMException ex) {
+            // Never published
+        }
+    }
+    
+    /**
+     * Places a login on a node.
+     * @param login Login
+     * @return Node's answer, with no ticket if no node would take it
+     */
+    protected Message login(Login login) {
+        long start = System.nanoTime();
+        
+        LOGINS.inc();
+        
+        Set<Node> tried = new HashSet<>();
+        
+        try {
+            for(Node node = place(tried); node != null; node = place(tried)) {
+                tried.add(node);
+                
+                try {
+                    Ticket ticket = login(node, login);
+                    
+                    // Bad credentials are bad on every node
+                    if(ticket == null) {
+                        node.unplaced();
+                        return new LoginResponse(null);
+                    }
+                    
+                    Ticket mine = issue(node, ticket, login);
+                    
+                    LOG.info("placed ticket "+mine+" on "+node.getEndpoint()+" as "+ticket);
+                    
+                    return new LoginResponse(mine);
+                }
+                catch(ConnectException ex) {
+                    // Never got there, so the next node can have it
+                    node.failed(ex);
+                    node.unplaced();
+                }
+                catch(IOException ex) {
+                    // The node may have logged the player in all the same, so
+                    // trying another could log it in twice
+                    node.failed(ex);
+                    
+                    REJECTED.inc();
+                    LOG.error("login "+login+" on "+node.getEndpoint()+" may or may not have gone through: "+ex);
+                    
+                    return new LoginResponse(null);
+                }
+            }
+            
+            REJECTED.inc();
+            LOG.error("no node for login "+login);
+            
+            return new LoginResponse(null);
+        }
+        finally {
+            PLACING.since(start);
+        }
+    }
+    
+    /**
+     * Issues the lobby's own ticket for a node's. Nodes number tickets
+     * independently so their numbers may collide.
+     * @param node Node the login was placed on
+     * @param ticket Node's ticket
+     * @param login Login
+     * @return Ticket for the client
+     */
+    protected Ticket issue(Node node, Ticket ticket, Login login) {
+        Placement placement = new Placement(node, ticket, login);
+        
+        for(;;) {
+            long number = ThreadLocalRandom.current().nextLong();
+            
+            if(placements.putIfAbsent(number, placement) == null)
+                return new Ticket(number, ticket.getBankroll(), ticket.getUsage());
+        }
+    }
+    
+    /**
+     * Sends an arrival to the node its login was placed on.
+     * @param arrival Arrival or resume
+     * @return Null since arrivals aren't answered
+     */
+    protected Message arrive(Arrival arrival) {
+        ARRIVALS.inc();
+        
+        Placement placement = placements.get(arrival.getTicket().getNumber());
+        
+        if(placement == null) {
+            UNPLACED.inc();
+            LOG.error("no placement for ticket "+arrival.getTicket());
+            return null;
+        }
+        
+        synchronized(placement) {
+            // A resume has a table waiting on its node, an arrival doesn't yet
+            if(!(arrival instanceof Resume) && !placement.node.isOpen() && placement.login != null)
+                move(placement);
+            
+            try {
+                placement.node.send(forward(arrival, placement.ticket), false, timeout);
+                
+                // Moves are only for players not yet seated
+                placement.login = null;
+            }
+            catch(IOException ex) {
+                placement.node.failed(ex);
+                LOG.error("arrival for "+placement.ticket+" to "+placement.node.getEndpoint()+" failed: "+ex);
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Logs a placed player in again on another node and releases the
+     * player's ticket on the first one.
+     * @param placement Placement
+     */
+    protected void move(Placement placement) {
+        Set<Node> tried = new HashSet<>();
+        tried.add(placement.node);
+        
+        for(Node node = place(tried); node != null; node = place(tried)) {
+            tried.add(node);
+            
+            try {
+                Ticket ticket = login(node, placement.login);
+                
+                if(ticket == null) {
+                    node.unplaced();
+                    continue;
+                }
+                
+                LOG.info("moved ticket "+placement.ticket+" from "+placement.node.getEndpoint()+" to "+node.getEndpoint());
+                
+                Node old = placement.node;
+                Ticket stale = placement.ticket;
+                
+                placement.node = node;
+                placement.ticket = ticket;
+                
+                MOVED.inc();
+                
+                release(old, stale);
+                
+                return;
+            }
+            catch(ConnectException ex) {
+                node.failed(ex);
+                node.unplaced();
+            }
+            catch(IOException ex) {
+                // The node may have logged the player in, so don't try another
+                node.failed(ex);
+                
+                LOG.error("move of "+placement.ticket+" to "+node.getEndpoint()+" may or may not have gone through: "+ex);
+                
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Gives a node back the ticket of a player moved elsewhere. A node
+     * that can't be reached keeps it until it expires.
+     * @param node Node the player was first placed on
+     * @param ticket Node's ticket
+     */
+    protected void release(Node node, Ticket ticket) {
+        node.unplaced();
+        
+        try {
+            node.send(new Release(ticket), false, timeout);
+        }
+        catch(IOException ex) {
+            node.failed(ex);
+            LOG.error("release of "+ticket+" on "+node.getEndpoint()+" failed, leaving it to expire: "+ex);
+        }
+    }
+    
+    /**
+     * Picks the least loaded node open to new players.
+     * @param tried Nodes to pass over
+     * @return Node or null if there's none
+     */
+    protected synchronized Node place(Set<Node> tried) {
+        Node best = null;
+        long low = Long.MAX_VALUE;
+        
+        for(Node node: nodes) {
+            if(!node.isOpen() || tried.contains(node))
+                continue;
+            
+            long score = node.score();
+            
+            if(best == null || score < low) {
+                best = node;
+                low = score;
+            }
+        }
+        
+        // Count it now so logins racing this one spread out
+        if(best != null)
+            best.placed();
+        
+        return best;
+    }
+    
+    /**
+     * Logs in on a node.
+     * @param node Node
+     * @param login Login
+     * @return Ticket or null if the node refused the login
+     * @throws IOException If the node can't be reached
+     */
+    protected Ticket login(Node node, Login login) throws IOException {
+        Message reply = node.send(login, true, timeout);
+        
+        if(!(reply instanceof LoginResponse))
+            throw new IOException("unexpected reply "+reply);
+        
+        return ((LoginResponse) reply).getTicket();
+    }
+    
+    /**
+     * Copies an arrival for a node under the ticket the node issued.
+     * @param arrival Arrival from the courier
+     * @param ticket Node's ticket
+     * @return Arrival to send
+     */
+    protected Arrival forward(Arrival arrival, Ticket ticket) {
+        Arrival copy = arrival instanceof Resume ?
+                new Resume(ticket, arrival.getSource(), arrival.getPort()) :
+                new Arrival(ticket, arrival.getSource(), arrival.getPort());
+        
+        copy.enableBot(arrival.isBotEnabled());
+        copy.enablePersistent(arrival.isPersistent());
+        copy.setCodec(arrival.getCodec());
+        
+        return copy;
+    }
+    
+    /**
+     * Probes the nodes and forgets placements older than a ticket lives.
+     */
+    protected void poll() {
+        for(Node node: nodes)
+            node.probe(timeout);
+        
+        long now = System.currentTimeMillis();
+        
+        placements.values().removeIf(placement -> now - placement.stamp > ttl);
+    }
+    
+    /**
+     * Gets a node.
+     * @param endpoint Node endpoint in "address:port" form
+     * @return Node or null if it's not known
+     */
+    public Node getNode(String endpoint) {
+        for(Node node: nodes)
+            if(node.getEndpoint().equals(endpoint))
+                return node;
+        
+        return null;
+    }
+    
+    @Override
+    public String[] getNodes() {
+        String[] lines = new String[nodes.size()];
+        
+        for(int k=0; k < lines.length; k++)
+            lines[k] = nodes.get(k).toString();
+        
+        return lines;
+    }
+    
+    @Override
+    public int getPlacements() {
+        return placements.size();
+    }
+    
+    @Override
+    public boolean drain(String endpoint) {
+        Node node = getNode(endpoint);
+        
+        if(node == null)
+            return false;
+        
+        node.setDraining(true);
+        LOG.info("draining "+endpoint);
+        
+        return true;
+    }
+    
+    @Override
+    public boolean undrain(String endpoint) {
+        Node node = getNode(endpoint);
+        
+        if(node == null)
+            return false;
+        
+        node.setDraining(false);
+        LOG.info("undrained "+endpoint);
+        
+        return true;
+    }
+    
+    /**
+     * This class records where a login was placed.
+     */
+    protected static class Placement {
+        protected Node node;
+        protected Ticket ticket;
+        protected Login login;
+        protected final long stamp = System.currentTimeMillis();
+        
+        /**
+         * Constructor
+         * @param node Node the login was placed on
+         * @param ticket Ticket the node issued
+         * @param login Login, kept until the player arrives
+         */
+        protected Placement(Node node, Ticket ticket, Login login) {
+            this.node = node;
+            this.ticket = ticket;
+            this.login = login;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.lobby;
+
+/**
+ * This interface is the JMX view of the lobby.
+ * @author Ron Coleman
+ */
+public interface LobbyMBean {
+    /**
+     * Gets the game servers behind the lobby and their load.
+     * @return One line per node
+     */
+    public String[] getNodes();
+    
+    /**
+     * Gets the number of sessions the lobby is tracking.
+     * @return Count
+     */
+    public int getPlacements();
+    
+    /**
+     * Stops placing new players on a game server.
+     * @param endpoint Node endpoint in "address:port" form
+     * @return True if the node is known
+     */
+    public boolean drain(String endpoint);
+    
+    /**
+     * Lets a drained game server take new players again.
+     * @param endpoint Node endpoint in "address:port" form
+     * @return True if the node is known
+     */
+    public boolean undrain(String endpoint);
+}
@@ -0,0 +1,246 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.lobby;
+
+import charlie.actor.last.Channel;
+import charlie.message.Message;
+import charlie.message.Probe;
+import charlie.message.Status;
+import charlie.message.codec.CodecFactory;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * This class is the lobby's view of one game server: its endpoint, the
+ * load it last reported and whether it's fit to take players.
+ * <p>
+ * A node is healthy once it answers a probe and goes down after it fails
+ * to answer {@link #FAILURES} times in a row. A draining node keeps its
+ * seated players but gets no new ones.
+ * @author Ron Coleman
+ */
+public class Node {
+    private final static Logger LOG = Logger.getLogger(Node.class);
+    
+    /** Failures in a row before a node is taken out of placement */
+    public final static int FAILURES = 3;
+    
+    /** Weight of a player in line over one at a table */
+    protected final static int QUEUE_WEIGHT = 1000;
+    
+    protected final String endpoint;
+    protected final AtomicInteger failures = new AtomicInteger();
+    protected final AtomicInteger placed = new AtomicInteger();
+    protected final AtomicLong sessions = new AtomicLong();
+    protected volatile Status status;
+    protected volatile boolean healthy;
+    protected volatile boolean draining;
+    
+    /**
+     * Constructor
+     * @param endpoint Game server endpoint in "address:port" form
+     */
+    public Node(String endpoint) {
+        this.endpoint = endpoint;
+    }
+    
+    /**
+     * Asks the game server for its load.
+     * @param timeout Connect and read timeout in milliseconds
+     * @return True if the server answered
+     */
+    public boolean probe(int timeout) {
+        try {
+            Message reply = send(new Probe(), true, timeout);
+            
+            if(!(reply instanceof Status))
+                throw new IOException("unexpected reply "+reply);
+            
+            // The status now counts the players placed since the last one
+            status = (Status) reply;
+            placed.set(0);
+            failures.set(0);
+            
+            if(!healthy)
+                LOG.info("node "+endpoint+" up "+status);
+            
+            healthy = true;
+            
+            return true;
+        }
+        catch(IOException ex) {
+            failed(ex);
+            
+            return false;
+        }
+    }
+    
+    /**
+     * Sends a message to the game server on a connection of its own.
+     * @param msg Message
+     * @param reply True to wait for the server's answer
+     * @param timeout Connect and read timeout in milliseconds
+     * @return Answer or null if none was wanted
+     * @throws ConnectException If the server can't be reached, so it never
+     * got the message
+     * @throws IOException If the exchange fails after connecting, so the
+     * server may or may not have acted on the message
+     */
+    public Message send(Message msg, boolean reply, int timeout) throws IOException {
+        Channel channel;
+        
+        try {
+            channel = Channel.connect(endpoint, timeout);
+        }
+        catch(IOException ex) {
+            if(ex instanceof ConnectException)
+                throw ex;
+            
+            ConnectException unreachable = new ConnectException(endpoint+": "+ex.getMessage());
+            unreachable.initCause(ex);
+            
+            throw unreachable;
+        }
+        
+        try {
+            channel.setCodec(CodecFactory.getInstance());
+            
+            channel.write(msg);
+            
+            return reply ? channel.read() : null;
+        }
+        finally {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Counts a failure to reach the game server.
+     * @param ex Cause
+     */
+    public void failed(Exception ex) {
+        if(failures.incrementAndGet() >= FAILURES && healthy) {
+            healthy = false;
+            LOG.error("node "+endpoint+" down: "+ex);
+        }
+    }
+    
+    /**
+     * Counts a player placed on this node.
+     */
+    public void placed() {
+        placed.incrementAndGet();
+        sessions.incrementAndGet();
+    }
+    
+    /**
+     * Takes back a player counted here who went elsewhere.
+     */
+    public void unplaced() {
+        placed.updateAndGet(n -> n > 0 ? n - 1 : 0);
+    }
+    
+    /**
+     * Gets the node's load: players in line weigh most since they mean every
+     * seat is taken, then dealers at work and seated players, then players
+     * placed since the last probe who may not have arrived yet.
+     * @return Score, lower is less loaded
+     */
+    public long score() {
+        Status s = status;
+        
+        if(s == null)
+            return Long.MAX_VALUE;
+        
+        return (long) s.getWaiting() * QUEUE_WEIGHT + s.getActive() + s.getSeated() + placed.get();
+    }
+    
+    /**
+     * Tests if the node can take new players.
+     * @return True if it's healthy and not draining
+     */
+    public boolean isOpen() {
+        return healthy && !draining;
+    }
+    
+    /**
+     * Tests if the node answers probes.
+     * @return True if healthy
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+    
+    /**
+     * Tests if the node is draining.
+     * @return True if draining
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+    
+    /**
+     * Sets whether the node is draining.
+     * @param draining True to stop placing new players here
+     */
+    public void setDraining(boolean draining) {
+        this.draining = draining;
+    }
+    
+    /**
+     * Gets the endpoint.
+     * @return Endpoint in "address:port" form
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+    
+    /**
+     * Gets the last status the node reported.
+     * @return Status or null if it never answered
+     */
+    public Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * Gets the number of players ever placed here.
+     * @return Count
+     */
+    public long getSessions() {
+        return sessions.get();
+    }
+    
+    /**
+     * Converts the node to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return endpoint+(healthy ? " up" : " down")+(draining ? " draining" : "")
+                +" sessions = "+sessions+" "+status;
+    }
+}
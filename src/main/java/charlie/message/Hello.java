@@ -0,0 +1,58 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message;
+
+/**
+ * This message binds a channel to a session.
+ * It is the first frame on a connection when actors share one endpoint and
+ * lets the endpoint route the frames that follow to the right actor.
+ * @author Ron Coleman
+ */
+public class Hello extends Message {
+    private final long session;
+    
+    /**
+     * Constructor
+     * @param session Session id
+     */
+    public Hello(long session) {
+        this.session = session;
+    }
+
+    /**
+     * Gets the session id.
+     * @return Session id
+     */
+    public long getSession() {
+        return session;
+    }
+    
+    /**
+     * Converts hello to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "hello session = "+Long.toHexString(session).toUpperCase();
+    }
+}
@@ -24,28 +24,26 @@ package charlie.message;
 
 import java.io.Serializable;
 import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class implements an abstract message for actors.
  * @author Ron Coleman
  */
 abstract public class Message implements Serializable {
-    protected Long serialno = 0L;
-    protected static Long counter = 0L;
-    protected final static String monitor = "YUMMY";
+    protected long serialno;
+    protected final static AtomicLong counter = new AtomicLong();
     protected InetAddress source;
-    protected final Long stamp = System.currentTimeMillis();;
+    protected long stamp = System.currentTimeMillis();
+    
+    // Sender's sequence number for this session, zero if not sequenced
+    protected long seq = 0;
 
     /**
      * Constructor
      */
     public Message() {
-        this.source = null;
-        
-        synchronized(monitor) {
-            serialno = counter;
-            counter += 1;
-        }        
+        this(null);
     }
     
     /**
@@ -55,17 +53,15 @@ abstract public class Message implements Serializable {
     public Message(InetAddress source) {
         this.source = source;
         
-        synchronized(monitor) {
-            serialno = counter;
-            counter += 1;
-        }
+        // Lock-free: messages from every table take numbers concurrently
+        this.serialno = counter.getAndIncrement();
     }
 
     /**
-     * Gets the message serial number.
+     * Gets the message serial number which is unique in this JVM.
      * @return Serial number
      */
-    public Long getSerialno() {
+    public long getSerialno() {
         return serialno;
     }
 
@@ -73,9 +69,26 @@ abstract public class Message implements Serializable {
      * Sets the message serial number.
      * @param serialno Serial number
      */
-    public void setSerialno(Long serialno) {
+    public void setSerialno(long serialno) {
         this.serialno = serialno;
     }
+    
+    /**
+     * Gets the sequence number the sender gave this message in its session.
+     * Receivers use it to put messages back in order and detect lost ones.
+     * @return Sequence number starting at one, zero if not sequenced
+     */
+    public long getSeq() {
+        return seq;
+    }
+    
+    /**
+     * Sets the sequence number in the sender's session.
+     * @param seq Sequence number
+     */
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
 
     /**
      * Gets the message source address.
@@ -97,10 +110,18 @@ abstract public class Message implements Serializable {
      * Gets the message time stamp.
      * @return Time stamp
      */
-    public Long getStamp() {
+    public long getStamp() {
         return stamp;
     }
     
+    /**
+     * Sets the message time stamp, for instance, when decoding a message.
+     * @param stamp Time stamp
+     */
+    public void setStamp(long stamp) {
+        this.stamp = stamp;
+    }
+    
     /**
      * Gets string version of this message.
      * @return String
@@ -0,0 +1,89 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message;
+
+/**
+ * This message gives a game server's load in answer to a probe.
+ * @author Ron Coleman
+ */
+public class Status extends Message {
+    private final int tables;
+    private final int active;
+    private final int seated;
+    private final int waiting;
+    
+    /**
+     * Constructor
+     * @param tables Tables opened
+     * @param active Tables with a player, ie, dealers at work
+     * @param seated Players seated
+     * @param waiting Players in line for a seat
+     */
+    public Status(int tables, int active, int seated, int waiting) {
+        this.tables = tables;
+        this.active = active;
+        this.seated = seated;
+        this.waiting = waiting;
+    }
+    
+    /**
+     * Gets the number of tables opened.
+     * @return Count
+     */
+    public int getTables() {
+        return tables;
+    }
+    
+    /**
+     * Gets the number of dealers at work.
+     * @return Count
+     */
+    public int getActive() {
+        return active;
+    }
+    
+    /**
+     * Gets the number of players seated.
+     * @return Count
+     */
+    public int getSeated() {
+        return seated;
+    }
+    
+    /**
+     * Gets the number of players in line for a seat.
+     * @return Count
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+    
+    /**
+     * Converts status to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "tables = "+tables+" active = "+active+" seated = "+seated+" waiting = "+waiting;
+    }
+}
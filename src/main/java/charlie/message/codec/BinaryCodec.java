@@ -0,0 +1,734 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message.codec;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.dealer.Seat;
+import charlie.message.Hello;
+import charlie.message.Message;
+import charlie.message.Probe;
+import charlie.message.Release;
+import charlie.message.Status;
+import charlie.message.view.from.Arrival;
+import charlie.message.view.from.Bet;
+import charlie.message.view.from.DoubleDown;
+import charlie.message.view.from.Hit;
+import charlie.message.view.from.Insure;
+import charlie.message.view.from.Login;
+import charlie.message.view.from.Logout;
+import charlie.message.view.from.Request;
+import charlie.message.view.from.Resume;
+import charlie.message.view.from.SplitRequest;
+import charlie.message.view.from.Stay;
+import charlie.message.view.from.Surrender;
+import charlie.message.view.to.Batch;
+import charlie.message.view.to.Blackjack;
+import charlie.message.view.to.Bust;
+import charlie.message.view.to.Charlie;
+import charlie.message.view.to.Deal;
+import charlie.message.view.to.GameOver;
+import charlie.message.view.to.GameStart;
+import charlie.message.view.to.LoginResponse;
+import charlie.message.view.to.Lose;
+import charlie.message.view.to.Outcome;
+import charlie.message.view.to.Play;
+import charlie.message.view.to.Push;
+import charlie.message.view.to.Ready;
+import charlie.message.view.to.Shuffle;
+import charlie.message.view.to.Snapshot;
+import charlie.message.view.to.SplitResponse;
+import charlie.message.view.to.Win;
+import charlie.server.Ticket;
+import charlie.util.Constant;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class implements a compact, hand-written codec for the view messages.
+ * A payload is a one byte type tag, the message header (serial number,
+ * session sequence number, time stamp and source address), then the
+ * message fields. Integers are varints, random ids are fixed eight bytes,
+ * amounts are varint cents when they're exact and cards pack rank, suit
+ * and hole flag into one byte. A batch is a count followed by its
+ * messages, each length-prefixed.
+ * @author Ron Coleman
+ */
+public class BinaryCodec implements Codec {
+    public final static String NAME = "binary";
+    
+    // Type tags, all below 0x80 so they can't be mistaken for 0xACED
+    protected final static byte HELLO = 1;
+    protected final static byte BET = 2;
+    protected final static byte HIT = 3;
+    protected final static byte STAY = 4;
+    protected final static byte DOUBLE_DOWN = 5;
+    protected final static byte SPLIT_REQUEST = 6;
+    protected final static byte INSURE = 7;
+    protected final static byte SURRENDER = 8;
+    protected final static byte LOGOUT = 9;
+    protected final static byte LOGIN = 10;
+    protected final static byte ARRIVAL = 11;
+    protected final static byte RESUME = 12;
+    protected final static byte BLACKJACK = 20;
+    protected final static byte BUST = 21;
+    protected final static byte CHARLIE = 22;
+    protected final static byte LOSE = 23;
+    protected final static byte PUSH = 24;
+    protected final static byte WIN = 25;
+    protected final static byte DEAL = 26;
+    protected final static byte PLAY = 27;
+    protected final static byte GAME_START = 28;
+    protected final static byte GAME_OVER = 29;
+    protected final static byte READY = 30;
+    protected final static byte SHUFFLE = 31;
+    protected final static byte SPLIT_RESPONSE = 32;
+    protected final static byte BATCH = 33;
+    protected final static byte LOGIN_RESPONSE = 34;
+    protected final static byte SNAPSHOT = 35;
+    protected final static byte PROBE = 40;
+    protected final static byte STATUS = 41;
+    protected final static byte RELEASE = 42;
+    
+    private final static Seat[] SEATS = Seat.values();
+    private final static Card.Suit[] SUITS = Card.Suit.values();
+    private final static charlie.util.Play[] PLAYS = charlie.util.Play.values();
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public byte[] encode(Message msg) throws IOException {
+        Writer out = new Writer();
+        
+        out.writeByte(tagOf(msg));
+        
+        out.writeVarLong(msg.getSerialno());
+        out.writeVarLong(msg.getSeq());
+        out.writeVarLong(msg.getStamp());
+        out.writeAddress(msg.getSource());
+        
+        if(msg instanceof Hello)
+            out.writeLong(((Hello) msg).getSession());
+        
+        else if(msg instanceof Request)
+            out.writeHid(((Request) msg).getHid());
+        
+        else if(msg instanceof Outcome)
+            out.writeHid(((Outcome) msg).getHid());
+        
+        else if(msg instanceof Deal)
+            out.writeDeal((Deal) msg);
+        
+        else if(msg instanceof Play)
+            out.writeHid(((Play) msg).getHid());
+        
+        else if(msg instanceof GameStart) {
+            GameStart start = (GameStart) msg;
+            List<Hid> hids = start.getHids();
+            out.writeVarInt(hids.size());
+            for(Hid hid: hids)
+                out.writeHid(hid);
+            out.writeVarInt(start.shoeSize());
+        }
+        
+        else if(msg instanceof GameOver)
+            out.writeVarInt(((GameOver) msg).getShoeSize());
+        
+        else if(msg instanceof SplitResponse) {
+            SplitResponse split = (SplitResponse) msg;
+            out.writeHid(split.getNewHid());
+            out.writeHid(split.getOrigHid());
+        }
+        
+        else if(msg instanceof Login) {
+            Login login = (Login) msg;
+            out.writeString(login.getLogname());
+            out.writeString(login.getPassword());
+        }
+        
+        else if(msg instanceof Arrival) {
+            Arrival arrival = (Arrival) msg;
+            out.writeTicket(arrival.getTicket());
+            out.writeVarInt(arrival.getPort());
+            out.writeByte((arrival.isBotEnabled() ? 1 : 0) | (arrival.isPersistent() ? 2 : 0));
+            out.writeString(arrival.getCodec());
+        }
+        
+        else if(msg instanceof LoginResponse)
+            out.writeTicket(((LoginResponse) msg).getTicket());
+        
+        else if(msg instanceof Release)
+            out.writeTicket(((Release) msg).getTicket());
+        
+        else if(msg instanceof Snapshot) {
+            Snapshot snapshot = (Snapshot) msg;
+            out.writeVarInt(snapshot.getHids().size());
+            for(Hid hid: snapshot.getHids())
+                out.writeHid(hid);
+            out.writeVarInt(snapshot.getDeals().size());
+            for(Deal deal: snapshot.getDeals())
+                out.writeDeal(deal);
+            out.writeHid(snapshot.getTurn());
+            out.writeVarInt(snapshot.getShoeSize());
+        }
+        
+        else if(msg instanceof Status) {
+            Status status = (Status) msg;
+            out.writeVarInt(status.getTables());
+            out.writeVarInt(status.getActive());
+            out.writeVarInt(status.getSeated());
+            out.writeVarInt(status.getWaiting());
+        }
+        
+        else if(msg instanceof Batch) {
+            List<Message> messages = ((Batch) msg).getMessages();
+            out.writeVarInt(messages.size());
+            for(Message message: messages)
+                out.writeBytes(encode(message));
+        }
+        
+        return out.toByteArray();
+    }
+
+    @Override
+    public Message decode(byte[] payload) throws IOException {
+        return decode(payload, false);
+    }
+    
+    /**
+     * Decodes a message, which is the batch itself or one of its messages.
+     * Batches don't nest, so a nested one is a corrupt frame and not a way
+     * to run the stack out.
+     * @param payload Bytes
+     * @param nested True if the message is inside a batch
+     * @return Message
+     * @throws IOException If the payload is truncated or corrupt
+     */
+    protected Message decode(byte[] payload, boolean nested) throws IOException {
+        Reader in = new Reader(payload);
+        
+        byte tag = in.readByte();
+        
+        long serialno = in.readVarLong();
+        long seq = in.readVarLong();
+        long stamp = in.readVarLong();
+        InetAddress source = in.readAddress();
+        
+        Message msg;
+        switch(tag) {
+            case HELLO: msg = new Hello(in.readLong()); break;
+            case BET: msg = new Bet(in.readHid()); break;
+            case HIT: msg = new Hit(in.readHid()); break;
+            case STAY: msg = new Stay(in.readHid()); break;
+            case DOUBLE_DOWN: msg = new DoubleDown(in.readHid()); break;
+            case SPLIT_REQUEST: msg = new SplitRequest(in.readHid()); break;
+            case INSURE: msg = new Insure(in.readHid()); break;
+            case SURRENDER: msg = new Surrender(in.readHid()); break;
+            case LOGOUT: in.readHid(); msg = new Logout(); break;
+            case BLACKJACK: msg = new Blackjack(in.readHid()); break;
+            case BUST: msg = new Bust(in.readHid()); break;
+            case CHARLIE: msg = new Charlie(in.readHid()); break;
+            case LOSE: msg = new Lose(in.readHid()); break;
+            case PUSH: msg = new Push(in.readHid()); break;
+            case WIN: msg = new Win(in.readHid()); break;
+            case PLAY: msg = new Play(in.readHid()); break;
+            case READY: msg = new Ready(source); break;
+            case SHUFFLE: msg = new Shuffle(); break;
+            case GAME_OVER: msg = new GameOver(in.readVarInt()); break;
+                
+            case DEAL: msg = in.readDeal(); break;
+                
+            case GAME_START: {
+                int n = in.readCount(Reader.MIN_HID);
+                List<Hid> hids = new ArrayList<>(n);
+                for(int i=0; i < n; i++)
+                    hids.add(in.readHid());
+                msg = new GameStart(hids, in.readVarInt());
+                break;
+            }
+                
+            case SPLIT_RESPONSE: {
+                Hid newHid = in.readHid();
+                msg = new SplitResponse(newHid, in.readHid());
+                break;
+            }
+                
+            case LOGIN: {
+                String logname = in.readString();
+                msg = new Login(logname, in.readString());
+                break;
+            }
+                
+            case ARRIVAL:
+            case RESUME: {
+                Ticket ticket = in.readTicket();
+                int port = in.readVarInt();
+                Arrival arrival = tag == RESUME ? new Resume(ticket, source, port) : new Arrival(ticket, source, port);
+                int flags = in.readByte();
+                arrival.enableBot((flags & 1) != 0);
+                arrival.enablePersistent((flags & 2) != 0);
+                arrival.setCodec(in.readString());
+                msg = arrival;
+                break;
+            }
+                
+            case LOGIN_RESPONSE: msg = new LoginResponse(in.readTicket()); break;
+                
+            case SNAPSHOT: {
+                int n = in.readCount(Reader.MIN_HID);
+                List<Hid> hids = new ArrayList<>(n);
+                for(int i=0; i < n; i++)
+                    hids.add(in.readHid());
+                int m = in.readCount(Reader.MIN_DEAL);
+                List<Deal> deals = new ArrayList<>(m);
+                for(int i=0; i < m; i++)
+                    deals.add(in.readDeal());
+                Hid turn = in.readHid();
+                msg = new Snapshot(hids, deals, turn, in.readVarInt());
+                break;
+            }
+                
+            case PROBE: msg = new Probe(); break;
+                
+            case RELEASE: msg = new Release(in.readTicket()); break;
+                
+            case STATUS: {
+                int tables = in.readVarInt();
+                int active = in.readVarInt();
+                int seated = in.readVarInt();
+                msg = new Status(tables, active, seated, in.readVarInt());
+                break;
+            }
+                
+            case BATCH: {
+                if(nested)
+                    throw new StreamCorruptedException("nested batch");
+                
+                int n = in.readCount(Reader.MIN_MESSAGE);
+                List<Message> messages = new ArrayList<>(n);
+                for(int i=0; i < n; i++)
+                    messages.add(decode(in.readBytes(), true));
+                msg = new Batch(messages);
+                break;
+            }
+                
+            default:
+                throw new StreamCorruptedException("unknown message tag "+tag);
+        }
+        
+        msg.setSerialno(serialno);
+        msg.setSeq(seq);
+        msg.setStamp(stamp);
+        msg.setSource(source);
+        
+        return msg;
+    }
+    
+    /**
+     * Gets the type tag of a message.
+     * @param msg Message
+     * @return Tag
+     * @throws IOException If the message has no binary form
+     */
+    protected byte tagOf(Message msg) throws IOException {
+        // Most specific classes first since outcomes and requests are families
+        if(msg instanceof Hello) return HELLO;
+        if(msg instanceof Bet) return BET;
+        if(msg instanceof Hit) return HIT;
+        if(msg instanceof Stay) return STAY;
+        if(msg instanceof DoubleDown) return DOUBLE_DOWN;
+        if(msg instanceof SplitRequest) return SPLIT_REQUEST;
+        if(msg instanceof Insure) return INSURE;
+        if(msg instanceof Surrender) return SURRENDER;
+        if(msg instanceof Logout) return LOGOUT;
+        if(msg instanceof Login) return LOGIN;
+        if(msg instanceof Resume) return RESUME;
+        if(msg instanceof Arrival) return ARRIVAL;
+        if(msg instanceof Blackjack) return BLACKJACK;
+        if(msg instanceof Bust) return BUST;
+        if(msg instanceof Charlie) return CHARLIE;
+        if(msg instanceof Lose) return LOSE;
+        if(msg instanceof Push) return PUSH;
+        if(msg instanceof Win) return WIN;
+        if(msg instanceof Deal) return DEAL;
+        if(msg instanceof Play) return PLAY;
+        if(msg instanceof GameStart) return GAME_START;
+        if(msg instanceof GameOver) return GAME_OVER;
+        if(msg instanceof Ready) return READY;
+        if(msg instanceof Shuffle) return SHUFFLE;
+        if(msg instanceof SplitResponse) return SPLIT_RESPONSE;
+        if(msg instanceof Batch) return BATCH;
+        if(msg instanceof LoginResponse) return LOGIN_RESPONSE;
+        if(msg instanceof Snapshot) return SNAPSHOT;
+        if(msg instanceof Probe) return PROBE;
+        if(msg instanceof Status) return STATUS;
+        if(msg instanceof Release) return RELEASE;
+        
+        throw new IOException("no binary form for "+msg.getClass().getName());
+    }
+    
+    /**
+     * Writes the binary format into a growable buffer.
+     */
+    protected static class Writer {
+        private byte[] buf = new byte[64];
+        private int pos = 0;
+        
+        private void ensure(int n) {
+            if(pos + n > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+        }
+        
+        public void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+        
+        public void writeLong(long v) {
+            ensure(8);
+            for(int shift=56; shift >= 0; shift -= 8)
+                buf[pos++] = (byte) (v >>> shift);
+        }
+        
+        public void writeVarLong(long v) {
+            ensure(10);
+            while((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+        
+        public void writeVarInt(int v) {
+            // Zig-zag so small negatives stay short
+            writeVarLong(((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL);
+        }
+        
+        /**
+         * Writes an amount as varint cents if exact, else as a raw double.
+         * @param amt Amount
+         */
+        public void writeMoney(double amt) {
+            long cents = Math.round(amt * 100);
+            
+            if(cents / 100.0 == amt && Math.abs(cents) < (1L << 60)) {
+                writeVarLong(((cents << 1) ^ (cents >> 63)) << 1);
+            }
+            else {
+                writeVarLong(1);
+                writeLong(Double.doubleToRawLongBits(amt));
+            }
+        }
+        
+        public void writeString(String s) {
+            if(s == null) {
+                writeVarLong(0);
+                return;
+            }
+            
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+        
+        public void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+        
+        public void writeAddress(InetAddress addr) {
+            if(addr == null) {
+                writeByte(0);
+                return;
+            }
+            
+            byte[] bytes = addr.getAddress();
+            writeByte(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+        
+        /**
+         * Writes a card as one byte: rank in bits 0-3, suit in 4-5 and the
+         * hole card flag in 6. Zero is no card.
+         * @param card Card
+         */
+        public void writeCard(Card card) {
+            if(card == null) {
+                writeByte(0);
+                return;
+            }
+            
+            writeByte(card.getRank() | (card.getSuit().ordinal() << 4) | (card instanceof HoleCard ? 0x40 : 0));
+        }
+        
+        /**
+         * Writes a hand id, led by a flags byte: seat in bits 0-2, split in 3
+         * and bit 7 for no hand id.
+         * @param hid Hand id
+         */
+        public void writeHid(Hid hid) {
+            if(hid == null) {
+                writeByte(0x80);
+                return;
+            }
+            
+            writeByte(hid.getSeat().ordinal() | (hid.isSplit() ? 0x08 : 0));
+            writeLong(hid.getKey());
+            writeMoney(hid.getAmt());
+            writeMoney(hid.getSideAmt());
+            
+            List<charlie.util.Play> requests = hid.getRequests();
+            writeVarInt(requests.size());
+            for(charlie.util.Play play: requests)
+                writeByte(play.ordinal());
+        }
+        
+        /**
+         * Writes the fields of a deal: hand id, card and hand values.
+         * @param deal Deal
+         */
+        public void writeDeal(Deal deal) {
+            writeHid(deal.getHid());
+            writeCard(deal.getCard());
+            int[] values = deal.getHandValues();
+            writeVarInt(values[Constant.HAND_LITERAL_VALUE]);
+            writeVarInt(values[Constant.HAND_SOFT_VALUE]);
+        }
+        
+        public void writeTicket(Ticket ticket) {
+            if(ticket == null) {
+                writeByte(0);
+                return;
+            }
+            
+            writeByte(1);
+            writeLong(ticket.getNumber());
+            writeMoney(ticket.getBankroll());
+            writeVarInt(ticket.getUsage());
+        }
+        
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+    
+    /**
+     * Reads the binary format from a payload.
+     * Nothing read off the wire is trusted: counts are checked against the
+     * bytes left and indices against their tables, so a bad frame fails
+     * with StreamCorruptedException instead of running out of memory or
+     * throwing an unchecked exception past the reader.
+     */
+    protected static class Reader {
+        // Fewest bytes each kind of item in a list can take
+        protected final static int MIN_HID = 1;
+        protected final static int MIN_DEAL = 4;
+        protected final static int MIN_MESSAGE = 1;
+        protected final static int MIN_PLAY = 1;
+        
+        private final byte[] buf;
+        private int pos = 0;
+        
+        public Reader(byte[] buf) {
+            this.buf = buf;
+        }
+        
+        public byte readByte() throws IOException {
+            if(pos >= buf.length)
+                throw new StreamCorruptedException("truncated payload");
+            
+            return buf[pos++];
+        }
+        
+        /**
+         * Reads the number of items in a list, which can't be more than
+         * the bytes left could hold.
+         * @param min Fewest bytes an item takes
+         * @return Count
+         * @throws IOException If the count is negative or too big
+         */
+        public int readCount(int min) throws IOException {
+            int n = readVarInt();
+            
+            if(n < 0 || (long) n * min > buf.length - pos)
+                throw new StreamCorruptedException("bad count "+n);
+            
+            return n;
+        }
+        
+        public long readLong() throws IOException {
+            long v = 0;
+            for(int i=0; i < 8; i++)
+                v = (v << 8) | (readByte() & 0xFF);
+            return v;
+        }
+        
+        public long readVarLong() throws IOException {
+            long v = 0;
+            for(int shift=0; shift < 64; shift += 7) {
+                byte b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0)
+                    return v;
+            }
+            throw new StreamCorruptedException("malformed varint");
+        }
+        
+        public int readVarInt() throws IOException {
+            int v = (int) readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+        
+        public double readMoney() throws IOException {
+            long v = readVarLong();
+            
+            if(v == 1)
+                return Double.longBitsToDouble(readLong());
+            
+            v >>>= 1;
+            long cents = (v >>> 1) ^ -(v & 1);
+            
+            return cents / 100.0;
+        }
+        
+        public String readString() throws IOException {
+            long n = readVarLong();
+            if(n == 0)
+                return null;
+            
+            n -= 1;
+            if(n < 0 || n > buf.length - pos)
+                throw new StreamCorruptedException("truncated string");
+            
+            String s = new String(buf, pos, (int) n, StandardCharsets.UTF_8);
+            pos += (int) n;
+            
+            return s;
+        }
+        
+        public byte[] readBytes() throws IOException {
+            long n = readVarLong();
+            if(n < 0 || n > buf.length - pos)
+                throw new StreamCorruptedException("truncated bytes");
+            
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + (int) n);
+            pos += (int) n;
+            
+            return bytes;
+        }
+        
+        public InetAddress readAddress() throws IOException {
+            int n = readByte();
+            if(n == 0)
+                return null;
+            
+            // IPv4 or IPv6
+            if(n != 4 && n != 16)
+                throw new StreamCorruptedException("bad address length "+n);
+            
+            if(n > buf.length - pos)
+                throw new StreamCorruptedException("truncated address");
+            
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + n);
+            pos += n;
+            
+            return InetAddress.getByAddress(bytes);
+        }
+        
+        public Card readCard() throws IOException {
+            int b = readByte();
+            if(b == 0)
+                return null;
+            
+            int rank = b & 0x0F;
+            if(rank < Card.ACE || rank > Card.KING)
+                throw new StreamCorruptedException("bad card rank "+rank);
+            
+            Card card = Card.valueOf(rank, SUITS[(b >> 4) & 0x03]);
+            
+            return (b & 0x40) != 0 ? new HoleCard(card) : card;
+        }
+        
+        public Hid readHid() throws IOException {
+            int flags = readByte() & 0xFF;
+            if((flags & 0x80) != 0)
+                return null;
+            
+            int seat = flags & 0x07;
+            if(seat >= SEATS.length)
+                throw new StreamCorruptedException("bad seat "+seat);
+            
+            Hid hid = new Hid(SEATS[seat], 0, 0);
+            hid.setSplit((flags & 0x08) != 0);
+            hid.setKey(readLong());
+            hid.setAmt(readMoney());
+            hid.setSideAmt(readMoney());
+            
+            int n = readCount(MIN_PLAY);
+            for(int i=0; i < n; i++) {
+                int play = readByte();
+                if(play < 0 || play >= PLAYS.length)
+                    throw new StreamCorruptedException("bad play "+play);
+                
+                hid.request(PLAYS[play]);
+            }
+            
+            return hid;
+        }
+        
+        public Deal readDeal() throws IOException {
+            Hid hid = readHid();
+            Card card = readCard();
+            int[] values = new int[2];
+            values[Constant.HAND_LITERAL_VALUE] = readVarInt();
+            values[Constant.HAND_SOFT_VALUE] = readVarInt();
+            
+            return new Deal(hid, values, card);
+        }
+        
+        public Ticket readTicket() throws IOException {
+            if(readByte() == 0)
+                return null;
+            
+            long number = readLong();
+            double bankroll = readMoney();
+            
+            return new Ticket(number, bankroll, readVarInt());
+        }
+    }
+}
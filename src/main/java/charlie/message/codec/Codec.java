@@ -0,0 +1,54 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message.codec;
+
+import charlie.message.Message;
+import java.io.IOException;
+
+/**
+ * This interface defines how messages are turned into frame payloads.
+ * @author Ron Coleman
+ */
+public interface Codec {
+    /**
+     * Gets the codec name used to negotiate it.
+     * @return Name
+     */
+    public String getName();
+    
+    /**
+     * Encodes a message.
+     * @param msg Message
+     * @return Payload
+     * @throws IOException If the message can't be encoded
+     */
+    public byte[] encode(Message msg) throws IOException;
+    
+    /**
+     * Decodes a message.
+     * @param payload Payload
+     * @return Message
+     * @throws IOException If the payload is malformed
+     */
+    public Message decode(byte[] payload) throws IOException;
+}
@@ -0,0 +1,81 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message.codec;
+
+import charlie.message.Message;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.IOException;
+
+/**
+ * This class implements the codec factory.
+ * Decoding doesn't need negotiation: a binary payload starts with a type tag
+ * below 0x80 whereas a serialized one starts with the stream magic 0xACED.
+ * @author Ron Coleman
+ */
+public class CodecFactory {
+    private final static SerialCodec SERIAL = new SerialCodec();
+    private final static BinaryCodec BINARY = new BinaryCodec();
+    
+    /**
+     * Gets a codec by name.
+     * @param name Codec name, "serial" or "binary"
+     * @return Codec, the serial codec if the name is unknown
+     */
+    public static Codec getInstance(String name) {
+        if(BinaryCodec.NAME.equals(name))
+            return BINARY;
+        
+        return SERIAL;
+    }
+    
+    /**
+     * Gets the codec configured by the "charlie.actor.codec" property.
+     * @return Codec
+     */
+    public static Codec getInstance() {
+        return getInstance(Helper.getPropertyOrElse(Constant.ACTOR_CODEC, SerialCodec.NAME));
+    }
+    
+    /**
+     * Decodes a payload in whichever format it was encoded.
+     * @param payload Payload
+     * @return Message
+     * @throws IOException If the payload is malformed
+     */
+    public static Message decode(byte[] payload) throws IOException {
+        return of(payload).decode(payload);
+    }
+    
+    /**
+     * Gets the codec a payload was encoded with.
+     * @param payload Payload
+     * @return Codec
+     */
+    public static Codec of(byte[] payload) {
+        if(payload.length > 0 && (payload[0] & 0x80) == 0)
+            return BINARY;
+        
+        return SERIAL;
+    }
+}
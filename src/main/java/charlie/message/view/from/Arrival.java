@@ -33,6 +33,8 @@ import java.net.InetAddress;
 public class Arrival extends Message {
     protected final Ticket ticket;
     protected boolean botEnabled;
+    protected boolean persistent;
+    protected String codec;
     private final int port;
     
     /**
@@ -72,6 +74,38 @@ public class Arrival extends Message {
         botEnabled = enable;
     }
     
+    /**
+     * Tests whether the courier wants a persistent channel.
+     * @return True if persistent, false otherwise
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+    
+    /**
+     * Enables a persistent channel between courier and real player.
+     * @param enable Enable
+     */
+    public void enablePersistent(boolean enable) {
+        persistent = enable;
+    }
+    
+    /**
+     * Gets the codec the courier wants frames encoded with.
+     * @return Codec name or null for the default
+     */
+    public String getCodec() {
+        return codec;
+    }
+    
+    /**
+     * Sets the codec the courier wants frames encoded with.
+     * @param codec Codec name
+     */
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+    
     public int getPort() {
         return port;
     }
@@ -0,0 +1,50 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message.view.to;
+
+import charlie.message.Message;
+import charlie.server.Ticket;
+
+/**
+ * This message answers a login sent to the server's single endpoint.
+ * @author Ron Coleman
+ */
+public class LoginResponse extends Message {
+    private final Ticket ticket;
+    
+    /**
+     * Constructor
+     * @param ticket Ticket or null if the login failed
+     */
+    public LoginResponse(Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    /**
+     * Gets the ticket.
+     * @return Ticket or null if the login failed
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message.view.to;
+
+import charlie.card.Hid;
+import charlie.message.Message;
+import java.util.List;
+
+/**
+ * This message gives a resuming courier the table as it stands: every hand
+ * in play, the cards dealt to each as they were dealt, and whose turn it is.
+ * Live events continue after it.
+ * @author Ron Coleman
+ */
+public class Snapshot extends Message {
+    private final List<Hid> hids;
+    private final List<Deal> deals;
+    private final Hid turn;
+    private final int shoeSize;
+    
+    /**
+     * Constructor
+     * @param hids Hand ids in play, dealer last, or empty between games
+     * @param deals Cards dealt so far with the hand values at the time
+     * @param turn Hand whose turn it is or null if none
+     * @param shoeSize Current shoe size
+     */
+    public Snapshot(List<Hid> hids, List<Deal> deals, Hid turn, int shoeSize) {
+        this.hids = hids;
+        this.deals = deals;
+        this.turn = turn;
+        this.shoeSize = shoeSize;
+    }
+
+    /**
+     * Gets the hand ids.
+     * @return Hand ids
+     */
+    public List<Hid> getHids() {
+        return hids;
+    }
+
+    /**
+     * Gets the cards dealt so far.
+     * @return Deals in the order to replay them
+     */
+    public List<Deal> getDeals() {
+        return deals;
+    }
+
+    /**
+     * Gets the hand whose turn it is.
+     * @return Hand id or null if none
+     */
+    public Hid getTurn() {
+        return turn;
+    }
+
+    /**
+     * Gets the shoe size.
+     * @return Shoe size
+     */
+    public int getShoeSize() {
+        return shoeSize;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a counter which many threads can bump at once
+ * without contending on one memory location.
+ * @author Ron Coleman
+ */
+public class Counter implements CounterMBean {
+    protected final String name;
+    protected final LongAdder count = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param name Metric name
+     */
+    public Counter(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Adds one.
+     */
+    public void inc() {
+        if(Metrics.ENABLED)
+            count.increment();
+    }
+    
+    /**
+     * Adds some.
+     * @param n Amount
+     */
+    public void add(long n) {
+        if(Metrics.ENABLED)
+            count.add(n);
+    }
+    
+    /**
+     * Gets the count.
+     * @return Count
+     */
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+    
+    /**
+     * Sets the count back to zero.
+     */
+    @Override
+    public void reset() {
+        count.reset();
+    }
+    
+    /**
+     * Gets the metric name.
+     * @return Name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Converts the counter to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return name+" count="+getCount();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a latency histogram in the style of HDR
+ * histograms: buckets are powers of two, each split into 32 equal
+ * sub-buckets, so any sample from a nanosecond to centuries lands in a
+ * fixed array within about 3% of its value. Recording is a few shifts and
+ * an atomic increment, with no lock and no allocation.
+ * @author Ron Coleman
+ */
+public class Histogram implements HistogramMBean {
+    protected final static int SUB_BITS = 5;
+    protected final static int SUB = 1 << SUB_BITS;
+    protected final static int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+    
+    protected final String name;
+    protected final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    protected final LongAdder count = new LongAdder();
+    protected final LongAdder sum = new LongAdder();
+    protected final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    
+    /**
+     * Constructor
+     * @param name Metric name
+     */
+    public Histogram(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Gets the bucket of a value.
+     * @param value Value, not negative
+     * @return Bucket index
+     */
+    protected static int indexOf(long value) {
+        if(value < SUB)
+            return (int) value;
+        
+        // Keep the top SUB_BITS+1 bits: the leading one picks the power of
+        // two and the rest the sub-bucket.
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        
+        return shift * SUB + (int) (value >>> shift);
+    }
+    
+    /**
+     * Gets the largest value in a bucket.
+     * @param index Bucket index
+     * @return Value
+     */
+    protected static long valueOf(int index) {
+        if(index < SUB)
+            return index;
+        
+        int shift = index / SUB - 1;
+        long top = index % SUB + SUB + 1;
+        
+        long value = (top << shift) - 1;
+        
+        return value < 0 ? Long.MAX_VALUE : value;
+    }
+    
+    /**
+     * Records a sample.
+     * @param nanos Latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if(!Metrics.ENABLED)
+            return;
+        
+        if(nanos < 0)
+            nanos = 0;
+        
+        counts.incrementAndGet(indexOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+    
+    /**
+     * Records the time since a start.
+     * @param start Start from System.nanoTime()
+     */
+    public void since(long start) {
+        record(System.nanoTime() - start);
+    }
+    
+    /**
+     * Gets a percentile.
+     * @param p Percentile from 0 to 100
+     * @return Nanoseconds, zero if there are no samples
+     */
+    public long percentile(double p) {
+        long total = 0;
+        
+        long[] snapshot = new long[BUCKETS];
+        
+        for(int i=0; i < BUCKETS; i++)
+            total += snapshot[i] = counts.get(i);
+        
+        if(total == 0)
+            return 0;
+        
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+        
+        long seen = 0;
+        
+        for(int i=0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            
+            if(seen >= rank)
+                return Math.min(valueOf(i), max.get());
+        }
+        
+        return max.get();
+    }
+    
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+    
+    @Override
+    public double getMean() {
+        long n = count.sum();
+        
+        return n == 0 ? 0 : sum.sum() / (n * 1000.);
+    }
+    
+    @Override
+    public double getP50() {
+        return percentile(50) / 1000.;
+    }
+    
+    @Override
+    public double getP90() {
+        return percentile(90) / 1000.;
+    }
+    
+    @Override
+    public double getP99() {
+        return percentile(99) / 1000.;
+    }
+    
+    @Override
+    public double getP999() {
+        return percentile(99.9) / 1000.;
+    }
+    
+    @Override
+    public double getMax() {
+        return max.get() / 1000.;
+    }
+    
+    @Override
+    public void reset() {
+        for(int i=0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+    
+    /**
+     * Gets the metric name.
+     * @return Name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Converts the histogram to a string in microseconds.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return String.format("%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                name, getCount(), getMean(), getP50(), getP99(), getP999(), getMax());
+    }
+}
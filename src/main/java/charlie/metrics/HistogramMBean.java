@@ -0,0 +1,77 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.metrics;
+
+/**
+ * This interface is the JMX view of a latency histogram. Latencies are in
+ * microseconds.
+ * @author Ron Coleman
+ */
+public interface HistogramMBean {
+    /**
+     * Gets the number of samples.
+     * @return Count
+     */
+    public long getCount();
+    
+    /**
+     * Gets the mean.
+     * @return Microseconds
+     */
+    public double getMean();
+    
+    /**
+     * Gets the median.
+     * @return Microseconds
+     */
+    public double getP50();
+    
+    /**
+     * Gets the 90th percentile.
+     * @return Microseconds
+     */
+    public double getP90();
+    
+    /**
+     * Gets the 99th percentile.
+     * @return Microseconds
+     */
+    public double getP99();
+    
+    /**
+     * Gets the 99.9th percentile.
+     * @return Microseconds
+     */
+    public double getP999();
+    
+    /**
+     * Gets the largest sample.
+     * @return Microseconds
+     */
+    public double getMax();
+    
+    /**
+     * Clears the samples.
+     */
+    public void reset();
+}
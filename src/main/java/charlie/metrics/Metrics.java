@@ -0,0 +1,178 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.metrics;
+
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.log4j.Logger;
+
+/**
+ * This class is the registry of counters and histograms. A metric is
+ * created on first use, published as a JMX bean under charlie.metrics and,
+ * if there's a dump period, logged with the others every period. Callers
+ * keep the metrics they use in fields so the hot path doesn't look them up.
+ * <p>
+ * Metrics are on unless charlie.metrics is false, in which case recording
+ * does nothing.
+ * @author Ron Coleman
+ */
+public class Metrics {
+    private final static Logger LOG = Logger.getLogger(Metrics.class);
+    
+    public final static String DOMAIN = "charlie.metrics";
+    
+    public final static boolean ENABLED = Helper.getPropertyOrElse(Constant.METRICS, true);
+    
+    protected final static Map<String,Counter> counters = new ConcurrentHashMap<>();
+    protected final static Map<String,Histogram> histograms = new ConcurrentHashMap<>();
+    
+    protected static Timer dumper;
+    
+    /**
+     * Gets a counter, creating it if necessary.
+     * @param name Metric name
+     * @return Counter
+     */
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        
+        if(counter != null)
+            return counter;
+        
+        return counters.computeIfAbsent(name, key -> publish(new Counter(key), "Counter", key));
+    }
+    
+    /**
+     * Gets a histogram, creating it if necessary.
+     * @param name Metric name
+     * @return Histogram
+     */
+    public static Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        
+        if(histogram != null)
+            return histogram;
+        
+        return histograms.computeIfAbsent(name, key -> publish(new Histogram(key), "Histogram", key));
+    }
+    
+    /**
+     * Gets histograms for each type of message, or anything else, under a
+     * prefix.
+     * @param prefix Name prefix, for instance, "actor.send."
+     * @return Histogram of each class, created on first use
+     */
+    public static ClassValue<Histogram> byType(String prefix) {
+        return new ClassValue<Histogram>() {
+            @Override
+            protected Histogram computeValue(Class<?> type) {
+                return histogram(prefix + type.getSimpleName());
+            }
+        };
+    }
+    
+    /**
+     * Registers a metric with the platform bean server and starts the dump.
+     * @param metric Metric
+     * @param type Bean type
+     * @param name Metric name
+     * @return Metric
+     */
+    protected static <T> T publish(T metric, String type, String name) {
+        if(!ENABLED)
+            return metric;
+        
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            
+            ObjectName id = new ObjectName(DOMAIN+":type="+type+",name="+ObjectName.quote(name));
+            
+            if(!server.isRegistered(id))
+                server.registerMBean(metric, id);
+        }
+        catch(JMException ex) {
+            LOG.error("failed to publish "+name+": "+ex);
+        }
+        
+        schedule();
+        
+        return metric;
+    }
+    
+    /**
+     * Starts logging the metrics every dump period, if there is one.
+     */
+    protected static synchronized void schedule() {
+        if(dumper != null)
+            return;
+        
+        long period = Helper.getPropertyOrElse(Constant.METRICS_DUMP, 60000);
+        
+        if(period <= 0)
+            return;
+        
+        dumper = new Timer("metrics-dump", true);
+        
+        dumper.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                LOG.info("metrics\n"+snapshot());
+            }
+        }, period, period);
+    }
+    
+    /**
+     * Gets every metric, one per line in name order.
+     * @return String
+     */
+    public static String snapshot() {
+        Map<String,Object> metrics = new ConcurrentSkipListMap<>();
+        
+        metrics.putAll(counters);
+        metrics.putAll(histograms);
+        
+        StringBuilder buffer = new StringBuilder();
+        
+        for(Object metric: metrics.values())
+            buffer.append(metric).append('\n');
+        
+        return buffer.toString();
+    }
+    
+    /**
+     * Clears every metric.
+     */
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+}
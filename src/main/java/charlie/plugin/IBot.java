@@ -44,7 +44,9 @@ public interface IBot extends IPlayer {
     public void setDealer(Dealer dealer);
     
     /**
-     * Sits the bot in seat.
+     * Sits the bot in seat. If bots are pooled, that is, charlie.plugin.pool
+     * is true, the same bot sits hand after hand, so this must start a fresh
+     * hand and forget anything kept from the last one.
      * @param seat Seat
      */
     public void sit(Seat seat);
@@ -113,4 +113,17 @@ public interface IPlayer {
      */
     abstract public void split(Hid newHid, Hid origHid);
     
+    /**
+     * Tells player the events which follow, up to endBatch, belong to one
+     * dealer step so they may be sent together. Batches may nest.
+     * By default, events are handled one by one.
+     */
+    default public void startBatch() {
+    }
+    
+    /**
+     * Tells player the dealer step is done.
+     */
+    default public void endBatch() {
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.plugin;
+
+import charlie.metrics.Histogram;
+import charlie.metrics.Metrics;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements a factory for one configured plugin. The class is
+ * loaded and its constructor looked up once; making an instance is then a
+ * direct constructor call. Instances which can be used again, like bots
+ * between hands, go back in a pool.
+ * @author Ron Coleman
+ * @param <T> Plugin type
+ */
+public class Plugin<T> {
+    private final static Logger LOG = Logger.getLogger(Plugin.class);
+    
+    protected final String key;
+    protected final Class<?> clazz;
+    protected final MethodHandle constructor;
+    protected final long loadNanos;
+    protected final boolean pooled;
+    protected final ConcurrentLinkedQueue<T> pool = new ConcurrentLinkedQueue<>();
+    protected final Histogram creating;
+    
+    /**
+     * Constructor
+     * @param key Property which configures the plugin
+     * @param clazz Plugin class
+     * @param loadNanos Time to load the class and find its constructor
+     * @param pooled True to keep released instances for reuse
+     * @param params Constructor parameter types
+     * @throws ReflectiveOperationException If there's no public constructor
+     * with these parameters
+     */
+    public Plugin(String key, Class<?> clazz, long loadNanos, boolean pooled, Class<?>... params)
+            throws ReflectiveOperationException {
+        this.key = key;
+        this.clazz = clazz;
+        this.pooled = pooled;
+        
+        long start = System.nanoTime();
+        
+        // Erased to objects so every plugin calls through the same shape
+        this.constructor = MethodHandles.publicLookup()
+                .findConstructor(clazz, MethodType.methodType(void.class, params))
+                .asType(MethodType.genericMethodType(params.length));
+        
+        this.loadNanos = loadNanos + System.nanoTime() - start;
+        
+        this.creating = Metrics.histogram("plugin."+key);
+    }
+    
+    /**
+     * Makes an instance with the no-argument constructor.
+     * @return Instance or null if the constructor failed
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        long start = System.nanoTime();
+        
+        try {
+            return (T) (Object) constructor.invokeExact();
+        }
+        catch(Throwable ex) {
+            LOG.error("failed to instantiate "+clazz.getName()+": "+ex);
+            return null;
+        }
+        finally {
+            creating.since(start);
+        }
+    }
+    
+    /**
+     * Makes an instance with the one-argument constructor.
+     * @param arg Constructor argument
+     * @return Instance or null if the constructor failed
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object arg) {
+        long start = System.nanoTime();
+        
+        try {
+            return (T) (Object) constructor.invokeExact(arg);
+        }
+        catch(Throwable ex) {
+            LOG.error("failed to instantiate "+clazz.getName()+": "+ex);
+            return null;
+        }
+        finally {
+            creating.since(start);
+        }
+    }
+    
+    /**
+     * Gets an instance from the pool, otherwise makes one.
+     * @return Instance or null if the constructor failed
+     */
+    public T acquire() {
+        T instance = pool.poll();
+        
+        return instance != null ? instance : newInstance();
+    }
+    
+    /**
+     * Returns an instance to the pool, if pooling is on.
+     * @param instance Instance from acquire
+     */
+    public void release(T instance) {
+        if(pooled && instance != null)
+            pool.offer(instance);
+    }
+    
+    /**
+     * Gets the property which configures the plugin.
+     * @return Key
+     */
+    public String getKey() {
+        return key;
+    }
+    
+    /**
+     * Gets the plugin class.
+     * @return Class
+     */
+    public Class<?> getType() {
+        return clazz;
+    }
+    
+    /**
+     * Gets the time to load the class and find its constructor.
+     * @return Nanoseconds
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+    
+    /**
+     * Gets the time to make each instance.
+     * @return Histogram in microseconds
+     */
+    public Histogram getCreating() {
+        return creating;
+    }
+    
+    /**
+     * Converts the plugin to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return String.format("%s = %s loaded in %,d us, made %,d mean %.1f us max %.1f us%s",
+                key, clazz.getName(), loadNanos / 1000,
+                creating.getCount(), creating.getMean(), creating.getMax(),
+                pooled ? ", pooled "+pool.size() : "");
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.plugin;
+
+import charlie.actor.House;
+import charlie.util.Constant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * This class resolves the configured plugins once so the dealer and the
+ * house make bots, shoes, side bet rules and dealers without loading
+ * classes or looking up constructors as they play.
+ * <p>
+ * The registry covers bots (charlie.bot.*), the shoe, the side bet rule,
+ * the dealer, the advisor and the trap. It resolves what's configured when
+ * it's created and reports the load times. Properties can still change
+ * later, as the tests do when they rig the shoe after the server starts:
+ * each lookup checks the property and resolves the class again only if it
+ * changed. A plugin whose class won't load is logged once and left out, as
+ * if it weren't configured. Bots are pooled between hands only if
+ * charlie.plugin.pool is true, since a pooled bot's sit must start a fresh
+ * hand, which bots written before pooling needn't do.
+ * @author Ron Coleman
+ */
+public class PluginRegistry {
+    private final static Logger LOG = Logger.getLogger(PluginRegistry.class);
+    
+    /** Shoe when none is configured */
+    public final static String DEFAULT_SHOE = "charlie.shoe.Shoe";
+    
+    /** Plugins besides the bots */
+    protected final static String[] KEYS = {
+        Constant.PLUGIN_SHOE,
+        Constant.PLUGIN_SIDE_BET_RULE,
+        Constant.PLUGIN_DEALER,
+        Constant.PLUGIN_ADVISOR,
+        Constant.PLUGIN_TRAP
+    };
+    
+    protected static PluginRegistry instance;
+    
+    protected final Properties props;
+    protected final boolean pooled;
+    protected final ConcurrentHashMap<String,Resolved> plugins = new ConcurrentHashMap<>();
+    
+    /**
+     * Constructor
+     * @param props Properties which configure the plugins
+     */
+    public PluginRegistry(Properties props) {
+        this.props = props;
+        this.pooled = Boolean.parseBoolean(props.getProperty(Constant.PLUGIN_POOL, "false"));
+        
+        for(String key: KEYS)
+            get(key, Object.class);
+        
+        for(String key: props.stringPropertyNames())
+            if(key.startsWith(Constant.PLUGIN_BOT))
+                get(key, Object.class);
+    }
+    
+    /**
+     * Gets the registry of the system properties, resolving it on first use.
+     * @return Registry
+     */
+    public static synchronized PluginRegistry getInstance() {
+        if(instance == null)
+            load();
+        
+        return instance;
+    }
+    
+    /**
+     * Resolves the plugins afresh from the system properties, for instance,
+     * once the server has loaded its properties.
+     * @return Registry
+     */
+    public static synchronized PluginRegistry load() {
+        instance = new PluginRegistry(System.getProperties());
+        
+        LOG.info("plugins resolved:\n"+instance.report());
+        
+        return instance;
+    }
+    
+    /**
+     * Gets a plugin.
+     * @param <T> Plugin type
+     * @param key Property which configures the plugin
+     * @param type Plugin type
+     * @return Plugin or null if it's not configured, failed to load or is
+     * not of the type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Plugin<T> get(String key, Class<T> type) {
+        String className = props.getProperty(key);
+        
+        if(className == null && key.equals(Constant.PLUGIN_SHOE))
+            className = DEFAULT_SHOE;
+        
+        if(className == null)
+            return null;
+        
+        Resolved resolved = plugins.get(key);
+        
+        if(resolved == null || !resolved.className.equals(className))
+            resolved = resolve(key, className);
+        
+        Plugin<?> plugin = resolved.plugin;
+        
+        if(plugin == null || !type.isAssignableFrom(plugin.getType()))
+            return null;
+        
+        return (Plugin<T>) plugin;
+    }
+    
+    /**
+     * Loads a plugin class and finds its constructor.
+     * @param key Property which configures the plugin
+     * @param className Plugin class name
+     * @return Plugin, which has no factory if the class failed to load
+     */
+    protected Resolved resolve(String key, String className) {
+        long start = System.nanoTime();
+        
+        Plugin<?> plugin = null;
+        
+        try {
+            Class<?> clazz = Class.forName(className.trim());
+            
+            // A dealer belongs to the house which opened its table
+            Class<?>[] params = key.equals(Constant.PLUGIN_DEALER) ?
+                    new Class<?>[] {House.class} : new Class<?>[0];
+            
+            // Only bots are put back after a hand
+            boolean pool = pooled && key.startsWith(Constant.PLUGIN_BOT);
+            
+            plugin = new Plugin<>(key, clazz, System.nanoTime() - start, pool, params);
+        }
+        catch(ReflectiveOperationException | LinkageError ex) {
+            LOG.error("plugin "+key+" = "+className+" failed to load: "+ex);
+        }
+        
+        Resolved resolved = new Resolved(className, plugin);
+        
+        plugins.put(key, resolved);
+        
+        return resolved;
+    }
+    
+    /**
+     * Makes an instance of a plugin.
+     * @param <T> Plugin type
+     * @param key Property which configures the plugin
+     * @param type Plugin type
+     * @return Instance or null if it's not configured or failed
+     */
+    public <T> T newInstance(String key, Class<T> type) {
+        Plugin<T> plugin = get(key, type);
+        
+        return plugin == null ? null : plugin.newInstance();
+    }
+    
+    /**
+     * Gets the plugins resolved.
+     * @return Plugins
+     */
+    public List<Plugin<?>> getPlugins() {
+        List<Plugin<?>> list = new ArrayList<>();
+        
+        for(Resolved resolved: plugins.values())
+            if(resolved.plugin != null)
+                list.add(resolved.plugin);
+        
+        return list;
+    }
+    
+    /**
+     * Gets the report of load and instantiation times.
+     * @return One line per plugin
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        
+        for(Plugin<?> plugin: getPlugins())
+            sb.append(plugin).append("\n");
+        
+        return sb.toString();
+    }
+    
+    /**
+     * This class records the class a property named when it was resolved.
+     */
+    protected static class Resolved {
+        protected final String className;
+        protected final Plugin<?> plugin;
+        
+        /**
+         * Constructor
+         * @param className Class the property named
+         * @param plugin Plugin or null if the class failed to load
+         */
+        protected Resolved(String className, Plugin<?> plugin) {
+            this.className = className;
+            this.plugin = plugin;
+        }
+    }
+}
@@ -0,0 +1,519 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.server;
+
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the durable store of account balances.
+ * Settlements are queued and a committer thread appends them, a group at a
+ * time, to a memory-mapped journal which it forces to disk once per group,
+ * so the dealer never waits on the disk. A record is the account's new
+ * balance in cents, so replaying the journal is idempotent. When the
+ * journal fills, the balances are written to a snapshot, the snapshot
+ * atomically replaces the last one and the journal starts over under the
+ * snapshot's generation. Recovery loads the snapshot and replays journal
+ * records of its generation up to the first torn or stale one.
+ * <p>
+ * Accounts are identified by a 64-bit hash of the login name.
+ * @author Ron Coleman
+ */
+public class AccountStore {
+    private final Logger LOG = Logger.getLogger(AccountStore.class);
+    
+    public final static String JOURNAL = "accounts.journal";
+    public final static String SNAPSHOT = "accounts.snap";
+    
+    /** Journal record: account, cents, generation and CRC */
+    protected final static int RECORD = 24;
+    protected final static int SNAPSHOT_MAGIC = 0x43484153;
+    
+    protected final Path dir;
+    protected final int capacity;
+    protected final int batch;
+    
+    // Balances in cents of everything on disk, only written by the committer
+    protected final ConcurrentHashMap<Long,Long> balances = new ConcurrentHashMap<>();
+    protected final LinkedBlockingQueue<Posting> queue = new LinkedBlockingQueue<>();
+    
+    protected FileChannel channel;
+    protected MappedByteBuffer journal;
+    protected int generation = 0;
+    protected final CRC32 crc = new CRC32();
+    protected final ByteBuffer record = ByteBuffer.allocate(RECORD);
+    
+    protected final Thread committer;
+    protected volatile boolean running = true;
+    
+    // Commit and recovery stats
+    protected final AtomicLong posted = new AtomicLong();
+    protected long committed = 0;
+    protected final LongAdder commits = new LongAdder();
+    protected final LongAdder latency = new LongAdder();
+    protected final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    protected final LongAdder snapshots = new LongAdder();
+    protected long recovered = 0;
+    protected long recoveryNanos = 0;
+    
+    /**
+     * Constructor with the configured directory and limits.
+     * @throws IOException If the store can't be opened
+     */
+    public AccountStore() throws IOException {
+        this(Paths.get(System.getProperty(Constant.STORE_DIR, "accounts")),
+             Helper.getPropertyOrElse(Constant.STORE_JOURNAL, 64 * 1024 * 1024),
+             Helper.getPropertyOrElse(Constant.STORE_BATCH, 4096));
+    }
+    
+    /**
+     * Constructor
+     * @param dir Directory of the journal and snapshot
+     * @param capacity Journal size in bytes
+     * @param batch Most settlements committed at once
+     * @throws IOException If the store can't be opened
+     */
+    public AccountStore(Path dir, int capacity, int batch) throws IOException {
+        this.dir = dir;
+        this.capacity = capacity - capacity % RECORD;
+        this.batch = Math.max(1, Math.min(batch, this.capacity / RECORD));
+        
+        Files.createDirectories(dir);
+        
+        recover();
+        
+        committer = new Thread(this::commit, "account-store");
+        committer.setDaemon(true);
+        committer.start();
+    }
+    
+    /**
+     * Gets the account of a login name.
+     * @param logname Login name
+     * @return Account number
+     */
+    public static long idOf(String logname) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        
+        for(byte b: logname.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        
+        return hash;
+    }
+    
+    /**
+     * Queues an account's new balance to be made durable.
+     * @param account Account number
+     * @param cents Balance in cents
+     */
+    public void post(long account, long cents) {
+        posted.incrementAndGet();
+        
+        queue.offer(new Posting(account, cents, System.nanoTime()));
+    }
+    
+    /**
+     * Gets an account's durable balance.
+     * @param account Account number
+     * @param bankroll Balance in dollars of an account the store doesn't have
+     * @return Balance in dollars
+     */
+    public double getBalance(long account, double bankroll) {
+        Long cents = balances.get(account);
+        
+        return cents == null ? bankroll : Ledger.toDollars(cents);
+    }
+    
+    /**
+     * Waits until everything the calling thread posted is on disk.
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void sync() throws InterruptedException {
+        long target = posted.get();
+        
+        synchronized(this) {
+            while(committed < target && committer.isAlive())
+                wait(100);
+        }
+    }
+    
+    /**
+     * Commits what's queued, writes a snapshot and closes the journal.
+     */
+    public void close() {
+        running = false;
+        
+        try {
+            committer.join();
+            
+            compact();
+            
+            channel.close();
+        }
+        catch(InterruptedException | IOException ex) {
+            LOG.error("failed to close store: "+ex);
+        }
+    }
+    
+    /**
+     * Loads the last snapshot and replays the journal after it.
+     * @throws IOException If the store can't be read
+     */
+    protected final void recover() throws IOException {
+        long start = System.nanoTime();
+        
+        Path snapshot = dir.resolve(SNAPSHOT);
+        
+        if(Files.exists(snapshot))
+            load(snapshot);
+        
+        long loaded = balances.size();
+        
+        Path path = dir.resolve(JOURNAL);
+        
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        
+        journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size() - channel.size() % RECORD));
+        
+        long replayed = 0;
+        
+        while(journal.remaining() >= RECORD) {
+            int position = journal.position();
+            
+            journal.get(record.array());
+            record.clear();
+            
+            long account = record.getLong();
+            long cents = record.getLong();
+            int gen = record.getInt();
+            
+            crc.reset();
+            crc.update(record.array(), 0, RECORD - 4);
+            
+            // Torn, never written or left from before the snapshot
+            if(record.getInt() != (int) crc.getValue() || gen != generation) {
+                journal.position(position);
+                break;
+            }
+            
+            record.clear();
+            
+            balances.put(account, cents);
+            replayed++;
+        }
+        
+        record.clear();
+        
+        recovered = loaded + replayed;
+        recoveryNanos = System.nanoTime() - start;
+        
+        LOG.info("recovered "+loaded+" accounts and "+replayed+" settlements in "+recoveryNanos / 1000000+" ms");
+    }
+    
+    /**
+     * Loads a snapshot.
+     * @param path Snapshot file
+     * @throws IOException If the snapshot is corrupt
+     */
+    protected void load(Path path) throws IOException {
+        try(FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            
+            if(buf.remaining() < 16 || buf.getInt() != SNAPSHOT_MAGIC)
+                throw new IOException("bad snapshot "+path);
+            
+            int gen = buf.getInt();
+            int n = buf.getInt();
+            
+            if(buf.remaining() != 16L * n + 4)
+                throw new IOException("truncated snapshot "+path);
+            
+            for(int i=0; i < n; i++)
+                balances.put(buf.getLong(), buf.getLong());
+            
+            int sum = buf.getInt();
+            
+            byte[] bytes = new byte[buf.limit() - 4];
+            buf.get(0, bytes);
+            
+            crc.reset();
+            crc.update(bytes);
+            
+            if(sum != (int) crc.getValue())
+                throw new IOException("corrupt snapshot "+path);
+            
+            generation = gen;
+        }
+    }
+    
+    /**
+     * Commits queued settlements in groups until the store closes.
+     */
+    protected void commit() {
+        List<Posting> group = new ArrayList<>(batch);
+        
+        while(running || !queue.isEmpty()) {
+            try {
+                Posting first = queue.poll(100, TimeUnit.MILLISECONDS);
+                
+                if(first == null)
+                    continue;
+                
+                group.add(first);
+                queue.drainTo(group, batch - 1);
+                
+                write(group);
+            }
+            catch(InterruptedException ex) {
+                break;
+            }
+            catch(IOException ex) {
+                LOG.error("commit failed: "+ex);
+            }
+            
+            group.clear();
+        }
+    }
+    
+    /**
+     * Appends a group of settlements to the journal and forces it.
+     * @param group Settlements
+     * @throws IOException If the journal is full and can't be compacted
+     */
+    protected void write(List<Posting> group) throws IOException {
+        if(journal.remaining() < group.size() * RECORD)
+            compact();
+        
+        int start = journal.position();
+        
+        for(Posting posting: group) {
+            record.clear();
+            record.putLong(posting.account).putLong(posting.cents).putInt(generation);
+            
+            crc.reset();
+            crc.update(record.array(), 0, RECORD - 4);
+            
+            record.putInt((int) crc.getValue());
+            
+            journal.put(record.array());
+        }
+        
+        journal.force(start, journal.position() - start);
+        
+        long now = System.nanoTime();
+        
+        for(Posting posting: group) {
+            balances.put(posting.account, posting.cents);
+            
+            long nanos = now - posting.stamp;
+            latency.add(nanos);
+            maxLatency.accumulate(nanos);
+        }
+        
+        commits.increment();
+        
+        synchronized(this) {
+            committed += group.size();
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Writes the balances to a new snapshot which replaces the old one and
+     * starts the journal over.
+     * @throws IOException If the snapshot can't be written
+     */
+    protected void compact() throws IOException {
+        long start = System.nanoTime();
+        
+        int next = generation + 1;
+        
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        
+        crc.reset();
+        
+        try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buf.putInt(SNAPSHOT_MAGIC).putInt(next).putInt(balances.size());
+            
+            for(Map.Entry<Long,Long> entry: balances.entrySet()) {
+                if(buf.remaining() < 16)
+                    drain(ch, buf);
+                
+                buf.putLong(entry.getKey()).putLong(entry.getValue());
+            }
+            
+            drain(ch, buf);
+            
+            buf.putInt((int) crc.getValue());
+            buf.flip();
+            
+            while(buf.hasRemaining())
+                ch.write(buf);
+            
+            ch.force(true);
+        }
+        
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        
+        // Records of the old generation no longer replay
+        generation = next;
+        journal.clear();
+        
+        snapshots.increment();
+        
+        LOG.info("snapshot of "+balances.size()+" accounts in "+(System.nanoTime() - start) / 1000000+" ms");
+    }
+    
+    /**
+     * Writes out a snapshot buffer, adding it to the checksum.
+     * @param ch Snapshot file
+     * @param buf Buffer
+     * @throws IOException If the write fails
+     */
+    protected void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        
+        crc.update(buf.array(), 0, buf.limit());
+        
+        while(buf.hasRemaining())
+            ch.write(buf);
+        
+        buf.clear();
+    }
+    
+    /**
+     * Gets the number of accounts.
+     * @return Count
+     */
+    public int size() {
+        return balances.size();
+    }
+    
+    /**
+     * Gets the number of group commits.
+     * @return Count
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+    
+    /**
+     * Gets the number of settlements on disk.
+     * @return Count
+     */
+    public synchronized long getCommitted() {
+        return committed;
+    }
+    
+    /**
+     * Gets the mean time from posting a settlement until it's on disk.
+     * @return Nanoseconds
+     */
+    public synchronized long getMeanLatency() {
+        return committed == 0 ? 0 : latency.sum() / committed;
+    }
+    
+    /**
+     * Gets the longest time from posting a settlement until it's on disk.
+     * @return Nanoseconds
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+    
+    /**
+     * Gets the number of snapshots written.
+     * @return Count
+     */
+    public long getSnapshots() {
+        return snapshots.sum();
+    }
+    
+    /**
+     * Gets the number of accounts and settlements recovered at startup.
+     * @return Count
+     */
+    public long getRecovered() {
+        return recovered;
+    }
+    
+    /**
+     * Gets how long recovery took.
+     * @return Nanoseconds
+     */
+    public long getRecoveryNanos() {
+        return recoveryNanos;
+    }
+    
+    /**
+     * Converts the stats to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "accounts = "+size()+" committed = "+getCommitted()+" commits = "+getCommits()+
+                " mean latency = "+getMeanLatency() / 1000+" us max = "+getMaxLatency() / 1000+" us"+
+                " snapshots = "+getSnapshots();
+    }
+    
+    /**
+     * Holds a settlement waiting to be committed.
+     */
+    protected static class Posting {
+        protected final long account;
+        protected final long cents;
+        protected final long stamp;
+        
+        protected Posting(long account, long cents, long stamp) {
+            this.account = account;
+            this.cents = cents;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -24,10 +24,16 @@ package charlie.server;
 
 import charlie.actor.House;
 import charlie.actor.ServerAuthenticator;
+import charlie.actor.last.Transport;
+import charlie.actor.last.TransportFactory;
+import charlie.message.Probe;
+import charlie.message.Release;
+import charlie.message.view.from.Arrival;
+import charlie.message.view.from.Login;
+import charlie.plugin.PluginRegistry;
+import charlie.util.Constant;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Properties;
 import java.util.Random;
 import org.apache.log4j.Logger;
@@ -43,7 +49,8 @@ public class GameServer {
     protected final static Random ran = new Random(0);
     protected final static Integer TOPOLOGY_PORT = 1234;
     protected final static String HOST = "127.0.0.1";
-    protected final List<Ticket> tickets = new ArrayList<>();
+    protected TicketRegistry tickets;
+    protected AccountStore accounts;
     
     /**
      * This method is the main entry point for the server.
@@ -69,33 +76,114 @@ public class GameServer {
             Properties props = System.getProperties();
             
             props.load(new FileInputStream(CHARLIE_PROPS_PATH));
+            
+            // Plugins load once here rather than per hand or per arrival
+            PluginRegistry.load();
+            
+            // Tickets issued at login, limited by the properties just loaded
+            tickets = new TicketRegistry();
+            
+            // Balances survive restarts if there's a store
+            if(System.getProperty(Constant.STORE_DIR) != null) {
+                accounts = new AccountStore();
+                LOG.info("account store "+accounts);
+                
+                Runtime.getRuntime().addShutdownHook(new Thread(accounts::close));
+            }
 
             // Spawn the house
             House house = new House(this);
             house.setListener(house);
+            
+            // One port for everything: route logins and arrivals by type
+            if(System.getProperty(Constant.SERVER_ENDPOINT) != null) {
+                route(house);
+                return;
+            }
+            
             house.start();
             LOG.info("house started");    
+            
+            // Bind the shared player endpoint now, if one is configured
+            if(TransportFactory.getInstance() != null)
+                LOG.info("transport started");
   
-            // Enter the authentication loop
-            while(true) {
-                // If the authentication succeeds, there'll be an extra ticket in repository
-                int sz = tickets.size();
-                
-                new ServerAuthenticator(this).receive();
-                
-                if(tickets.size() == sz)
-                    LOG.error("client authentication failed");
-            }
+            // Accept logins for as long as the server runs
+            loadAuthenticator().receive();
         } catch (IOException | NumberFormatException ex) {
             LOG.error("exception thrown: "+ex);
         }        
     }
+    
+    /**
+     * Serves logins, arrivals and players on the single endpoint.
+     * @param house House
+     * @throws IOException If the endpoint can't be bound
+     */
+    protected void route(House house) throws IOException {
+        Transport transport = TransportFactory.getInstance();
+        
+        if(transport == null)
+            throw new IOException("can't bind "+System.getProperty(Constant.SERVER_ENDPOINT));
+        
+        transport.route(Login.class, loadAuthenticator());
+        
+        transport.route(Arrival.class, msg -> {
+            house.received(msg);
+            return null;
+        });
+        
+        // A lobby asks how busy we are before placing players here
+        transport.route(Probe.class, msg -> house.status());
+        
+        // A lobby that moved a player elsewhere gives back our ticket
+        transport.route(Release.class, msg -> {
+            house.release(((Release) msg).getTicket());
+            return null;
+        });
+        
+        LOG.info("routing on "+System.getProperty(Constant.SERVER_ENDPOINT));
+    }
+    
+    /**
+     * Loads the authenticator.
+     * @return Authenticator plugin, if one is configured, otherwise the default
+     */
+    protected ServerAuthenticator loadAuthenticator() {
+        String className = System.getProperty(Constant.PLUGIN_AUTHENTICATOR);
+        
+        if(className != null) {
+            try {
+                Class<?> clazz = Class.forName(className);
+                
+                ServerAuthenticator authenticator = (ServerAuthenticator)
+                        clazz.getConstructor(GameServer.class).newInstance(this);
+                
+                LOG.info("loaded authenticator plugin: "+className);
+                
+                return authenticator;
+            }
+            catch(Exception e) {
+                LOG.error("failed to load authenticator plugin "+className+": "+e);
+            }
+        }
+        
+        return new ServerAuthenticator(this);
+    }
 
     /**
      * Gets the logins by ticket
-     * @return Tickets
+     * @return Ticket registry
      */
-    public List<Ticket> getTickets() {
+    public TicketRegistry getTickets() {
         return tickets;
     }
+    
+    /**
+     * Gets the durable account store.
+     * @return Account store or null if there's none
+     */
+    public AccountStore getAccounts() {
+        return accounts;
+    }
 }
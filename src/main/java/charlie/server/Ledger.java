@@ -0,0 +1,191 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class implements the house ledger of player balances.
+ * Balances are kept in whole cents by ticket number and every credit or
+ * debit is a single compare-and-set, so dealers at different tables settle
+ * concurrently without a lock. Closing an account marks its balance closed
+ * the same way, so a late post fails instead of getting lost. The house total is kept the same way,
+ * which makes it consistent at any instant without stopping anyone.
+ * @author Ron Coleman
+ */
+public class Ledger {
+    protected final ConcurrentHashMap<Long,AtomicLong> balances = new ConcurrentHashMap<>();
+    protected final AtomicLong total = new AtomicLong();
+    
+    // Balance of a closed account, which no post can change
+    protected final static long CLOSED = Long.MIN_VALUE;
+    
+    /**
+     * Opens an account, unless it's already open.
+     * @param number Ticket number
+     * @param bankroll Opening balance in dollars
+     * @return True if opened, false if it was already open
+     */
+    public boolean open(long number, double bankroll) {
+        long cents = toCents(bankroll);
+        
+        if(balances.putIfAbsent(number, new AtomicLong(cents)) != null)
+            return false;
+        
+        total.addAndGet(cents);
+        
+        return true;
+    }
+    
+    /**
+     * Closes an account.
+     * @param number Ticket number
+     * @return Closing balance in dollars, zero if there's no account
+     */
+    public double close(long number) {
+        AtomicLong balance = balances.remove(number);
+        
+        if(balance == null)
+            return 0;
+        
+        // A post which got the balance before it left the map either lands
+        // before this or finds the account closed
+        long cents = balance.getAndSet(CLOSED);
+        
+        total.addAndGet(-cents);
+        
+        return toDollars(cents);
+    }
+    
+    /**
+     * Posts a credit, or a debit if negative.
+     * @param number Ticket number
+     * @param amt Amount in dollars
+     * @return New balance in dollars
+     * @throws IllegalStateException If there's no account
+     */
+    public double post(long number, double amt) {
+        return toDollars(postCents(number, toCents(amt)));
+    }
+    
+    /**
+     * Posts a credit, or a debit if negative, in cents.
+     * @param number Ticket number
+     * @param cents Amount in cents
+     * @return New balance in cents
+     * @throws IllegalStateException If there's no account
+     */
+    public long postCents(long number, long cents) {
+        AtomicLong balance = balances.get(number);
+        
+        long before, after;
+        
+        do {
+            before = balance == null ? CLOSED : balance.get();
+            
+            if(before == CLOSED)
+                throw new IllegalStateException("no account "+Long.toHexString(number).toUpperCase());
+            
+            after = before + cents;
+        }
+        while(!balance.compareAndSet(before, after));
+        
+        total.addAndGet(cents);
+        
+        return after;
+    }
+    
+    /**
+     * Tests if an account is open.
+     * @param number Ticket number
+     * @return True if open
+     */
+    public boolean isOpen(long number) {
+        return balances.containsKey(number);
+    }
+    
+    /**
+     * Gets a balance.
+     * @param number Ticket number
+     * @return Balance in dollars, zero if there's no account
+     */
+    public double getBalance(long number) {
+        return toDollars(getCents(number));
+    }
+    
+    /**
+     * Gets a balance in cents.
+     * @param number Ticket number
+     * @return Balance in cents, zero if there's no account
+     */
+    public long getCents(long number) {
+        AtomicLong balance = balances.get(number);
+        
+        long cents = balance == null ? CLOSED : balance.get();
+        
+        return cents == CLOSED ? 0 : cents;
+    }
+    
+    /**
+     * Gets the total of all balances.
+     * @return Total in dollars
+     */
+    public double getTotal() {
+        return toDollars(total.get());
+    }
+    
+    /**
+     * Gets the total of all balances in cents.
+     * @return Total in cents
+     */
+    public long getTotalCents() {
+        return total.get();
+    }
+    
+    /**
+     * Gets the number of open accounts.
+     * @return Count
+     */
+    public int size() {
+        return balances.size();
+    }
+    
+    /**
+     * Converts dollars to cents, rounding to the nearest cent.
+     * @param amt Dollars
+     * @return Cents
+     */
+    public static long toCents(double amt) {
+        return Math.round(amt * 100);
+    }
+    
+    /**
+     * Converts cents to dollars.
+     * @param cents Cents
+     * @return Dollars
+     */
+    public static double toDollars(long cents) {
+        return cents / 100.0;
+    }
+}
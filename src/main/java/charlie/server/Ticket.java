@@ -32,6 +32,7 @@ public class Ticket implements Serializable {
     protected final long number;
     protected double bankroll;
     protected int usage = 0;
+    protected long account = 0;
 
     /**
      * Constructor
@@ -39,14 +40,25 @@ public class Ticket implements Serializable {
      * @param bankroll Bankroll
      */
     public Ticket(long number,double bankroll) {
+        this(number,bankroll,0);
+    }
+    
+    /**
+     * Constructor
+     * @param number Serial number
+     * @param bankroll Bankroll
+     * @param usage Use count
+     */
+    public Ticket(long number,double bankroll,int usage) {
         this.number = number;
         this.bankroll = bankroll;
+        this.usage = usage;
     }
 
     /**
      * Increments the use count.
      */
-    public void use() {
+    public synchronized void use() {
         usage++;
     }
     
@@ -54,7 +66,7 @@ public class Ticket implements Serializable {
      * Gets the usage count.
      * @return Use count
      */
-    public int getUsage() {
+    public synchronized int getUsage() {
         return usage;
     }
 
@@ -82,6 +94,22 @@ public class Ticket implements Serializable {
         this.bankroll = bankroll;
     }
     
+    /**
+     * Gets the account in the durable store.
+     * @return Account number or zero if there's no store
+     */
+    public long getAccount() {
+        return account;
+    }
+    
+    /**
+     * Sets the account in the durable store.
+     * @param account Account number
+     */
+    public void setAccount(long account) {
+        this.account = account;
+    }
+    
     /**
      * Tests if two tickets are equal.
      * @param obj Ticket
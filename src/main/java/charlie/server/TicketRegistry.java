@@ -0,0 +1,221 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.server;
+
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the registry of tickets issued at login.
+ * Tickets are indexed by number so validating an arrival takes the same
+ * time no matter how many logins the server has seen. A ticket expires
+ * when it's older than "charlie.server.tickets.ttl" or hasn't been used
+ * for "charlie.server.tickets.idle" milliseconds. At most
+ * "charlie.server.tickets.max" tickets are kept, the oldest going first.
+ * @author Ron Coleman
+ */
+public class TicketRegistry {
+    private final Logger LOG = Logger.getLogger(TicketRegistry.class);
+    protected final ConcurrentHashMap<Long,Entry> entries = new ConcurrentHashMap<>();
+    protected final ConcurrentLinkedQueue<Entry> issued = new ConcurrentLinkedQueue<>();
+    protected final long ttl;
+    protected final long idle;
+    protected final int max;
+    protected final AtomicLong count = new AtomicLong();
+    protected final AtomicLong expired = new AtomicLong();
+    
+    /**
+     * Constructor with the configured limits.
+     */
+    public TicketRegistry() {
+        this(Long.parseLong(Helper.getPropertyOrElse(Constant.TICKETS_TTL, "86400000")),
+             Long.parseLong(Helper.getPropertyOrElse(Constant.TICKETS_IDLE, "3600000")),
+             Helper.getPropertyOrElse(Constant.TICKETS_MAX, 100000));
+    }
+    
+    /**
+     * Constructor
+     * @param ttl Milliseconds a ticket lives after it's issued
+     * @param idle Milliseconds a ticket lives after it's last used
+     * @param max Most tickets kept
+     */
+    public TicketRegistry(long ttl, long idle, int max) {
+        this.ttl = ttl;
+        this.idle = idle;
+        this.max = max;
+    }
+    
+    /**
+     * Adds a newly issued ticket.
+     * @param ticket Ticket
+     */
+    public void add(Ticket ticket) {
+        long now = now();
+        
+        Entry entry = new Entry(ticket, now);
+        
+        entries.put(ticket.getNumber(), entry);
+        issued.add(entry);
+        
+        count.incrementAndGet();
+        
+        expire(now);
+    }
+    
+    /**
+     * Validates a ticket presented at arrival and counts its use.
+     * @param ticket Ticket
+     * @return True if the ticket was issued and hasn't expired
+     */
+    public boolean validate(Ticket ticket) {
+        if(ticket == null)
+            return false;
+        
+        Entry entry = entries.get(ticket.getNumber());
+        
+        if(entry == null)
+            return false;
+        
+        long now = now();
+        
+        if(entry.isExpired(now)) {
+            remove(entry);
+            return false;
+        }
+        
+        entry.used = now;
+        entry.ticket.use();
+        
+        return true;
+    }
+    
+    /**
+     * Gets a registered ticket.
+     * @param number Ticket number
+     * @return Ticket or null if there's none
+     */
+    public Ticket get(long number) {
+        Entry entry = entries.get(number);
+        
+        return entry == null ? null : entry.ticket;
+    }
+    
+    /**
+     * Removes a ticket.
+     * @param ticket Ticket
+     */
+    public void remove(Ticket ticket) {
+        Entry entry = entries.get(ticket.getNumber());
+        
+        if(entry != null)
+            remove(entry);
+    }
+    
+    /**
+     * Drops tickets from the oldest which have expired, or all the oldest
+     * ones over the limit. Tickets which went idle further along the
+     * line are dropped when they're next presented or reach the front.
+     * @param now Current time
+     */
+    protected void expire(long now) {
+        Entry entry;
+        
+        while((entry = issued.peek()) != null) {
+            boolean stale = entries.get(entry.ticket.getNumber()) != entry;
+            
+            if(!stale && !entry.isExpired(now) && entries.size() <= max)
+                break;
+            
+            issued.poll();
+            
+            if(!stale) {
+                remove(entry);
+                LOG.info("expired ticket "+entry.ticket);
+            }
+        }
+    }
+    
+    /**
+     * Removes an entry if it's still the one registered.
+     * @param entry Entry
+     */
+    protected void remove(Entry entry) {
+        if(entries.remove(entry.ticket.getNumber(), entry))
+            expired.incrementAndGet();
+    }
+    
+    /**
+     * Gets the number of tickets registered.
+     * @return Size
+     */
+    public int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Gets the number of tickets ever added.
+     * @return Count
+     */
+    public long getCount() {
+        return count.get();
+    }
+    
+    /**
+     * Gets the number of tickets expired or removed.
+     * @return Count
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+    
+    /**
+     * Gets the time, which tests may override.
+     * @return Milliseconds
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+    
+    /**
+     * This class is a ticket with its times.
+     */
+    protected class Entry {
+        protected final Ticket ticket;
+        protected final long created;
+        protected volatile long used;
+        
+        protected Entry(Ticket ticket, long now) {
+            this.ticket = ticket;
+            this.created = now;
+            this.used = now;
+        }
+        
+        protected boolean isExpired(long now) {
+            return now - created > ttl || now - used > idle;
+        }
+    }
+}
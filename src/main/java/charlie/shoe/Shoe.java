@@ -60,6 +60,16 @@ public class Shoe  implements IShoe {
         this.numDecks = numDecks;
     }
     
+    /**
+     * Constructor for a shoe which shuffles the same way every run.
+     * @param numDecks Number of decks
+     * @param seed Random seed
+     */
+    public Shoe(int numDecks, long seed) {
+        this.numDecks = numDecks;
+        this.ran = new Random(seed);
+    }
+    
     /**
      * Initializes the shoe.
      */
@@ -0,0 +1,147 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.HandState;
+import charlie.plugin.IAdvisor;
+import charlie.util.Play;
+
+/**
+ * This class implements basic strategy for six decks, dealer stands on
+ * soft 17, double after split allowed and no surrender.
+ * A hand which can't be doubled or split is played by its total instead.
+ * @author Ron Coleman
+ */
+public class BasicStrategy implements IAdvisor {
+    /**
+     * Gets advice.
+     * @param myHand Player's (YOU) hand
+     * @param upCard Dealer's up-card
+     * @return A suggested play
+     */
+    @Override
+    public Play advise(Hand myHand, Card upCard) {
+        int up = upCard.isAce() ? 11 : upCard.value();
+        
+        int state = myHand.getState();
+        
+        boolean twoCards = HandState.size(state) == 2;
+        
+        // Pairs, unless this hand came from a split
+        if(HandState.isPair(state) && !myHand.getHid().isSplit()) {
+            Play play = pair(HandState.firstRank(state), up);
+            
+            if(play == Play.SPLIT)
+                return play;
+        }
+        
+        if(HandState.isSoft(state))
+            return soft(HandState.soft(state), up, twoCards);
+        
+        return hard(HandState.hard(state), up, twoCards);
+    }
+    
+    /**
+     * Plays a pair.
+     * @param rank Rank of either card of the pair
+     * @param up Dealer up-card value, ace is 11
+     * @return Split or none if the pair is played by its total
+     */
+    protected Play pair(int rank, int up) {
+        int value = rank == Card.ACE ? 11 : Math.min(rank, 10);
+        
+        switch(value) {
+            case 11:
+            case 8:
+                return Play.SPLIT;
+            case 2:
+            case 3:
+            case 7:
+                return up <= 7 ? Play.SPLIT : Play.NONE;
+            case 4:
+                return up == 5 || up == 6 ? Play.SPLIT : Play.NONE;
+            case 6:
+                return up <= 6 ? Play.SPLIT : Play.NONE;
+            case 9:
+                return up != 7 && up < 10 ? Play.SPLIT : Play.NONE;
+            default:
+                return Play.NONE;
+        }
+    }
+    
+    /**
+     * Plays a soft hand.
+     * @param total Soft total
+     * @param up Dealer up-card value, ace is 11
+     * @param twoCards True if the hand can be doubled
+     * @return Play
+     */
+    protected Play soft(int total, int up, boolean twoCards) {
+        if(total >= 19)
+            return Play.STAY;
+        
+        if(total == 18) {
+            if(up >= 3 && up <= 6)
+                return twoCards ? Play.DOUBLE_DOWN : Play.STAY;
+            
+            return up <= 8 ? Play.STAY : Play.HIT;
+        }
+        
+        int low = total == 17 ? 3 : total >= 15 ? 4 : 5;
+        
+        return up >= low && up <= 6 && twoCards ? Play.DOUBLE_DOWN : Play.HIT;
+    }
+    
+    /**
+     * Plays a hard hand.
+     * @param total Hard total
+     * @param up Dealer up-card value, ace is 11
+     * @param twoCards True if the hand can be doubled
+     * @return Play
+     */
+    protected Play hard(int total, int up, boolean twoCards) {
+        if(total >= 17)
+            return Play.STAY;
+        
+        if(total >= 13)
+            return up <= 6 ? Play.STAY : Play.HIT;
+        
+        if(total == 12)
+            return up >= 4 && up <= 6 ? Play.STAY : Play.HIT;
+        
+        if(twoCards) {
+            if(total == 11 && up <= 10)
+                return Play.DOUBLE_DOWN;
+            
+            if(total == 10 && up <= 9)
+                return Play.DOUBLE_DOWN;
+            
+            if(total == 9 && up >= 3 && up <= 6)
+                return Play.DOUBLE_DOWN;
+        }
+        
+        return Play.HIT;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.dealer.Dealer;
+import charlie.dealer.Seat;
+import charlie.plugin.IAdvisor;
+import charlie.plugin.IPlayer;
+import charlie.util.Play;
+import java.util.HashMap;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements an in-process player for simulation.
+ * The player sits at an unpaced dealer, so every request it makes runs the
+ * game forward on the same thread: by the time a bet returns, the hand is
+ * over and its net outcome is in the tally.
+ * @author Ron Coleman
+ */
+public class SimPlayer implements IPlayer {
+    private final Logger LOG = Logger.getLogger(SimPlayer.class);
+    protected final Dealer dealer;
+    protected final IAdvisor advisor;
+    protected final double bet;
+    protected final Tally tally = new Tally();
+    protected final HashMap<Hid,Hand> hands = new HashMap<>();
+    protected Card upCard;
+    protected Hid turn;
+    protected double pl;
+    
+    // Bound on requests for one hand in case the dealer refuses one
+    protected final int MAX_PLAYS = 12;
+    
+    /**
+     * Constructor
+     * @param dealer Dealer
+     * @param advisor Strategy to play by
+     * @param bet Bet per hand
+     */
+    public SimPlayer(Dealer dealer, IAdvisor advisor, double bet) {
+        this.dealer = dealer;
+        this.advisor = advisor;
+        this.bet = bet;
+    }
+    
+    /**
+     * Plays one game.
+     */
+    public void go() {
+        Hid hid = new Hid(Seat.YOU, bet, 0);
+        
+        hands.put(hid, new Hand(hid));
+        
+        dealer.bet(this, hid);
+    }
+    
+    /**
+     * Gets the outcomes so far.
+     * @return Tally of net outcomes in bet units
+     */
+    public Tally getTally() {
+        return tally;
+    }
+
+    @Override
+    public void startGame(List<Hid> hids, int shoeSize) {
+        upCard = null;
+        turn = null;
+        pl = 0;
+    }
+
+    @Override
+    public void endGame(int shoeSize) {
+        tally.add(pl / bet);
+        
+        hands.clear();
+    }
+
+    @Override
+    public void deal(Hid hid, Card card, int[] values) {
+        if(card == null)
+            return;
+        
+        Hand hand = hands.get(hid);
+        
+        if(hand != null)
+            hand.hit(card);
+        
+        // Dealer's first card is the hole card, the next one is the up-card
+        else if(hid.getSeat() == Seat.DEALER && upCard == null && !(card instanceof HoleCard))
+            upCard = card;
+    }
+
+    @Override
+    public void play(Hid hid) {
+        turn = hid;
+        
+        Hand hand = hands.get(hid);
+        
+        if(hand == null)
+            return;
+        
+        // Keep playing until the dealer moves on to another hand
+        for(int n=0; turn == hid && n < MAX_PLAYS; n++) {
+            Play play = advisor.advise(hand, upCard);
+            
+            switch(play) {
+                case HIT:
+                    dealer.hit(this, hid);
+                    break;
+                case DOUBLE_DOWN:
+                    dealer.doubleDown(this, hid);
+                    break;
+                case SPLIT:
+                    dealer.split(this, hid);
+                    break;
+                default:
+                    dealer.stay(this, hid);
+                    break;
+            }
+        }
+        
+        if(turn == hid)
+            LOG.error("gave up on hand "+hand+" vs "+upCard);
+    }
+
+    @Override
+    public void split(Hid newHid, Hid origHid) {
+        Hand hand = hands.get(origHid);
+        
+        hands.put(newHid, hand.split(newHid));
+    }
+
+    @Override
+    public void bust(Hid hid) {
+        settle(hid);
+    }
+
+    @Override
+    public void win(Hid hid) {
+        settle(hid);
+    }
+
+    @Override
+    public void blackjack(Hid hid) {
+        settle(hid);
+    }
+
+    @Override
+    public void charlie(Hid hid) {
+        settle(hid);
+    }
+
+    @Override
+    public void lose(Hid hid) {
+        settle(hid);
+    }
+
+    @Override
+    public void push(Hid hid) {
+        settle(hid);
+    }
+    
+    /**
+     * Books the outcome of one of our hands. The dealer sets the hand's
+     * amount to its profit or loss just before telling us.
+     * @param hid Hand id
+     */
+    protected void settle(Hid hid) {
+        if(hands.containsKey(hid))
+            pl += hid.getAmt();
+    }
+
+    @Override
+    public void insure() {
+    }
+
+    @Override
+    public void shuffling() {
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.dealer.Dealer;
+import charlie.plugin.IAdvisor;
+import charlie.plugin.PluginRegistry;
+import charlie.shoe.PackedShoe;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class runs Charlie rules headless: no sockets, no Swing and no
+ * pauses between cards. Each worker thread has its own dealer, seeded shoe
+ * and simulated player so runs are repeatable and scale with cores.
+ * The report gives the house edge, variance and a confidence interval.
+ * @author Ron Coleman
+ */
+public class Simulator {
+    private final static Logger LOG = Logger.getLogger(Simulator.class);
+    
+    // z-score for a 95% confidence interval
+    protected final static double Z95 = 1.96;
+    
+    protected final long hands;
+    protected final int threads;
+    protected final long seed;
+    protected final int decks;
+    protected final double bet;
+    
+    /**
+     * Constructor
+     * @param hands Hands to play in all
+     * @param threads Number of workers
+     * @param seed Seed for the first worker's shoe
+     * @param decks Decks per shoe
+     * @param bet Bet per hand
+     */
+    public Simulator(long hands, int threads, long seed, int decks, double bet) {
+        this.hands = hands;
+        this.threads = threads;
+        this.seed = seed;
+        this.decks = decks;
+        this.bet = bet;
+    }
+    
+    /**
+     * This method is the main entry point for the simulator.
+     * @param args Number of hands, optional, overrides charlie.sim.hands
+     */
+    public static void main(String[] args) {
+        String path = System.getProperty("charlie.props");
+        
+        if(path != null) {
+            try {
+                System.getProperties().load(new FileInputStream(path));
+            } catch (IOException ex) {
+                System.err.println("can't load "+path+": "+ex);
+            }
+        }
+        
+        // Per-card logging would swamp the run
+        Logger.getRootLogger().setLevel(Level.toLevel(Helper.getPropertyOrElse(Constant.SIM_LOG_LEVEL, "WARN")));
+        
+        long hands = args.length > 0 ? Long.parseLong(args[0]) :
+                Long.parseLong(Helper.getPropertyOrElse(Constant.SIM_HANDS, "1000000"));
+        
+        Simulator sim = new Simulator(
+                hands,
+                Helper.getPropertyOrElse(Constant.SIM_THREADS, Runtime.getRuntime().availableProcessors()),
+                Long.parseLong(Helper.getPropertyOrElse(Constant.SIM_SEED, "0")),
+                Helper.getPropertyOrElse(Constant.SIM_DECKS, 6),
+                Constant.MIN_BET);
+        
+        long start = System.nanoTime();
+        
+        Tally tally = sim.run();
+        
+        double secs = (System.nanoTime() - start) / 1e9;
+        
+        System.out.println(sim.report(tally, secs));
+    }
+    
+    /**
+     * Runs the simulation.
+     * @return Net outcomes in bet units over all the workers
+     */
+    public Tally run() {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        
+        try {
+            List<Future<Tally>> futures = new ArrayList<>();
+            
+            for(int k=0; k < threads; k++) {
+                // Spread the hands evenly with the remainder going to the first workers
+                long n = hands / threads + (k < hands % threads ? 1 : 0);
+                
+                long workerSeed = seed + k;
+                
+                futures.add(pool.submit(() -> play(n, workerSeed)));
+            }
+            
+            Tally tally = new Tally();
+            
+            for(Future<Tally> future: futures)
+                tally.merge(future.get());
+            
+            return tally;
+        }
+        catch(InterruptedException | ExecutionException ex) {
+            LOG.error("simulation failed: "+ex);
+            throw new RuntimeException(ex);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Plays hands on one worker.
+     * @param n Number of hands
+     * @param seed Shoe seed
+     * @return Net outcomes in bet units
+     */
+    protected Tally play(long n, long seed) {
+        PackedShoe shoe = new PackedShoe(decks, seed);
+        shoe.init();
+        
+        Dealer dealer = new Dealer(null, shoe);
+        dealer.setPace(0);
+        
+        SimPlayer player = new SimPlayer(dealer, loadAdvisor(), bet);
+        
+        for(long k=0; k < n; k++)
+            player.go();
+        
+        return player.getTally();
+    }
+    
+    /**
+     * Loads the configured advisor, otherwise basic strategy.
+     * @return Advisor
+     */
+    protected IAdvisor loadAdvisor() {
+        IAdvisor advisor = PluginRegistry.getInstance().newInstance(Constant.PLUGIN_ADVISOR, IAdvisor.class);
+        
+        return advisor != null ? advisor : new BasicStrategy();
+    }
+    
+    /**
+     * Formats the results.
+     * @param tally Net outcomes in bet units
+     * @param secs Elapsed time
+     * @return Report
+     */
+    public String report(Tally tally, double secs) {
+        // Player's loss is the house's gain
+        double edge = -tally.getMean();
+        double error = Z95 * tally.getStdError();
+        
+        return String.format(
+                "hands: %,d threads: %d decks: %d seed: %d%n" +
+                "house edge: %.4f%% +/- %.4f%% (95%% ci %.4f%% to %.4f%%)%n" +
+                "variance: %.4f std dev: %.4f (per hand, bet units)%n" +
+                "elapsed: %.2f s rate: %,.0f hands/s",
+                tally.getCount(), threads, decks, seed,
+                edge * 100, error * 100, (edge - error) * 100, (edge + error) * 100,
+                tally.getVariance(), Math.sqrt(tally.getVariance()),
+                secs, tally.getCount() / secs);
+    }
+}
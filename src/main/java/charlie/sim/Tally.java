@@ -0,0 +1,96 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+/**
+ * This class keeps running statistics of hand outcomes without storing
+ * them. It uses Welford's method so the variance stays accurate over many
+ * millions of hands and tallies from separate threads can be merged.
+ * @author Ron Coleman
+ */
+public class Tally {
+    protected long count = 0;
+    protected double mean = 0;
+    protected double m2 = 0;
+    
+    /**
+     * Adds an outcome.
+     * @param x Net outcome in bet units
+     */
+    public void add(double x) {
+        count++;
+        
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+    }
+    
+    /**
+     * Merges another tally into this one.
+     * @param other Tally
+     */
+    public void merge(Tally other) {
+        if(other.count == 0)
+            return;
+        
+        long n = count + other.count;
+        
+        double delta = other.mean - mean;
+        
+        mean += delta * other.count / n;
+        m2 += other.m2 + delta * delta * count * other.count / n;
+        count = n;
+    }
+    
+    /**
+     * Gets the number of outcomes.
+     * @return Count
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Gets the mean outcome.
+     * @return Mean in bet units
+     */
+    public double getMean() {
+        return mean;
+    }
+    
+    /**
+     * Gets the sample variance.
+     * @return Variance in bet units squared
+     */
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+    
+    /**
+     * Gets the standard error of the mean.
+     * @return Standard error in bet units
+     */
+    public double getStdError() {
+        return count > 0 ? Math.sqrt(getVariance() / count) : 0;
+    }
+}
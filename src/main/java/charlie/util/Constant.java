@@ -45,4 +45,54 @@ public class Constant {
     public final static String PLUGIN_SHOE = "charlie.shoe";
     public final static String PLUGIN_ADVISOR = "charlie.advisor";
     public final static String PLUGIN_DEALER = "charlie.server.dealer";
+    public final static String PLUGIN_AUTHENTICATOR = "charlie.server.authenticator";
+    public final static String PLUGIN_BOT = "charlie.bot.";
+    public final static String PLUGIN_POOL = "charlie.plugin.pool";
+    public final static String ACTOR_PERSISTENT = "charlie.actor.persistent";
+    public final static String ACTOR_RETRIES = "charlie.actor.retries";
+    public final static String ACTOR_CODEC = "charlie.actor.codec";
+    public final static String ACTOR_TRANSPORT = "charlie.actor.transport";
+    public final static String SERVER_ENDPOINT = "charlie.server.endpoint";
+    public final static String ACTOR_EXECUTOR = "charlie.actor.executor";
+    public final static String OUTBOX_CAPACITY = "charlie.actor.outbox.capacity";
+    public final static String OUTBOX_POLICY = "charlie.actor.outbox.policy";
+    public final static String OUTBOX_BATCH = "charlie.actor.outbox.batch";
+    public final static String TRANSPORT_IO_THREADS = "charlie.actor.transport.io";
+    public final static String TRANSPORT_WORKERS = "charlie.actor.transport.workers";
+    public final static String HOUSE_TABLES = "charlie.house.tables";
+    public final static String HOUSE_SEATS = "charlie.house.seats";
+    public final static String HOUSE_QUEUE = "charlie.house.queue";
+    public final static String HOUSE_GRACE = "charlie.house.grace";
+    public final static String TICKETS_TTL = "charlie.server.tickets.ttl";
+    public final static String TICKETS_IDLE = "charlie.server.tickets.idle";
+    public final static String TICKETS_MAX = "charlie.server.tickets.max";
+    public final static String STORE_DIR = "charlie.server.store";
+    public final static String STORE_JOURNAL = "charlie.server.store.journal";
+    public final static String STORE_BATCH = "charlie.server.store.batch";
+    public final static String HISTORY_DIR = "charlie.history";
+    public final static String HISTORY_SEGMENT = "charlie.history.segment";
+    public final static String METRICS = "charlie.metrics";
+    public final static String METRICS_DUMP = "charlie.metrics.dump";
+    public final static String LOGIN_WORKERS = "charlie.server.login.workers";
+    public final static String LOGIN_BACKLOG = "charlie.server.login.backlog";
+    public final static String LOGIN_TIMEOUT = "charlie.server.login.timeout";
+    public final static String DEALER_PACE = "charlie.dealer.pace";
+    public final static String DEALER_THREADS = "charlie.dealer.threads";
+    public final static String COURIER_WINDOW = "charlie.courier.window";
+    public final static String COURIER_GAP = "charlie.courier.gap";
+    public final static String SIM_HANDS = "charlie.sim.hands";
+    public final static String SIM_THREADS = "charlie.sim.threads";
+    public final static String SIM_SEED = "charlie.sim.seed";
+    public final static String SIM_DECKS = "charlie.sim.decks";
+    public final static String LOAD_CLIENTS = "charlie.load.clients";
+    public final static String LOAD_RATE = "charlie.load.rate";
+    public final static String LOAD_PORT = "charlie.load.port";
+    public final static String LOAD_SECS = "charlie.load.secs";
+    public final static String LOAD_STALL = "charlie.load.stall";
+    public final static String LOAD_THREADS = "charlie.load.threads";
+    public final static String LOBBY_ENDPOINT = "charlie.lobby.endpoint";
+    public final static String LOBBY_NODES = "charlie.lobby.nodes";
+    public final static String LOBBY_POLL = "charlie.lobby.poll";
+    public final static String LOBBY_TIMEOUT = "charlie.lobby.timeout";
+    public final static String SIM_LOG_LEVEL = "charlie.sim.log";
 }
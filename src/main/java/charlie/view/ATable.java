@@ -26,6 +26,7 @@ import charlie.AbstractGameFrame;
 import charlie.plugin.IUi;
 import charlie.view.sprite.TurnIndicator;
 import charlie.actor.Courier;
+import charlie.actor.last.ExecutorFactory;
 import charlie.audio.Effect;
 import charlie.audio.SoundFactory;
 import charlie.card.Hid;
@@ -407,12 +408,12 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
                 this.frame.enablePlay(enable);
             }
             else {
-                new Thread(new Runnable() { 
+                ExecutorFactory.getEvents().execute(new Runnable() {
                     @Override
                     public void run() {
                         logan.play(hid);
                     }
-                }).start();
+                });
 
             }
             
@@ -458,12 +459,12 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
         }
         
         if (logan != null && !(card instanceof HoleCard)) {
-            new Thread(new Runnable() {
+            ExecutorFactory.getEvents().execute(new Runnable() {
                 @Override
                 public void run() {
                     logan.deal(hid, card, handValues);
                 }
-            }).start();
+            });
         }
     }
 
@@ -711,7 +712,7 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
         else {
             // Run logan in worker thread in event there's a need for
             // endGame to wait between games.
-            new Thread(new Runnable() { 
+            ExecutorFactory.getEvents().execute(new Runnable() {
                 @Override
                 public void run() {
                     logan.endGame(shoeSize);
@@ -727,7 +728,7 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
                     // Tell Logan it's time to place a new bet
                     logan.go();
                 }
-            }).start();
+            });
 
         }
     }
@@ -832,12 +833,12 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
         this.logan.setMoneyManager(this.monies.get(Seat.YOU));
         this.logan.setCourier(courier);       
         if (logan != null) {
-            new Thread(new Runnable() {
+            ExecutorFactory.getEvents().execute(new Runnable() {
                 @Override
                 public void run() {
                     logan.go();
                 }
-            }).start();
+            });
         }
     }
     
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.server.AccountStore;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class tests balances survive restarts and crashes.
+ * @author Ron.Coleman
+ */
+public class AccountStoreTest extends AbstractTestCase {
+    /**
+     * Tests balances come back after a clean shutdown.
+     */
+    public void testRestart() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        
+        AccountStore store = new AccountStore(dir, 1024 * 24, 64);
+        
+        long tester = AccountStore.idOf("tester");
+        
+        assertEquals(1000.0, store.getBalance(tester, 1000.0));
+        
+        for(int k=1; k <= 100; k++)
+            store.post(tester, 100000 + 250 * k);
+        
+        store.post(AccountStore.idOf("other"), 500);
+        
+        store.sync();
+        
+        assertEquals(101, store.getCommitted());
+        assertTrue(store.getCommits() <= 101);
+        assertEquals(1250.0, store.getBalance(tester, 0));
+        
+        store.close();
+        
+        store = new AccountStore(dir, 1024 * 24, 64);
+        
+        assertEquals(2, store.size());
+        assertEquals(1250.0, store.getBalance(tester, 0));
+        assertEquals(5.0, store.getBalance(AccountStore.idOf("other"), 0));
+        
+        store.close();
+    }
+    
+    /**
+     * Tests a small journal compacts into snapshots and recovers from the
+     * snapshot plus what's in the journal after it.
+     */
+    public void testCompaction() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        
+        // Room for 10 records
+        AccountStore store = new AccountStore(dir, 10 * 24, 4);
+        
+        for(int k=0; k < 95; k++) {
+            store.post(k % 7, k);
+            store.sync();
+        }
+        
+        assertTrue(store.getSnapshots() > 0);
+        
+        // Crash: no final snapshot
+        AccountStore recovered = new AccountStore(dir, 10 * 24, 4);
+        
+        assertEquals(7, recovered.size());
+        
+        for(int account=0; account < 7; account++)
+            assertEquals(store.getBalance(account, -1), recovered.getBalance(account, -1));
+        
+        recovered.close();
+    }
+    
+    /**
+     * Tests recovery stops at a torn record.
+     */
+    public void testTornRecord() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        
+        AccountStore store = new AccountStore(dir, 1024 * 24, 64);
+        
+        for(int k=1; k <= 3; k++) {
+            store.post(42, k * 100);
+            store.sync();
+        }
+        
+        // Scribble on the CRC of the third record
+        try(FileChannel ch = FileChannel.open(dir.resolve(AccountStore.JOURNAL), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4}), 2 * 24 + 20);
+        }
+        
+        AccountStore recovered = new AccountStore(dir, 1024 * 24, 64);
+        
+        assertEquals(2.0, recovered.getBalance(42, 0));
+        assertEquals(2, recovered.getRecovered());
+        
+        recovered.close();
+    }
+}
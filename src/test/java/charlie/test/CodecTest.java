@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.dealer.Seat;
+import charlie.message.Message;
+import charlie.message.Probe;
+import charlie.message.Release;
+import charlie.message.Status;
+import charlie.message.codec.BinaryCodec;
+import charlie.message.codec.Codec;
+import charlie.message.codec.CodecFactory;
+import charlie.message.codec.SerialCodec;
+import charlie.message.view.from.Arrival;
+import charlie.message.view.from.Hit;
+import charlie.message.view.to.Batch;
+import charlie.message.view.to.Deal;
+import charlie.message.view.to.GameStart;
+import charlie.message.view.to.Play;
+import charlie.message.view.to.Snapshot;
+import charlie.message.view.to.Win;
+import charlie.server.Ticket;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class compares the binary codec against Java serialization for
+ * fidelity, payload size and throughput.
+ * @author Ron.Coleman
+ */
+public class CodecTest extends AbstractTestCase {
+    final Codec serial = new SerialCodec();
+    final Codec binary = new BinaryCodec();
+
+    /**
+     * Tests that a deal survives the round trip intact.
+     */
+    public void testDeal() throws Exception {
+        Hid hid = new Hid(Seat.YOU, 5, 2.5);
+        hid.request(charlie.util.Play.HIT);
+        hid.request(charlie.util.Play.DOUBLE_DOWN);
+        hid.setSplit(true);
+
+        Deal deal = new Deal(hid, new int[] {7, 17}, new Card(Card.ACE, Card.Suit.HEARTS));
+
+        Deal copy = (Deal) CodecFactory.decode(binary.encode(deal));
+
+        assertEquals(deal.getSerialno(), copy.getSerialno());
+        assertEquals(deal.getStamp(), copy.getStamp());
+        assertEquals(hid, copy.getHid());
+        assertEquals(Seat.YOU, copy.getHid().getSeat());
+        assertEquals(5.0, copy.getHid().getAmt());
+        assertEquals(2.5, copy.getHid().getSideAmt());
+        assertTrue(copy.getHid().isSplit());
+        assertEquals(hid.getRequests(), copy.getHid().getRequests());
+        assertEquals(Card.ACE, copy.getCard().getRank());
+        assertEquals(Card.Suit.HEARTS, copy.getCard().getSuit());
+        assertTrue(Arrays.equals(deal.getHandValues(), copy.getHandValues()));
+    }
+
+    /**
+     * Tests cards pack into one byte including the hole card flag.
+     */
+    public void testCards() throws Exception {
+        for(Card.Suit suit: Card.Suit.values()) {
+            for(int rank=Card.ACE; rank <= Card.KING; rank++) {
+                Card card = new HoleCard(new Card(rank, suit));
+
+                Deal copy = (Deal) binary.decode(binary.encode(new Deal(null, new int[2], card)));
+
+                assertTrue(copy.getCard() instanceof HoleCard);
+                assertEquals(rank, copy.getCard().getRank());
+                assertEquals(suit, copy.getCard().getSuit());
+            }
+        }
+
+        Deal copy = (Deal) binary.decode(binary.encode(new Deal(null, new int[2], null)));
+        assertNull(copy.getCard());
+        assertNull(copy.getHid());
+    }
+
+    /**
+     * Tests amounts which aren't whole cents still come through exactly.
+     */
+    public void testOddAmounts() throws Exception {
+        Hid hid = new Hid(Seat.RIGHT, 1/3., -7.5);
+
+        Win copy = (Win) binary.decode(binary.encode(new Win(hid)));
+
+        assertEquals(1/3., copy.getHid().getAmt());
+        assertEquals(-7.5, copy.getHid().getSideAmt());
+    }
+
+    /**
+     * Tests the arrival carries the negotiation flags.
+     */
+    public void testArrival() throws Exception {
+        Arrival arrival = new Arrival(new Ticket(-42L, 1000.0, 3), InetAddress.getLoopbackAddress(), 8001);
+        arrival.enablePersistent(true);
+        arrival.setCodec(BinaryCodec.NAME);
+
+        Arrival copy = (Arrival) binary.decode(binary.encode(arrival));
+
+        assertEquals(arrival.getTicket(), copy.getTicket());
+        assertEquals(1000.0, copy.getTicket().getBankroll());
+        assertEquals(3, copy.getTicket().getUsage());
+        assertEquals(8001, copy.getPort());
+        assertTrue(copy.isBotEnabled());
+        assertTrue(copy.isPersistent());
+        assertEquals(BinaryCodec.NAME, copy.getCodec());
+        assertEquals(InetAddress.getLoopbackAddress(), copy.getSource());
+    }
+
+    /**
+     * Tests a snapshot keeps its hands, deals and turn.
+     */
+    public void testSnapshot() throws Exception {
+        Hid you = new Hid(Seat.YOU, 10, 0);
+        Hid dealer = new Hid(Seat.DEALER);
+        
+        List<Deal> deals = Arrays.asList(
+                new Deal(you, new int[] {10, 10}, new Card(Card.KING, Card.Suit.SPADES)),
+                new Deal(dealer, new int[] {0, 0}, new HoleCard(new Card(5, Card.Suit.CLUBS))),
+                new Deal(you, new int[] {16, 16}, new Card(6, Card.Suit.HEARTS)));
+        
+        Snapshot snapshot = new Snapshot(Arrays.asList(you, dealer), deals, you, 300);
+        
+        Snapshot copy = (Snapshot) binary.decode(binary.encode(snapshot));
+        
+        assertEquals(snapshot.getHids(), copy.getHids());
+        assertEquals(you, copy.getTurn());
+        assertEquals(300, copy.getShoeSize());
+        assertEquals(3, copy.getDeals().size());
+        assertTrue(copy.getDeals().get(1).getCard() instanceof HoleCard);
+        assertTrue(Arrays.equals(new int[] {16, 16}, copy.getDeals().get(2).getHandValues()));
+        
+        copy = (Snapshot) binary.decode(binary.encode(new Snapshot(Arrays.asList(), Arrays.asList(), null, 52)));
+        
+        assertTrue(copy.getHids().isEmpty());
+        assertNull(copy.getTurn());
+    }
+
+    /**
+     * Tests a lobby's probe and a server's status survive the round trip.
+     */
+    public void testStatus() throws Exception {
+        assertTrue(CodecFactory.decode(binary.encode(new Probe())) instanceof Probe);
+        
+        Status copy = (Status) CodecFactory.decode(binary.encode(new Status(4, 3, 17, 250)));
+        
+        assertEquals(4, copy.getTables());
+        assertEquals(3, copy.getActive());
+        assertEquals(17, copy.getSeated());
+        assertEquals(250, copy.getWaiting());
+    }
+
+    /**
+     * Tests a lobby's release keeps the node's ticket.
+     */
+    public void testRelease() throws Exception {
+        Ticket ticket = new Ticket(-7L, 500.0, 2);
+        
+        Release copy = (Release) CodecFactory.decode(binary.encode(new Release(ticket)));
+        
+        assertEquals(ticket, copy.getTicket());
+        assertEquals(500.0, copy.getTicket().getBankroll());
+    }
+
+    /**
+     * Tests a batch keeps its messages and their order, in both formats.
+     */
+    public void testBatch() throws Exception {
+        List<Message> mix = mix();
+        
+        for(Codec codec: Arrays.asList(serial, binary)) {
+            Batch copy = (Batch) CodecFactory.decode(codec.encode(new Batch(mix)));
+            
+            assertEquals(mix.size(), copy.getMessages().size());
+            
+            for(int i=0; i < mix.size(); i++) {
+                assertEquals(mix.get(i).getClass(), copy.getMessages().get(i).getClass());
+                assertEquals(mix.get(i).getSerialno(), copy.getMessages().get(i).getSerialno());
+            }
+        }
+        
+        int single = 0;
+        for(Message msg: mix)
+            single += binary.encode(msg).length;
+        
+        info("batch = "+binary.encode(new Batch(mix)).length+" bytes, singles = "+single+" bytes in "+mix.size()+" sends");
+    }
+
+    /**
+     * Tests the factory tells the formats apart without negotiation.
+     */
+    public void testAutoDetect() throws Exception {
+        Hit hit = new Hit(new Hid(Seat.YOU));
+
+        assertEquals(hit.getHid(), ((Hit) CodecFactory.decode(serial.encode(hit))).getHid());
+        assertEquals(hit.getHid(), ((Hit) CodecFactory.decode(binary.encode(hit))).getHid());
+    }
+
+    /**
+     * Tests every cut-short frame of every message in the mix is rejected
+     * as corrupt.
+     */
+    public void testTruncated() throws Exception {
+        List<Message> mix = new ArrayList<>(mix());
+        mix.add(new Batch(mix()));
+        
+        for(Message msg: mix) {
+            byte[] frame = binary.encode(msg);
+            
+            for(int n=0; n < frame.length; n++)
+                assertCorrupt(Arrays.copyOf(frame, n));
+        }
+    }
+    
+    /**
+     * Tests frames with bad counts and indices are rejected as corrupt
+     * instead of allocating or throwing unchecked exceptions.
+     */
+    public void testCorrupt() throws Exception {
+        // Header: tag, serial number, sequence, stamp, no source address
+        
+        // A GameStart claiming 2^31-1 hands and one claiming -1
+        assertCorrupt(new byte[] {28, 0, 0, 0, 0, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+        assertCorrupt(new byte[] {28, 0, 0, 0, 0, 1});
+        
+        // A Hit whose hand has seat 7 and one with play 127
+        byte[] hit = {3, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0x7F};
+        assertCorrupt(hit);
+        
+        hit[5] = 7;
+        hit[17] = 0;
+        assertCorrupt(hit);
+        
+        // A source address 5 bytes long
+        assertCorrupt(new byte[] {31, 0, 0, 0, 5, 1, 2, 3, 4, 5});
+        
+        // A batch inside a batch
+        assertCorrupt(new byte[] {33, 0, 0, 0, 0, 2, 6, 33, 0, 0, 0, 0, 0});
+        
+        // Random damage to good frames decodes or fails as corrupt
+        Random ran = new Random(0);
+        
+        for(Message msg: mix()) {
+            byte[] frame = binary.encode(msg);
+            
+            for(int i=0; i < 10000; i++) {
+                byte[] bad = frame.clone();
+                bad[ran.nextInt(bad.length)] = (byte) ran.nextInt(256);
+                
+                try {
+                    binary.decode(bad);
+                }
+                catch(IOException ignored) {
+                    
+                }
+            }
+        }
+    }
+    
+    /**
+     * Asserts a frame is rejected as corrupt.
+     * @param frame Bytes
+     */
+    protected void assertCorrupt(byte[] frame) throws Exception {
+        try {
+            binary.decode(frame);
+            fail("decoded corrupt frame "+Arrays.toString(frame));
+        }
+        catch(StreamCorruptedException expected) {
+            
+        }
+    }
+
+    /**
+     * Compares payload sizes and encode+decode throughput on a typical mix.
+     */
+    public void testComparison() throws Exception {
+        List<Message> mix = mix();
+
+        int serialSize = 0, binarySize = 0;
+        for(Message msg: mix) {
+            int s = serial.encode(msg).length;
+            int b = binary.encode(msg).length;
+
+            info(msg.getClass().getSimpleName()+" serial = "+s+" bytes binary = "+b+" bytes");
+
+            serialSize += s;
+            binarySize += b;
+        }
+
+        assertTrue(binarySize * 4 < serialSize);
+
+        double serialRate = throughput(serial, mix);
+        double binaryRate = throughput(binary, mix);
+
+        info(String.format("serial = %d bytes %.0f msgs/s, binary = %d bytes %.0f msgs/s",
+                serialSize, serialRate, binarySize, binaryRate));
+
+        assertTrue(binaryRate > serialRate);
+    }
+
+    /**
+     * Gets the messages a player typically sees in one hand.
+     * @return Messages
+     */
+    protected List<Message> mix() {
+        Hid you = new Hid(Seat.YOU, 10, 0);
+        Hid dealer = new Hid(Seat.DEALER);
+        you.request(charlie.util.Play.HIT);
+
+        return Arrays.asList(
+                new GameStart(Arrays.asList(you, dealer), 312),
+                new Deal(you, new int[] {10, 10}, new Card(Card.KING, Card.Suit.SPADES)),
+                new Deal(dealer, new int[] {0, 0}, new HoleCard(new Card(5, Card.Suit.CLUBS))),
+                new Play(you),
+                new Hit(you),
+                new Win(you));
+    }
+
+    /**
+     * Measures round trips per second.
+     * @param codec Codec
+     * @param mix Messages
+     * @return Messages per second
+     */
+    protected double throughput(Codec codec, List<Message> mix) throws Exception {
+        final int warmup = 20000, rounds = 20000;
+
+        for(int i=0; i < warmup; i++)
+            for(Message msg: mix)
+                codec.decode(codec.encode(msg));
+
+        long start = System.nanoTime();
+
+        for(int i=0; i < rounds; i++)
+            for(Message msg: mix)
+                codec.decode(codec.encode(msg));
+
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        return rounds * mix.size() / secs;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Dealer;
+import charlie.dealer.Seat;
+import charlie.plugin.IPlayer;
+import charlie.plugin.IShoe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class tests that a paced table doesn't get stuck when a game goes
+ * wrong or a player walks away at an awkward moment.
+ * @author Ron.Coleman
+ */
+public class DealerTest extends AbstractTestCase {
+    final int BET_AMT = 5;
+    final long PACE = 200;
+    
+    /**
+     * Tests that a failed dealer step ends the game, gives the bet back and
+     * frees the table for the next game.
+     */
+    public void testAbort() throws Exception {
+        Script shoe = new Script(8, 10, 8, 9);
+        shoe.failAt = 3;
+        
+        Dealer dealer = new Dealer(null, shoe);
+        dealer.setPace(PACE);
+        
+        Player player = new Player(dealer);
+        
+        dealer.bet(player, new Hid(Seat.YOU, BET_AMT, 0));
+        
+        assertTrue(player.ended.await(5, TimeUnit.SECONDS));
+        assertEquals(1, player.pushes.size());
+        assertEquals(0.0, player.pushes.get(0).getAmt());
+        
+        // Next game plays through
+        player.ended = new CountDownLatch(1);
+        player.stay = true;
+        
+        dealer.bet(player, new Hid(Seat.YOU, BET_AMT, 0));
+        
+        assertTrue(player.ended.await(5, TimeUnit.SECONDS));
+        assertEquals(1, player.turns.get());
+    }
+    
+    /**
+     * Tests that a player leaving while a split hand waits for its second
+     * card doesn't leave the table waiting on the player.
+     */
+    public void testLeaveSplit() throws Exception {
+        // Player, hole, player, up card, then a card for each split hand
+        Script shoe = new Script(8, 10, 8, 9, 2, 3);
+        
+        Dealer dealer = new Dealer(null, shoe);
+        dealer.setPace(PACE);
+        
+        Player player = new Player(dealer);
+        
+        dealer.bet(player, new Hid(Seat.YOU, BET_AMT, 0));
+        
+        assertTrue(player.turned.await(5, TimeUnit.SECONDS));
+        
+        Hid hid = player.hid;
+        
+        dealer.split(player, hid);
+        dealer.stay(player, hid);
+        
+        // The split hand's second card is on its way
+        CountDownLatch settled = new CountDownLatch(1);
+        
+        dealer.leave(player, settled::countDown);
+        
+        assertTrue(settled.await(5, TimeUnit.SECONDS));
+        assertTrue(player.ended.await(5, TimeUnit.SECONDS));
+    }
+    
+    /**
+     * Deals scripted cards, then fives, and can fail partway through.
+     */
+    class Script implements IShoe {
+        final List<Card> cards = new ArrayList<>();
+        int failAt = -1;
+        int count = 0;
+        
+        /**
+         * Constructor
+         * @param ranks Ranks in the order dealt
+         */
+        Script(int... ranks) {
+            for(int rank: ranks)
+                cards.add(new Card(rank, Card.Suit.CLUBS));
+        }
+        
+        @Override
+        public void init() {
+        }
+        
+        @Override
+        public boolean shuffleNeeded() {
+            return false;
+        }
+        
+        @Override
+        public void shuffle() {
+        }
+        
+        @Override
+        public Card next() {
+            if(++count == failAt)
+                throw new IllegalStateException("scripted failure");
+            
+            return cards.isEmpty() ? new Card(5, Card.Suit.CLUBS) : cards.remove(0);
+        }
+        
+        @Override
+        public int size() {
+            return 52;
+        }
+    }
+    
+    /**
+     * Plays the YOU seat and records what the dealer tells it.
+     */
+    class Player implements IPlayer {
+        final Dealer dealer;
+        final List<Hid> pushes = new ArrayList<>();
+        final AtomicInteger turns = new AtomicInteger();
+        final CountDownLatch turned = new CountDownLatch(1);
+        volatile CountDownLatch ended = new CountDownLatch(1);
+        volatile boolean stay = false;
+        volatile Hid hid;
+        
+        /**
+         * Constructor
+         * @param dealer Dealer
+         */
+        Player(Dealer dealer) {
+            this.dealer = dealer;
+        }
+        
+        @Override
+        public void startGame(List<Hid> hids, int shoeSize) {
+        }
+        
+        @Override
+        public void endGame(int shoeSize) {
+            ended.countDown();
+        }
+        
+        @Override
+        public void deal(Hid hid, Card card, int[] values) {
+        }
+        
+        @Override
+        public void insure() {
+        }
+        
+        @Override
+        public void bust(Hid hid) {
+        }
+        
+        @Override
+        public void win(Hid hid) {
+        }
+        
+        @Override
+        public void blackjack(Hid hid) {
+        }
+        
+        @Override
+        public void charlie(Hid hid) {
+        }
+        
+        @Override
+        public void lose(Hid hid) {
+        }
+        
+        @Override
+        public void push(Hid hid) {
+            pushes.add(new Hid(hid));
+        }
+        
+        @Override
+        public void shuffling() {
+        }
+        
+        @Override
+        public void play(Hid hid) {
+            if(hid.getSeat() != Seat.YOU)
+                return;
+            
+            this.hid = hid;
+            
+            turns.incrementAndGet();
+            turned.countDown();
+            
+            if(stay)
+                new Thread(() -> dealer.stay(this, hid)).start();
+        }
+        
+        @Override
+        public void split(Hid newHid, Hid origHid) {
+        }
+    }
+}
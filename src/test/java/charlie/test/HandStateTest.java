@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.HandState;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.dealer.Seat;
+
+/**
+ * This class checks the packed hand evaluator against the way hands were
+ * counted card by card before.
+ * @author Ron.Coleman
+ */
+public class HandStateTest extends AbstractTestCase {
+    /**
+     * Tests every sequence of up to five ranks.
+     */
+    public void testAllHands() {
+        walk(new int[5], 0);
+    }
+    
+    /**
+     * Tests the dealer's hand before and after the hole card is revealed.
+     */
+    public void testHoleCard() {
+        Hand hand = new Hand(new Hid(Seat.DEALER));
+        
+        hand.hit(new HoleCard(Card.valueOf(Card.ACE, Card.Suit.SPADES)));
+        hand.hit(Card.valueOf(Card.KING, Card.Suit.HEARTS));
+        
+        assertEquals(10, hand.getValue());
+        assertFalse(hand.isBlackjack());
+        
+        hand.revalue();
+        
+        assertEquals(21, hand.getValue());
+        assertTrue(hand.isBlackjack());
+    }
+    
+    /**
+     * Tests that splitting recounts both hands.
+     */
+    public void testSplit() {
+        Hand hand = new Hand(new Hid(Seat.YOU));
+        
+        hand.hit(Card.valueOf(8, Card.Suit.SPADES));
+        hand.hit(Card.valueOf(8, Card.Suit.HEARTS));
+        
+        assertTrue(hand.isPair());
+        
+        Hand other = hand.split(new Hid(Seat.YOU));
+        
+        assertEquals(8, hand.getValue());
+        assertEquals(8, other.getValue());
+        assertFalse(hand.isPair());
+        assertEquals(1, HandState.size(other.getState()));
+    }
+    
+    /**
+     * Hits hands with every rank at each position and compares.
+     * @param ranks Ranks so far
+     * @param n Number of ranks so far
+     */
+    protected void walk(int[] ranks, int n) {
+        if(n > 0)
+            check(ranks, n);
+        
+        if(n == ranks.length)
+            return;
+        
+        for(int rank=Card.ACE; rank <= Card.KING; rank++) {
+            ranks[n] = rank;
+            walk(ranks, n + 1);
+        }
+    }
+    
+    /**
+     * Compares a hand against a card-by-card count.
+     * @param ranks Ranks
+     * @param n Number of cards
+     */
+    protected void check(int[] ranks, int n) {
+        Hand hand = new Hand(new Hid(Seat.YOU));
+        
+        int hard = 0;
+        int soft = 0;
+        
+        for(int k=0; k < n; k++) {
+            hand.hit(Card.valueOf(ranks[k], Card.Suit.CLUBS));
+            
+            int value = Math.min(ranks[k], 10);
+            
+            hard += value;
+            soft += value;
+            
+            if(ranks[k] == Card.ACE && soft + 10 <= 21)
+                soft += 10;
+        }
+        
+        int[] values = hand.getValues();
+        
+        assertEquals(hard, values[0]);
+        assertEquals(soft, values[1]);
+        
+        int value = soft <= 21 ? soft : hard;
+        
+        assertEquals(value, hand.getValue());
+        assertEquals(hard > 21 && soft > 21, hand.isBroke());
+        assertEquals(n == 2 && soft == 21, hand.isBlackjack());
+        assertEquals(n == 5 && value <= 21, hand.isCharlie());
+        assertEquals(n == 2 && ranks[0] == ranks[1], hand.isPair());
+        assertEquals(soft != hard && soft <= 21, HandState.isSoft(hand.getState()));
+    }
+}
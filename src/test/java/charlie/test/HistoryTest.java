@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.card.Card;
+import charlie.dealer.Dealer;
+import charlie.dealer.Seat;
+import charlie.history.HandRecord;
+import charlie.history.HistoryReader;
+import charlie.history.HistoryWriter;
+import charlie.history.Outcome;
+import charlie.shoe.PackedShoe;
+import charlie.sim.BasicStrategy;
+import charlie.sim.SimPlayer;
+import charlie.sim.Tally;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests the hand history records every game and reads it back.
+ * @author Ron.Coleman
+ */
+public class HistoryTest extends AbstractTestCase {
+    /**
+     * Tests simulated games come back from the history with the same P&amp;L,
+     * across segments and a restarted writer.
+     */
+    public void testSimulated() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        
+        Path dir = Files.createTempDirectory("history");
+        
+        PackedShoe shoe = new PackedShoe(6, 13);
+        shoe.init();
+        
+        Dealer dealer = new Dealer(null, shoe);
+        dealer.setPace(0);
+        
+        SimPlayer player = new SimPlayer(dealer, new BasicStrategy(), 5);
+        
+        // Small segments so the history rotates
+        HistoryWriter writer = new HistoryWriter(dir, 4096);
+        dealer.setHistory(writer);
+        
+        for(int k=0; k < 1000; k++)
+            player.go();
+        
+        writer.close();
+        
+        assertEquals(1000, writer.getGames());
+        assertTrue(writer.getSegments() > 1);
+        
+        writer = new HistoryWriter(dir, 4096);
+        dealer.setHistory(writer);
+        
+        for(int k=0; k < 500; k++)
+            player.go();
+        
+        writer.close();
+        
+        long[] tally = new long[3];
+        
+        HistoryReader reader = new HistoryReader(dir);
+        
+        long games = reader.scan(record -> {
+            int last = record.getHandCount() - 1;
+            
+            assertEquals(Seat.DEALER, record.getSeat(last));
+            assertTrue(record.getCardCount() >= 4);
+            
+            for(int i=0; i < last; i++) {
+                assertEquals(Seat.YOU, record.getSeat(i));
+                
+                if(record.getOutcome(i) == Outcome.BUST)
+                    assertTrue(record.getPnl(i) < 0 && record.getPlayCount(i) > 0);
+                
+                tally[0] += record.getPnl(i);
+            }
+            
+            tally[1] += record.getPnl(last);
+            tally[2]++;
+        });
+        
+        Tally outcomes = player.getTally();
+        
+        assertEquals(1500, games);
+        assertEquals(0, reader.getTorn());
+        assertEquals(-tally[0], tally[1]);
+        assertEquals(outcomes.getMean() * outcomes.getCount() * 5, tally[0] / 100., 1e-6);
+    }
+    
+    /**
+     * Tests reading stops at a torn record.
+     */
+    public void testTornRecord() throws Exception {
+        Path dir = Files.createTempDirectory("history");
+        
+        HistoryWriter writer = new HistoryWriter(dir, 4096);
+        
+        HandRecord record = new HandRecord();
+        
+        int end = 0;
+        
+        for(int k=0; k < 3; k++) {
+            record.reset(k);
+            record.card(Card.valueOf(k));
+            writer.write(record);
+            
+            if(k < 2)
+                end += record.size();
+        }
+        
+        writer.close();
+        
+        // Flip a byte in the last record
+        try (FileChannel channel = FileChannel.open(HistoryWriter.pathOf(dir, 1), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), end + 10);
+        }
+        
+        HistoryReader reader = new HistoryReader(dir);
+        
+        assertEquals(2, reader.scan(r -> {}));
+        assertEquals(1, reader.getTorn());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.load.Swarm;
+import charlie.util.Constant;
+import java.io.FileInputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class runs more clients than the house has room for.
+ * @author Ron.Coleman
+ */
+public class HouseFullTest extends AbstractTestCase {
+    /**
+     * Tests clients the house can't seat or line up are told so right away
+     * rather than left waiting for ready.
+     */
+    public void testTurnedAway() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        
+        Properties props = System.getProperties();
+        props.load(new FileInputStream("Hit.props"));
+        
+        System.setProperty(Constant.DEALER_PACE, "0");
+        System.clearProperty(Constant.PLUGIN_SHOE);
+        System.setProperty(Constant.SERVER_ENDPOINT, "127.0.0.1:8501");
+        
+        // Room for two and no line, and a client that hears nothing waits long
+        System.setProperty(Constant.HOUSE_TABLES, "1");
+        System.setProperty(Constant.HOUSE_SEATS, "2");
+        System.setProperty(Constant.HOUSE_QUEUE, "0");
+        System.setProperty(Constant.LOAD_STALL, "20000");
+        
+        go();
+        
+        Swarm swarm = new Swarm(4, 5, 8201, Constant.MIN_BET);
+        
+        long start = System.nanoTime();
+        
+        long hands = swarm.run(1);
+        
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        String report = swarm.report(hands, 1);
+        
+        info(report);
+        
+        assertEquals(report, 2, swarm.getPlaying().size());
+        assertTrue(report, report.contains("arrival: 2"));
+        assertTrue(report+" in "+ms+" ms", ms < 10000);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.server.Ledger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class tests the ledger settles concurrently without losing money.
+ * @author Ron.Coleman
+ */
+public class LedgerTest extends AbstractTestCase {
+    /**
+     * Tests many tables settling into the same accounts.
+     */
+    public void testConcurrent() throws Exception {
+        final Ledger ledger = new Ledger();
+        final int accounts = 8, threads = 8, posts = 20000;
+        
+        for(long number=0; number < accounts; number++)
+            ledger.open(number, 1000);
+        
+        List<Thread> tables = new ArrayList<>();
+        
+        for(int i=0; i < threads; i++) {
+            final int table = i;
+            
+            Thread thread = new Thread(() -> {
+                for(int k=0; k < posts; k++)
+                    ledger.post((table + k) % accounts, k % 2 == 0 ? 7.5 : -2.5);
+            });
+            
+            tables.add(thread);
+            thread.start();
+        }
+        
+        for(Thread thread: tables)
+            thread.join();
+        
+        long expected = accounts * 100000L + threads * (posts / 2) * (750 - 250);
+        
+        long sum = 0;
+        for(long number=0; number < accounts; number++)
+            sum += ledger.getCents(number);
+        
+        assertEquals(expected, sum);
+        assertEquals(expected, ledger.getTotalCents());
+    }
+    
+    /**
+     * Tests tables posting to an account as it closes: every post either
+     * makes the closing balance or fails, and none lands afterwards.
+     */
+    public void testClosePost() throws Exception {
+        final Ledger ledger = new Ledger();
+        final int threads = 4;
+        
+        for(long number=0; number < 200; number++) {
+            final long account = number;
+            
+            ledger.open(account, 0);
+            
+            AtomicLong posted = new AtomicLong();
+            CountDownLatch go = new CountDownLatch(1);
+            List<Thread> tables = new ArrayList<>();
+            
+            for(int i=0; i < threads; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        go.await();
+                        
+                        while(true) {
+                            ledger.postCents(account, 1);
+                            posted.incrementAndGet();
+                        }
+                    }
+                    catch(IllegalStateException | InterruptedException closed) {
+                    }
+                });
+                
+                tables.add(thread);
+                thread.start();
+            }
+            
+            go.countDown();
+            Thread.sleep(1);
+            
+            long closing = Ledger.toCents(ledger.close(account));
+            
+            for(Thread thread: tables)
+                thread.join();
+            
+            assertEquals(posted.get(), closing);
+            assertEquals(0L, ledger.getTotalCents());
+        }
+    }
+    
+    /**
+     * Tests closing an account takes its balance out of the total.
+     */
+    public void testClose() {
+        Ledger ledger = new Ledger();
+        
+        assertTrue(ledger.open(1, 100));
+        assertFalse(ledger.open(1, 500));
+        
+        ledger.post(1, 0.1);
+        ledger.post(1, 0.2);
+        
+        assertEquals(100.3, ledger.getBalance(1));
+        assertEquals(100.3, ledger.close(1));
+        assertEquals(0L, ledger.getTotalCents());
+        
+        try {
+            ledger.post(1, 5);
+            fail();
+        }
+        catch(IllegalStateException ex) {
+        }
+    }
+}
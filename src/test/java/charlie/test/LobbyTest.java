@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.load.Swarm;
+import charlie.lobby.Lobby;
+import charlie.lobby.Node;
+import charlie.util.Constant;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class runs a swarm through a lobby in front of two game servers.
+ * @author Ron.Coleman
+ */
+public class LobbyTest extends AbstractTestCase {
+    final static String LOBBY = "127.0.0.1:8600";
+    final static String NODE_A = "127.0.0.1:8601";
+    final static String NODE_B = "127.0.0.1:8602";
+    
+    final List<Process> servers = new ArrayList<>();
+    
+    /**
+     * Tests players spread over both servers and a drained server gets no
+     * new ones.
+     */
+    public void testLobby() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        
+        Properties props = System.getProperties();
+        props.load(new FileInputStream("Hit.props"));
+        
+        System.clearProperty(Constant.PLUGIN_SHOE);
+        System.setProperty(Constant.LOAD_STALL, "1000");
+        System.setProperty(Constant.LOBBY_POLL, "200");
+        
+        Lobby lobby = new Lobby(Arrays.asList(NODE_A, NODE_B));
+        
+        try {
+            launch(NODE_A);
+            launch(NODE_B);
+            
+            lobby.start(LOBBY);
+            
+            Node a = lobby.getNode(NODE_A);
+            Node b = lobby.getNode(NODE_B);
+            
+            // Server JVMs take a while to come up
+            for(int k=0; k < 600 && !(a.isHealthy() && b.isHealthy()); k++)
+                Thread.sleep(100);
+            
+            assertTrue(Arrays.toString(lobby.getNodes()), a.isHealthy() && b.isHealthy());
+            
+            // Clients know only the lobby
+            System.setProperty(Constant.SERVER_ENDPOINT, LOBBY);
+            
+            Swarm swarm = new Swarm(4, 5, 8111, Constant.MIN_BET);
+            
+            long hands = swarm.run(3);
+            
+            String report = swarm.report(hands, 3);
+            
+            info(report);
+            info(Arrays.toString(lobby.getNodes()));
+            
+            assertEquals(report, 4, swarm.getPlaying().size());
+            assertTrue(report, hands > 0);
+            assertTrue(report, report.contains("login: 0 arrival: 0 stall: 0"));
+            assertTrue(a.getSessions() > 0 && b.getSessions() > 0);
+            
+            // Draining keeps new players off A
+            assertTrue(lobby.drain(NODE_A));
+            
+            long placed = a.getSessions();
+            
+            swarm = new Swarm(2, 5, 8121, Constant.MIN_BET);
+            
+            hands = swarm.run(2);
+            
+            report = swarm.report(hands, 2);
+            
+            info(report);
+            
+            assertEquals(report, 2, swarm.getPlaying().size());
+            assertTrue(report, hands > 0);
+            assertEquals(placed, a.getSessions());
+        }
+        finally {
+            lobby.stop();
+            
+            System.clearProperty(Constant.SERVER_ENDPOINT);
+            
+            for(Process server: servers)
+                server.destroy();
+        }
+    }
+    
+    /**
+     * Launches a game server in a JVM of its own.
+     * @param endpoint Server endpoint
+     */
+    protected void launch(String endpoint) throws Exception {
+        ProcessBuilder builder = new ProcessBuilder(
+                System.getProperty("java.home")+"/bin/java",
+                "-cp", System.getProperty("java.class.path"),
+                "-D"+Constant.SERVER_ENDPOINT+"="+endpoint,
+                "-D"+Constant.DEALER_PACE+"=0",
+                "charlie.server.GameServer");
+        
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        
+        servers.add(builder.start());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.actor.Arriver;
+import charlie.actor.ClientAuthenticator;
+import charlie.actor.Courier;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.server.Ticket;
+import charlie.util.Constant;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * This class replays the HIT scenario but drops the courier for good on
+ * our first turn, 6+9 against the dealer's 7+10. Once the grace period
+ * runs out the player is logged out, its hand stands and loses, and the
+ * loss must still come off the bankroll it logs back in with.
+ * @author Ron.Coleman
+ */
+public class LogoutTest extends HitTest {
+    final Object dropped = new Object();
+    boolean gone = false;
+
+    /**
+     * Runs the test.
+     */
+    @Override
+    public void test() throws Exception {
+        System.setProperty(Constant.ACTOR_PERSISTENT, "true");
+        System.setProperty(Constant.HOUSE_GRACE, "100");
+        System.setProperty(Constant.STORE_DIR, Files.createTempDirectory("logout").toString());
+
+        try {
+            go();
+
+            Properties props = System.getProperties();
+            props.load(new FileInputStream("Hit.props"));
+
+            ClientAuthenticator authenticator = new ClientAuthenticator();
+            Ticket ticket = authenticator.send("tester","123");
+            double bankroll = ticket.getBankroll();
+
+            courier = new Courier(this);
+            courier.start();
+
+            new Arriver(ticket).send();
+
+            synchronized (this) {
+                this.wait();
+            }
+
+            synchronized (dropped) {
+                courier.bet(BET_AMT,SIDE_BET_AMT);
+                
+                dropped.wait(10000);
+            }
+
+            assertTrue(gone);
+
+            // The hand settles after the grace period and the dealer's turn
+            double left = bankroll;
+            
+            for(int tries=0; tries < 50 && left == bankroll; tries++) {
+                sleep(200);
+                
+                left = authenticator.send("tester","123").getBankroll();
+            }
+
+            assertEquals(bankroll - BET_AMT, left, 0.001);
+        }
+        finally {
+            System.clearProperty(Constant.ACTOR_PERSISTENT);
+            System.clearProperty(Constant.HOUSE_GRACE);
+            System.clearProperty(Constant.STORE_DIR);
+        }
+    }
+
+    /**
+     * Drops the courier on our first turn and doesn't come back.
+     * @param hid New hand's turn
+     */
+    @Override
+    public void turn(Hid hid) {
+        if(hid.getSeat() != Seat.YOU || gone) {
+            super.turn(hid);
+            return;
+        }
+
+        new Thread(() -> {
+            info("dropping courier");
+            courier.stop();
+
+            synchronized (dropped) {
+                gone = true;
+                dropped.notify();
+            }
+        }).start();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.metrics.Counter;
+import charlie.metrics.Histogram;
+import charlie.metrics.Metrics;
+import charlie.sim.Simulator;
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests the metrics record accurately and show up over JMX.
+ * @author Ron.Coleman
+ */
+public class MetricsTest extends AbstractTestCase {
+    /**
+     * Tests percentiles come within the histogram's precision.
+     */
+    public void testHistogram() {
+        Histogram histogram = Metrics.histogram("test.uniform");
+        
+        // One to a million microseconds
+        for(long k=1; k <= 1000000; k++)
+            histogram.record(k * 1000);
+        
+        assertEquals(1000000, histogram.getCount());
+        assertEquals(500000.5, histogram.getMean(), 1);
+        assertEquals(1000000.0, histogram.getMax());
+        
+        assertEquals(500000, histogram.getP50(), 500000 * 0.032);
+        assertEquals(990000, histogram.getP99(), 990000 * 0.032);
+        assertEquals(999000, histogram.getP999(), 999000 * 0.032);
+        
+        // Small values are exact
+        Histogram small = Metrics.histogram("test.small");
+        
+        for(int k=0; k < 10; k++)
+            small.record(k);
+        
+        assertEquals(4, small.percentile(50));
+        assertEquals(9, small.percentile(100));
+    }
+    
+    /**
+     * Tests the dealer's metrics count a simulation and are published.
+     */
+    public void testPublished() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        
+        Counter games = Metrics.counter("dealer.games");
+        long before = games.getCount();
+        
+        new Simulator(2000, 1, 13, 6, 5).run();
+        
+        assertTrue(games.getCount() - before >= 2000);
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        ObjectName name = new ObjectName(Metrics.DOMAIN+":type=Counter,name="+ObjectName.quote("dealer.games"));
+        
+        assertEquals(games.getCount(), server.getAttribute(name, "Count"));
+        
+        name = new ObjectName(Metrics.DOMAIN+":type=Histogram,name="+ObjectName.quote("dealer.decision"));
+        
+        assertTrue((Long) server.getAttribute(name, "Count") > 0);
+        assertTrue(Metrics.snapshot().contains("dealer.game count="));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.actor.last.Outbox;
+import charlie.message.Message;
+import charlie.message.view.to.Batch;
+import charlie.message.view.to.Shuffle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class tests the outbound queue against a client which is stuck.
+ * @author Ron.Coleman
+ */
+public class OutboxTest extends AbstractTestCase {
+    final CountDownLatch unstuck = new CountDownLatch(1);
+    final List<Message> written = new CopyOnWriteArrayList<>();
+    final AtomicInteger overflows = new AtomicInteger();
+    
+    /**
+     * Tests a stuck client doesn't hold up the sender and, once it
+     * recovers, gets everything in one batch.
+     */
+    public void testCoalesce() throws Exception {
+        Outbox outbox = new Outbox(this::stuck, overflows::incrementAndGet, 4, Outbox.Policy.COALESCE);
+        
+        long start = System.nanoTime();
+        
+        for(int i=0; i < 100; i++)
+            assertTrue(outbox.offer(new Shuffle()));
+        
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertTrue(outbox.getDepth() <= 4);
+        
+        unstuck.countDown();
+        
+        waitFor(outbox);
+        
+        int n = 0;
+        for(Message msg: written)
+            n += msg instanceof Batch ? ((Batch) msg).getMessages().size() : 1;
+        
+        assertEquals(100, n);
+        assertEquals(0, outbox.getDropped());
+        assertEquals(0, overflows.get());
+    }
+    
+    /**
+     * Tests coalesced batches stay under the batch size, in order.
+     */
+    public void testBatchSize() throws Exception {
+        Outbox outbox = new Outbox(this::stuck, overflows::incrementAndGet, 4, Outbox.Policy.COALESCE, 8);
+        
+        List<Message> sent = new ArrayList<>();
+        
+        for(int i=0; i < 25; i++) {
+            Message msg = new Shuffle();
+            sent.add(msg);
+            
+            assertTrue(outbox.offer(msg));
+            assertTrue(outbox.getDepth() <= 4);
+        }
+        
+        unstuck.countDown();
+        
+        waitFor(outbox);
+        
+        List<Message> got = new ArrayList<>();
+        
+        for(Message msg: written) {
+            if(msg instanceof Batch) {
+                assertTrue(((Batch) msg).getMessages().size() <= 8);
+                got.addAll(((Batch) msg).getMessages());
+            }
+            else
+                got.add(msg);
+        }
+        
+        assertEquals(sent, got);
+        assertEquals(0, overflows.get());
+    }
+    
+    /**
+     * Tests coalescing gives up on the session once the queue is full of
+     * full batches rather than growing without end.
+     */
+    public void testCoalesceLimit() throws Exception {
+        Outbox outbox = new Outbox(this::stuck, overflows::incrementAndGet, 4, Outbox.Policy.COALESCE, 8);
+        
+        // Four batches of eight fit plus what the writer took, a batch at most
+        int accepted = 0;
+        
+        while(outbox.offer(new Shuffle())) {
+            accepted++;
+            assertTrue(accepted <= 40);
+        }
+        
+        assertTrue(accepted >= 32);
+        assertTrue(outbox.isClosed());
+        
+        unstuck.countDown();
+        
+        Thread.sleep(100);
+        assertEquals(1, overflows.get());
+    }
+    
+    /**
+     * Tests the drop policy gives up on the session.
+     */
+    public void testDrop() throws Exception {
+        Outbox outbox = new Outbox(this::stuck, overflows::incrementAndGet, 4, Outbox.Policy.DROP);
+        
+        for(int i=0; i < 10; i++)
+            outbox.offer(new Shuffle());
+        
+        assertTrue(outbox.isClosed());
+        assertFalse(outbox.offer(new Shuffle()));
+        assertTrue(outbox.getDropped() > 0);
+        
+        unstuck.countDown();
+        
+        Thread.sleep(100);
+        assertEquals(1, overflows.get());
+    }
+    
+    /**
+     * Writes like a client which isn't reading until it's unstuck.
+     * @param msg Message
+     */
+    protected void stuck(Message msg) {
+        try {
+            unstuck.await();
+        }
+        catch(InterruptedException ex) {
+        }
+        
+        written.add(msg);
+    }
+    
+    /**
+     * Waits for the outbox to empty.
+     * @param outbox Outbox
+     */
+    protected void waitFor(Outbox outbox) throws InterruptedException {
+        for(int i=0; i < 100 && outbox.getDepth() > 0; i++)
+            Thread.sleep(20);
+        
+        Thread.sleep(50);
+    }
+}
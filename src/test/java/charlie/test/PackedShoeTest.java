@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.card.Card;
+import charlie.shoe.PackedShoe;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests the packed shoe.
+ * @author Ron.Coleman
+ */
+public class PackedShoeTest extends AbstractTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        
+        Logger.getRootLogger().setLevel(Level.WARN);
+    }
+    
+    /**
+     * Tests that a shoe holds every card once per deck and deals shared cards.
+     */
+    public void testContents() {
+        PackedShoe shoe = new PackedShoe(6, 7);
+        shoe.init();
+        
+        assertEquals(312, shoe.size());
+        
+        int[] counts = new int[52];
+        
+        for(int k=0; k < 312; k++) {
+            Card card = shoe.next();
+            
+            assertSame(Card.valueOf(card.getRank(), card.getSuit()), card);
+            
+            counts[Card.code(card.getRank(), card.getSuit())]++;
+        }
+        
+        for(int count: counts)
+            assertEquals(6, count);
+        
+        assertNull(shoe.next());
+        assertTrue(shoe.shuffleNeeded());
+    }
+    
+    /**
+     * Tests that a seed reproduces the shuffle and the burn card.
+     */
+    public void testSeeded() {
+        PackedShoe a = new PackedShoe(6, 42);
+        PackedShoe b = new PackedShoe(6, 42);
+        a.init();
+        b.init();
+        
+        int dealt = 0;
+        
+        while(!a.shuffleNeeded()) {
+            assertSame(a.next(), b.next());
+            dealt++;
+        }
+        
+        assertTrue(b.shuffleNeeded());
+        
+        // Burn card is 13 to 25 cards from the end, same as Shoe
+        assertTrue(dealt >= 312 - 25 && dealt <= 312 - 13);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.util.Constant;
+
+/**
+ * This class replays the HIT scenario with courier and real player talking
+ * over one persistent, framed channel instead of a socket per message.
+ * @author Ron.Coleman
+ */
+public class PersistentHitTest extends HitTest {
+    /**
+     * Runs the test.
+     */
+    @Override
+    public void test() throws Exception {
+        System.setProperty(Constant.ACTOR_PERSISTENT, "true");
+
+        try {
+            super.test();
+        }
+        finally {
+            System.clearProperty(Constant.ACTOR_PERSISTENT);
+        }
+    }
+}
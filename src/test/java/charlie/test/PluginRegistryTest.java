@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.actor.House;
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.dealer.Dealer;
+import charlie.dealer.Seat;
+import charlie.plugin.IAdvisor;
+import charlie.plugin.IBot;
+import charlie.plugin.IShoe;
+import charlie.plugin.ITrap;
+import charlie.plugin.Plugin;
+import charlie.plugin.PluginRegistry;
+import charlie.shoe.PackedShoe;
+import charlie.shoe.Shoe;
+import charlie.sim.BasicStrategy;
+import charlie.util.Constant;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * This class tests the plugin registry resolves, makes and pools plugins.
+ * @author Ron.Coleman
+ */
+public class PluginRegistryTest extends AbstractTestCase {
+    /**
+     * Tests configured plugins resolve once and bad ones are left out.
+     */
+    public void testResolve() {
+        Properties props = new Properties();
+        props.setProperty(Constant.PLUGIN_ADVISOR, BasicStrategy.class.getName());
+        props.setProperty(Constant.PLUGIN_DEALER, Dealer.class.getName());
+        props.setProperty(Constant.PLUGIN_TRAP, "charlie.NoSuchTrap");
+        props.setProperty(Constant.PLUGIN_BOT+"huey", StubBot.class.getName());
+        
+        PluginRegistry registry = new PluginRegistry(props);
+        
+        // The shoe has a default
+        Plugin<IShoe> shoe = registry.get(Constant.PLUGIN_SHOE, IShoe.class);
+        assertEquals(Shoe.class, shoe.getType());
+        assertTrue(shoe.newInstance() instanceof Shoe);
+        
+        assertTrue(registry.newInstance(Constant.PLUGIN_ADVISOR, IAdvisor.class) instanceof BasicStrategy);
+        assertTrue(registry.get(Constant.PLUGIN_DEALER, Dealer.class).newInstance((House) null) instanceof Dealer);
+        
+        // Missing, broken and mistyped plugins are as if not configured
+        assertNull(registry.get(Constant.PLUGIN_SIDE_BET_RULE, Object.class));
+        assertNull(registry.newInstance(Constant.PLUGIN_TRAP, ITrap.class));
+        assertNull(registry.get(Constant.PLUGIN_BOT+"huey", IShoe.class));
+        
+        // A property changed after startup takes effect on the next lookup
+        props.setProperty(Constant.PLUGIN_SHOE, PackedShoe.class.getName());
+        
+        assertEquals(PackedShoe.class, registry.get(Constant.PLUGIN_SHOE, IShoe.class).getType());
+        assertSame(registry.get(Constant.PLUGIN_SHOE, IShoe.class), registry.get(Constant.PLUGIN_SHOE, IShoe.class));
+        
+        String report = registry.report();
+        info(report);
+        
+        assertTrue(report.contains(Constant.PLUGIN_BOT+"huey = "+StubBot.class.getName()));
+    }
+    
+    /**
+     * Tests bots come back from the pool only if pooling is on.
+     */
+    public void testPool() {
+        Properties props = new Properties();
+        props.setProperty(Constant.PLUGIN_BOT+"dewey", StubBot.class.getName());
+        
+        // Off unless asked for
+        Plugin<IBot> dewey = new PluginRegistry(props).get(Constant.PLUGIN_BOT+"dewey", IBot.class);
+        
+        IBot bot = dewey.acquire();
+        dewey.release(bot);
+        
+        assertNotSame(bot, dewey.acquire());
+        
+        props.setProperty(Constant.PLUGIN_POOL, "true");
+        
+        dewey = new PluginRegistry(props).get(Constant.PLUGIN_BOT+"dewey", IBot.class);
+        
+        IBot first = dewey.acquire();
+        dewey.release(first);
+        
+        assertSame(first, dewey.acquire());
+        assertNotSame(first, dewey.acquire());
+        
+        props.setProperty(Constant.PLUGIN_POOL, "false");
+        
+        dewey = new PluginRegistry(props).get(Constant.PLUGIN_BOT+"dewey", IBot.class);
+        
+        first = dewey.acquire();
+        dewey.release(first);
+        
+        assertNotSame(first, dewey.acquire());
+    }
+    
+    /**
+     * This class implements a bot which sits and does nothing else.
+     */
+    public static class StubBot implements IBot {
+        protected Hand hand;
+        
+        @Override
+        public Hand getHand() {
+            return hand;
+        }
+
+        @Override
+        public void setDealer(Dealer dealer) {
+        }
+
+        @Override
+        public void sit(Seat seat) {
+            hand = new Hand(new Hid(seat));
+        }
+
+        @Override
+        public void startGame(List<Hid> hids, int shoeSize) {
+        }
+
+        @Override
+        public void endGame(int shoeSize) {
+        }
+
+        @Override
+        public void deal(Hid hid, Card card, int[] values) {
+        }
+
+        @Override
+        public void insure() {
+        }
+
+        @Override
+        public void bust(Hid hid) {
+        }
+
+        @Override
+        public void win(Hid hid) {
+        }
+
+        @Override
+        public void blackjack(Hid hid) {
+        }
+
+        @Override
+        public void charlie(Hid hid) {
+        }
+
+        @Override
+        public void lose(Hid hid) {
+        }
+
+        @Override
+        public void push(Hid hid) {
+        }
+
+        @Override
+        public void shuffling() {
+        }
+
+        @Override
+        public void play(Hid hid) {
+        }
+
+        @Override
+        public void split(Hid newHid, Hid origHid) {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.actor.Arriver;
+import charlie.actor.ClientAuthenticator;
+import charlie.actor.Courier;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.server.Ticket;
+import charlie.util.Constant;
+import java.io.FileInputStream;
+import java.util.Properties;
+
+/**
+ * This class replays the HIT scenario but drops the courier when it's our
+ * turn. A new courier resumes the session with the same ticket, gets the
+ * table back from the snapshot and finishes the hand.
+ * @author Ron.Coleman
+ */
+public class ResumeTest extends HitTest {
+    Ticket ticket;
+    boolean resumed = false;
+
+    /**
+     * Runs the test.
+     */
+    @Override
+    public void test() throws Exception {
+        System.setProperty(Constant.ACTOR_PERSISTENT, "true");
+
+        try {
+            go();
+
+            Properties props = System.getProperties();
+            props.load(new FileInputStream("Hit.props"));
+
+            ticket = new ClientAuthenticator().send("tester","123");
+
+            courier = new Courier(this);
+            courier.start();
+
+            new Arriver(ticket).send();
+
+            synchronized (this) {
+                this.wait();
+            }
+
+            courier.bet(BET_AMT,SIDE_BET_AMT);
+
+            synchronized (gameOver) {
+                gameOver.wait();
+            }
+
+            assertTrue(resumed);
+            assertEquals(3, myHand.size());
+        }
+        finally {
+            System.clearProperty(Constant.ACTOR_PERSISTENT);
+        }
+    }
+
+    /**
+     * Drops the courier on our first turn, then plays the turn the
+     * snapshot gives back.
+     * @param hid New hand's turn
+     */
+    @Override
+    public void turn(Hid hid) {
+        if(hid.getSeat() != Seat.YOU || resumed) {
+            super.turn(hid);
+            return;
+        }
+
+        resumed = true;
+        myTurn = false;
+
+        new Thread(() -> {
+            info("dropping courier");
+            courier.stop();
+
+            courier = new Courier(this);
+            courier.start();
+
+            new Arriver(ticket).resume();
+            info("resumed");
+        }).start();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.util.Constant;
+
+/**
+ * This class replays the HIT scenario with login, arrival and player
+ * traffic all routed through the server's single endpoint.
+ * @author Ron.Coleman
+ */
+public class RouterHitTest extends HitTest {
+    /**
+     * Runs the test.
+     */
+    @Override
+    public void test() throws Exception {
+        // Same as the real player endpoint so the shared transport matches
+        System.setProperty(Constant.SERVER_ENDPOINT, "127.0.0.1:8501");
+
+        try {
+            super.test();
+        }
+        finally {
+            System.clearProperty(Constant.SERVER_ENDPOINT);
+        }
+    }
+}
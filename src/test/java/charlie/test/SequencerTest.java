@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.actor.last.Sequencer;
+import charlie.message.Message;
+import charlie.message.view.to.Shuffle;
+import java.util.List;
+
+/**
+ * This class tests putting sequenced messages back in order.
+ * @author Ron.Coleman
+ */
+public class SequencerTest extends AbstractTestCase {
+    /**
+     * Tests messages which arrive in order go straight through.
+     */
+    public void testInOrder() {
+        Sequencer sequencer = new Sequencer(4);
+        
+        for(int seq=1; seq <= 3; seq++)
+            assertEquals(1, sequencer.offer(msg(seq)).size());
+        
+        assertEquals(3, sequencer.getDelivered());
+        assertEquals(0, sequencer.getReordered());
+        assertFalse(sequencer.isWaiting());
+    }
+    
+    /**
+     * Tests an early message waits for the one before it.
+     */
+    public void testReorder() {
+        Sequencer sequencer = new Sequencer(4);
+        
+        assertTrue(sequencer.offer(msg(2)).isEmpty());
+        assertTrue(sequencer.isWaiting());
+        
+        List<Message> ready = sequencer.offer(msg(1));
+        
+        assertEquals(2, ready.size());
+        assertEquals(1, ready.get(0).getSeq());
+        assertEquals(2, ready.get(1).getSeq());
+        assertEquals(1, sequencer.getReordered());
+        assertFalse(sequencer.isWaiting());
+    }
+    
+    /**
+     * Tests late and duplicate messages are dropped.
+     */
+    public void testDuplicate() {
+        Sequencer sequencer = new Sequencer(4);
+        
+        sequencer.offer(msg(1));
+        sequencer.offer(msg(3));
+        
+        assertTrue(sequencer.offer(msg(1)).isEmpty());
+        assertTrue(sequencer.offer(msg(3)).isEmpty());
+        assertEquals(2, sequencer.getDropped());
+    }
+    
+    /**
+     * Tests a full window gives up on the gap.
+     */
+    public void testWindow() {
+        Sequencer sequencer = new Sequencer(2);
+        
+        sequencer.offer(msg(2));
+        sequencer.offer(msg(3));
+        
+        List<Message> ready = sequencer.offer(msg(4));
+        
+        assertEquals(3, ready.size());
+        assertEquals(1, sequencer.getLost());
+        assertTrue(sequencer.offer(msg(1)).isEmpty());
+    }
+    
+    /**
+     * Tests flushing gives up on every gap.
+     */
+    public void testFlush() {
+        Sequencer sequencer = new Sequencer(8);
+        
+        sequencer.offer(msg(3));
+        sequencer.offer(msg(6));
+        
+        List<Message> ready = sequencer.flush();
+        
+        assertEquals(2, ready.size());
+        assertEquals(4, sequencer.getLost());
+        assertFalse(sequencer.isWaiting());
+        assertEquals(1, sequencer.offer(msg(7)).size());
+    }
+    
+    /**
+     * Tests unsequenced messages pass through.
+     */
+    public void testUnsequenced() {
+        Sequencer sequencer = new Sequencer(4);
+        
+        sequencer.offer(msg(2));
+        
+        assertEquals(1, sequencer.offer(new Shuffle()).size());
+    }
+    
+    /**
+     * Tests a fresh receiver picks up mid-session from a snapshot, dropping
+     * whatever came before it.
+     */
+    public void testResync() {
+        Sequencer sequencer = new Sequencer(4);
+        
+        assertTrue(sequencer.offer(msg(40)).isEmpty());
+        
+        sequencer.resync(42);
+        
+        assertFalse(sequencer.isWaiting());
+        assertEquals(1, sequencer.getDropped());
+        
+        assertEquals(1, sequencer.offer(msg(42)).size());
+        assertEquals(1, sequencer.offer(msg(43)).size());
+        assertEquals(0, sequencer.getLost());
+    }
+    
+    /**
+     * Makes a message with a sequence number.
+     * @param seq Sequence number
+     * @return Message
+     */
+    protected Message msg(long seq) {
+        Message msg = new Shuffle();
+        
+        msg.setSeq(seq);
+        
+        return msg;
+    }
+}
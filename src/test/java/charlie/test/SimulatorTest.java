@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.sim.Simulator;
+import charlie.sim.Tally;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class runs a short headless simulation.
+ * @author Ron.Coleman
+ */
+public class SimulatorTest extends AbstractTestCase {
+    /**
+     * Tests that every hand is played and a seed reproduces the run.
+     */
+    public void testSeeded() {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        
+        Tally first = new Simulator(20000, 2, 13, 6, 5).run();
+        Tally second = new Simulator(20000, 2, 13, 6, 5).run();
+        
+        assertEquals(20000, first.getCount());
+        assertEquals(first.getMean(), second.getMean());
+        assertEquals(first.getVariance(), second.getVariance());
+        
+        // Sanity only: the edge is a few percent either way
+        assertTrue(Math.abs(first.getMean()) < 0.1);
+        assertTrue(first.getVariance() > 1 && first.getVariance() < 2);
+    }
+}
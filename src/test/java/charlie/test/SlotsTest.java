@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.dealer.Slots;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests the slots the dealer keeps hands in.
+ * @author Ron.Coleman
+ */
+public class SlotsTest extends AbstractTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        
+        Logger.getRootLogger().setLevel(Level.WARN);
+    }
+    
+    /**
+     * Tests that hands are found by key, as they come over the wire, and
+     * that a split goes right after its hand.
+     */
+    public void testLookup() {
+        Slots slots = new Slots();
+        
+        Hid right = new Hid(Seat.RIGHT);
+        Hid you = new Hid(Seat.YOU, 5, 0);
+        Hid left = new Hid(Seat.LEFT);
+        
+        assertEquals(0, slots.add(right, new Hand(right), null));
+        assertEquals(1, slots.add(you, null));
+        assertEquals(2, slots.add(left, new Hand(left), null));
+        
+        // A copy is a different object with the same key
+        Hid copy = new Hid(you);
+        
+        assertEquals(copy.hashCode(), you.hashCode());
+        assertEquals(1, slots.slotOf(copy));
+        assertSame(you, slots.handOf(copy).getHid());
+        
+        assertEquals(-1, slots.slotOf(new Hid(Seat.YOU)));
+        assertNull(slots.handOf(null));
+        
+        Hid split = new Hid(Seat.YOU, 5, 0);
+        slots.insert(slots.slotOf(you) + 1, split, new Hand(split), null);
+        
+        assertEquals(4, slots.size());
+        assertSame(split, slots.hid(2));
+        assertSame(left, slots.hid(3));
+        assertEquals(3, slots.slotOf(left));
+    }
+    
+    /**
+     * Tests that the dealer's copy of a hand is reused, empty, next game.
+     */
+    public void testRecycle() {
+        Slots slots = new Slots();
+        
+        Hid first = new Hid(Seat.YOU);
+        slots.add(first, null);
+        
+        Hand hand = slots.hand(0);
+        hand.hit(Card.valueOf(Card.ACE, Card.Suit.SPADES));
+        hand.hit(Card.valueOf(10, Card.Suit.HEARTS));
+        
+        assertTrue(hand.isBlackjack());
+        
+        slots.clear();
+        
+        assertEquals(0, slots.size());
+        assertEquals(-1, slots.slotOf(first));
+        
+        Hid second = new Hid(Seat.YOU);
+        slots.add(second, null);
+        
+        assertSame(hand, slots.hand(0));
+        assertSame(second, hand.getHid());
+        assertEquals(0, hand.size());
+        assertEquals(0, hand.getValue());
+    }
+    
+    /**
+     * Tests that slots grow past a table's worth of splits.
+     */
+    public void testGrow() {
+        Slots slots = new Slots();
+        
+        for(int k=0; k < 20; k++)
+            slots.insert(0, new Hid(Seat.YOU), null, null);
+        
+        assertEquals(20, slots.size());
+        
+        for(int k=0; k < 20; k++)
+            assertEquals(k, slots.slotOf(slots.hid(k)));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.load.Swarm;
+import charlie.util.Constant;
+import java.io.FileInputStream;
+import java.util.Properties;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class runs a small swarm of headless clients against the server.
+ * @author Ron.Coleman
+ */
+public class SwarmTest extends AbstractTestCase {
+    /**
+     * Tests every client plays and every hit gets its card.
+     */
+    public void testSwarm() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        
+        Properties props = System.getProperties();
+        props.load(new FileInputStream("Hit.props"));
+        
+        // Deal without pausing and without the test's rigged shoe
+        System.setProperty(Constant.DEALER_PACE, "0");
+        System.clearProperty(Constant.PLUGIN_SHOE);
+        
+        // Everyone through one endpoint, and a client that hears nothing stalls fast
+        System.setProperty(Constant.SERVER_ENDPOINT, "127.0.0.1:8501");
+        System.setProperty(Constant.LOAD_STALL, "1000");
+        
+        go();
+        
+        Swarm swarm = new Swarm(4, 5, 8101, Constant.MIN_BET);
+        
+        long hands = swarm.run(3);
+        
+        String report = swarm.report(hands, 3);
+        
+        info(report);
+        
+        assertEquals(report, 4, swarm.getPlaying().size());
+        assertTrue(report, hands > 0);
+        assertTrue(report, report.contains("login: 0 arrival: 0 stall: 0"));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.actor.RealPlayer;
+import charlie.dealer.Dealer;
+import charlie.dealer.Table;
+
+/**
+ * This class tests seating at a pooled table.
+ * @author Ron.Coleman
+ */
+public class TableTest extends AbstractTestCase {
+    /**
+     * Tests that a table holds at most its capacity and frees seats.
+     */
+    public void testSeats() {
+        Dealer dealer = new Dealer(null);
+        
+        Table table = new Table(0, dealer, 2);
+        
+        RealPlayer a = new RealPlayer(dealer, "127.0.0.1:0");
+        RealPlayer b = new RealPlayer(dealer, "127.0.0.1:0");
+        RealPlayer c = new RealPlayer(dealer, "127.0.0.1:0");
+        
+        assertTrue(table.sit(a));
+        assertTrue(table.sit(b));
+        assertTrue(table.isFull());
+        assertFalse(table.sit(c));
+        assertEquals(2, table.size());
+        
+        assertTrue(table.leave(a));
+        assertFalse(table.leave(a));
+        assertFalse(table.isSeated(a));
+        
+        assertTrue(table.sit(c));
+        assertTrue(table.isSeated(c));
+        assertSame(dealer, table.getDealer());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.server.Ticket;
+import charlie.server.TicketRegistry;
+
+/**
+ * This class tests ticket lookup, expiry and the size limit.
+ * @author Ron.Coleman
+ */
+public class TicketRegistryTest extends AbstractTestCase {
+    long clock = 0;
+    
+    /**
+     * Makes a registry on our clock.
+     * @param ttl Time to live
+     * @param idle Idle time
+     * @param max Most tickets
+     * @return Registry
+     */
+    protected TicketRegistry registry(long ttl, long idle, int max) {
+        return new TicketRegistry(ttl, idle, max) {
+            @Override
+            protected long now() {
+                return clock;
+            }
+        };
+    }
+    
+    /**
+     * Tests validation counts uses and rejects unknown tickets.
+     */
+    public void testValidate() {
+        TicketRegistry registry = registry(1000, 1000, 10);
+        
+        registry.add(new Ticket(1, 100));
+        
+        Ticket arriving = new Ticket(1, 0);
+        
+        assertTrue(registry.validate(arriving));
+        assertTrue(registry.validate(arriving));
+        assertEquals(2, registry.get(1).getUsage());
+        assertFalse(registry.validate(new Ticket(2, 100)));
+        assertFalse(registry.validate(null));
+    }
+    
+    /**
+     * Tests tickets expire by age and by idleness.
+     */
+    public void testExpiry() {
+        TicketRegistry registry = registry(1000, 300, 10);
+        
+        registry.add(new Ticket(1, 100));
+        registry.add(new Ticket(2, 100));
+        
+        clock = 200;
+        assertTrue(registry.validate(new Ticket(1, 0)));
+        
+        // Ticket 2 has been idle too long
+        clock = 400;
+        assertFalse(registry.validate(new Ticket(2, 0)));
+        assertTrue(registry.validate(new Ticket(1, 0)));
+        
+        // Ticket 1 is too old even though it's in use
+        clock = 1100;
+        registry.add(new Ticket(3, 100));
+        
+        assertNull(registry.get(1));
+        assertEquals(1, registry.size());
+        assertEquals(2, registry.getExpired());
+    }
+    
+    /**
+     * Tests the oldest tickets go when there are too many.
+     */
+    public void testLimit() {
+        TicketRegistry registry = registry(Long.MAX_VALUE, Long.MAX_VALUE, 100);
+        
+        for(long number=0; number < 10000; number++)
+            registry.add(new Ticket(number, 100));
+        
+        assertEquals(100, registry.size());
+        assertEquals(10000, registry.getCount());
+        assertNull(registry.get(9899));
+        assertNotNull(registry.get(9900));
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.util.Constant;
+
+/**
+ * This class replays the HIT scenario with the real player running as a
+ * session on the shared Netty transport rather than on its own port.
+ * @author Ron.Coleman
+ */
+public class TransportHitTest extends HitTest {
+    /**
+     * Runs the test.
+     */
+    @Override
+    public void test() throws Exception {
+        System.setProperty(Constant.ACTOR_PERSISTENT, "true");
+        System.setProperty(Constant.ACTOR_TRANSPORT, "charlie.actor.last.NettyTransport");
+
+        try {
+            super.test();
+        }
+        finally {
+            System.clearProperty(Constant.ACTOR_PERSISTENT);
+            System.clearProperty(Constant.ACTOR_TRANSPORT);
+        }
+    }
+}
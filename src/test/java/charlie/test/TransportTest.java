@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.actor.last.Channel;
+import charlie.actor.last.Listener;
+import charlie.actor.last.NettyTransport;
+import charlie.message.Hello;
+import charlie.message.Message;
+import charlie.message.codec.CodecFactory;
+import charlie.message.view.to.Shuffle;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class tests who the shared transport lets into a session.
+ * @author Ron.Coleman
+ */
+public class TransportTest extends AbstractTestCase implements Listener {
+    final String ENDPOINT = "127.0.0.1:8601";
+    final long SESSION = 42;
+    final List<Message> received = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Tests a connection can't take over a session which is connected but
+     * can once the session's connection drops.
+     */
+    public void testHello() throws Exception {
+        NettyTransport transport = new NettyTransport();
+        transport.bind(ENDPOINT);
+        transport.register(SESSION, ENDPOINT, CodecFactory.getInstance(), this);
+        
+        try {
+            Channel first = hello();
+            first.write(new Shuffle());
+            
+            waitFor(1);
+            
+            // Same session id on another connection while the first is up
+            Channel second = hello();
+            second.write(new Shuffle());
+            
+            assertTrue(refused(second));
+            assertEquals(1, received.size());
+            
+            // Gone for good: the session is free to come back
+            first.close();
+            sleep(200);
+            
+            Channel third = hello();
+            third.write(new Shuffle());
+            
+            waitFor(2);
+            
+            third.close();
+        }
+        finally {
+            transport.close();
+        }
+    }
+    
+    /**
+     * Connects and says hello for the session.
+     * @return Channel
+     */
+    protected Channel hello() throws Exception {
+        Channel ch = Channel.connect(ENDPOINT, 2000);
+        ch.setCodec(CodecFactory.getInstance());
+        ch.write(new Hello(SESSION));
+        
+        return ch;
+    }
+    
+    /**
+     * Tests if the transport closed a connection on us.
+     * @param ch Channel
+     * @return True if closed, false if it sent us something
+     */
+    protected boolean refused(Channel ch) {
+        try {
+            return ch.read() == null;
+        }
+        catch(SocketTimeoutException ex) {
+            return false;
+        }
+        catch(IOException ex) {
+            return true;
+        }
+    }
+    
+    /**
+     * Waits for the session to receive a number of messages.
+     * @param n Number of messages
+     */
+    protected void waitFor(int n) {
+        for(int k=0; k < 50 && received.size() < n; k++)
+            sleep(100);
+        
+        assertEquals(n, received.size());
+    }
+    
+    /**
+     * Receives a message on the session.
+     * @param msg Message
+     */
+    @Override
+    public void received(Message msg) {
+        received.add(msg);
+    }
+}
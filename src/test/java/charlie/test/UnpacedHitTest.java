@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test;
+
+import charlie.util.Constant;
+
+/**
+ * This class replays the HIT scenario with the dealer dealing straight
+ * through, as it would for bots and simulation.
+ * @author Ron.Coleman
+ */
+public class UnpacedHitTest extends HitTest {
+    /**
+     * Runs the test.
+     */
+    @Override
+    public void test() throws Exception {
+        System.setProperty(Constant.DEALER_PACE, "0");
+
+        try {
+            super.test();
+        }
+        finally {
+            System.clearProperty(Constant.DEALER_PACE);
+        }
+    }
+}